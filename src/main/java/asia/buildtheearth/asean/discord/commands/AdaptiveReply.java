@@ -0,0 +1,213 @@
+package asia.buildtheearth.asean.discord.commands;
+
+import github.scarsz.discordsrv.dependencies.jda.api.interactions.Interaction;
+import github.scarsz.discordsrv.dependencies.jda.api.interactions.InteractionHook;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pending reply of an {@link AdaptiveSlashCommand}, acknowledged either by the command or by a watchdog.
+ *
+ * <p>The reply starts pending, and exactly one side wins it with a compare-and-set:
+ * the command {@link #claim() claiming} it to reply directly, or the watchdog
+ * deferring it once the budget elapsed. The losing side never sends a second acknowledgement,
+ * so the command replies through the {@link #getHook() hook} instead.</p>
+ *
+ * @see AdaptiveSlashCommand
+ */
+public final class AdaptiveReply {
+
+    /**
+     * Default budget of a command to reply directly, well within the 3 seconds acknowledgement deadline.
+     */
+    public static final Duration DEFAULT_BUDGET = Duration.ofSeconds(2);
+
+    private static final int PENDING = 0, REPLIED = 1, DEFERRED = 2;
+
+    private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, task -> {
+        Thread thread = new Thread(task, "adaptive-reply-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static { WATCHDOG.setRemoveOnCancelPolicy(true); }
+
+    private final Interaction interaction;
+    private final boolean ephemeral;
+    private final AtomicInteger state;
+    private final @Nullable Statistics statistics;
+    private final @Nullable ScheduledFuture<?> watchdog;
+
+    private AdaptiveReply(@NotNull Interaction interaction, boolean ephemeral, int state,
+                          @Nullable Statistics statistics, @Nullable Duration budget) {
+        this.interaction = interaction;
+        this.ephemeral = ephemeral;
+        this.state = new AtomicInteger(state);
+        this.statistics = statistics;
+        this.watchdog = budget == null? null : WATCHDOG.schedule(this::defer, budget.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start a pending reply, deferred automatically once the budget elapsed.
+     *
+     * @param interaction The un-acknowledged command interaction
+     * @param ephemeral Whether the reply, direct or deferred, is ephemeral
+     * @param budget The time given to the command to claim a direct reply
+     * @param statistics The statistics to record the taken path in
+     * @return The pending reply
+     */
+    public static @NotNull AdaptiveReply start(@NotNull Interaction interaction,
+                                               boolean ephemeral,
+                                               @NotNull Duration budget,
+                                               @NotNull Statistics statistics) {
+        return new AdaptiveReply(interaction, ephemeral, PENDING, statistics, budget);
+    }
+
+    /**
+     * Wrap an interaction already acknowledged elsewhere,
+     * every reply goes through its hook.
+     *
+     * @param hook The acknowledged interaction hook
+     * @return The deferred reply
+     */
+    public static @NotNull AdaptiveReply acknowledged(@NotNull InteractionHook hook) {
+        return new AdaptiveReply(hook.getInteraction(), false, DEFERRED, null, null);
+    }
+
+    /**
+     * Claim the direct reply of this interaction.
+     *
+     * <p>When claimed, the caller must acknowledge the interaction itself,
+     * such as {@code getInteraction().reply(...)}. Otherwise, the interaction is
+     * already acknowledged and the reply goes through {@link #getHook()}.</p>
+     *
+     * @return True if the caller won the reply, false if it was deferred or already claimed
+     */
+    public boolean claim() {
+        if(!state.compareAndSet(PENDING, REPLIED)) return false;
+
+        if(watchdog != null) watchdog.cancel(false);
+        if(statistics != null) statistics.direct.increment();
+        return true;
+    }
+
+    /**
+     * Check if the watchdog deferred this reply.
+     *
+     * @return True if deferred, the reply then goes through {@link #getHook()}
+     */
+    public boolean isDeferred() {
+        return state.get() == DEFERRED;
+    }
+
+    /**
+     * Respond either directly or through the hook, whichever applies.
+     *
+     * @param direct The direct reply, which must acknowledge the interaction
+     * @param deferred The reply through the hook of the acknowledged interaction
+     */
+    public void respond(@NotNull Consumer<Interaction> direct, @NotNull Consumer<InteractionHook> deferred) {
+        if(claim()) direct.accept(interaction);
+        else deferred.accept(interaction.getHook());
+    }
+
+    /**
+     * Respond with a text message, replying directly or editing the deferred reply.
+     *
+     * @param content The message content
+     */
+    public void send(@NotNull String content) {
+        respond(
+            direct -> direct.reply(content).setEphemeral(ephemeral).queue(),
+            hook -> hook.editOriginal(content).queue()
+        );
+    }
+
+    /**
+     * Get the command interaction of this reply.
+     *
+     * @return The interaction
+     */
+    public @NotNull Interaction getInteraction() {
+        return interaction;
+    }
+
+    /**
+     * Get the interaction hook, valid once the interaction is acknowledged.
+     *
+     * @return The interaction hook
+     */
+    public @NotNull InteractionHook getHook() {
+        return interaction.getHook();
+    }
+
+    /**
+     * Check if the reply is ephemeral.
+     *
+     * @return True if ephemeral
+     */
+    public boolean isEphemeral() {
+        return ephemeral;
+    }
+
+    private void defer() {
+        if(!state.compareAndSet(PENDING, DEFERRED)) return;
+
+        if(statistics != null) statistics.deferred.increment();
+        interaction.deferReply(ephemeral).queue();
+    }
+
+    /**
+     * Number of replies of a command that took each acknowledgement path.
+     */
+    public static final class Statistics {
+        private final LongAdder direct = new LongAdder();
+        private final LongAdder deferred = new LongAdder();
+
+        /**
+         * Create empty statistics.
+         */
+        public Statistics() {}
+
+        /**
+         * Get the number of replies claimed directly within the budget.
+         *
+         * @return The direct reply count
+         */
+        public long getDirectCount() {
+            return direct.sum();
+        }
+
+        /**
+         * Get the number of replies deferred by the watchdog.
+         *
+         * @return The deferred reply count
+         */
+        public long getDeferredCount() {
+            return deferred.sum();
+        }
+
+        /**
+         * Get the ratio of direct replies.
+         *
+         * @return The direct replies over all acknowledged replies, {@code 0} if none
+         */
+        public double getDirectRatio() {
+            long direct = getDirectCount(), total = direct + getDeferredCount();
+            return total == 0? 0 : (double) direct / total;
+        }
+
+        @Override
+        public String toString() {
+            return "{direct=" + getDirectCount() + ", deferred=" + getDeferredCount() + "}";
+        }
+    }
+}
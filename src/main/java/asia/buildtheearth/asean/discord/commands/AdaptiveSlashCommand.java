@@ -0,0 +1,51 @@
+package asia.buildtheearth.asean.discord.commands;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import github.scarsz.discordsrv.dependencies.jda.api.interactions.InteractionHook;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Slash command trigger that may reply directly instead of being deferred first.
+ *
+ * <p>The command is triggered before any acknowledgement, and given a budget
+ * to {@link AdaptiveReply#claim() claim} a direct reply. Past the budget,
+ * the interaction is deferred automatically and the command replies through the hook.
+ * A command answering within the budget saves the defer request entirely.</p>
+ *
+ * <blockquote>{@snippet :
+ * public class PingCommand implements AdaptiveSlashCommand<Interaction> {
+ *     @Override
+ *     public void trigger(@NotNull AdaptiveReply reply, @Nullable Interaction payload) {
+ *         reply.send("Pong!");
+ *     }
+ * }
+ * }</blockquote>
+ *
+ * @param <T> The command interaction class
+ *
+ * @see asia.buildtheearth.asean.discord.providers.DiscordCommandProvider#getAcknowledgeBudget(Class)
+ */
+@FunctionalInterface
+public interface AdaptiveSlashCommand<T extends Interaction> extends SlashCommand<T> {
+
+    /**
+     * Trigger a command with an adaptive acknowledgement.
+     *
+     * @param reply The pending reply of the triggered command
+     * @param payload The payload to start this command events
+     */
+    void trigger(@NotNull AdaptiveReply reply, @Nullable T payload);
+
+    /**
+     * Trigger a command that is already acknowledged,
+     * the reply always goes through the hook.
+     *
+     * @param hook The triggered command interaction hook
+     * @param payload The payload to start this command events
+     */
+    @Override
+    default void trigger(@NotNull InteractionHook hook, @Nullable T payload) {
+        trigger(AdaptiveReply.acknowledged(hook), payload);
+    }
+}
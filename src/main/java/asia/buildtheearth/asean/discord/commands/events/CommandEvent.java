@@ -19,6 +19,9 @@ public interface CommandEvent {
      * Handles a Discord slash command interaction by deferring the reply, resolving the appropriate command handler,
      * and invoking it with a payload supplier.
      *
+     * <p>An {@link asia.buildtheearth.asean.discord.commands.AdaptiveSlashCommand AdaptiveSlashCommand}
+     * is not deferred first, but given a budget to reply directly.</p>
+     *
      * @see #onSlashCommand(SlashCommandEvent, boolean, Class, Function) For triggering slash command without payload
      *
      * @param event     The {@link SlashCommandEvent} received from JDA.
@@ -0,0 +1,216 @@
+package asia.buildtheearth.asean.discord.commands.interactions;
+
+import github.scarsz.discordsrv.dependencies.jda.api.entities.Message;
+import github.scarsz.discordsrv.dependencies.jda.api.entities.MessageEmbed;
+import github.scarsz.discordsrv.dependencies.jda.api.interactions.InteractionHook;
+import github.scarsz.discordsrv.dependencies.jda.api.requests.RestAction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Editor of an interaction original message that coalesces high frequency updates.
+ *
+ * <p>At most one edit is in flight at a time. An edit requested meanwhile becomes pending,
+ * and replaces any older pending edit, so only the newest state is sent once the in-flight edit returns.
+ * A progress report of hundreds of steps costs only as many requests as the round trips allow,
+ * and never falls behind on the webhook rate limit.</p>
+ *
+ * <p>The {@link #complete(String) final} state is sent right away, or right after the in-flight edit,
+ * and every edit requested afterward is ignored.</p>
+ *
+ * <blockquote>{@snippet :
+ * CoalescingHookEditor progress = new CoalescingHookEditor(hook);
+ *
+ * for(int i = 0; i < plots.size(); i++) {
+ *     export(plots.get(i));
+ *     progress.edit("Exporting plots " + (i + 1) + "/" + plots.size());
+ * }
+ *
+ * progress.complete("Exported " + plots.size() + " plots");
+ * }</blockquote>
+ */
+public class CoalescingHookEditor {
+
+    private final InteractionHook hook;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private @Nullable Function<InteractionHook, RestAction<?>> pending;
+    private boolean inFlight;
+    private boolean completed;
+
+    /**
+     * Create a coalescing editor of an interaction hook.
+     *
+     * @param hook The hook of an acknowledged interaction
+     */
+    public CoalescingHookEditor(@NotNull InteractionHook hook) {
+        this.hook = hook;
+    }
+
+    /**
+     * Edit the original message content.
+     *
+     * @param content The new content
+     * @return False if this editor is already completed
+     */
+    public boolean edit(@NotNull String content) {
+        return edit(hook -> hook.editOriginal(content));
+    }
+
+    /**
+     * Edit the original message.
+     *
+     * @param message The new message
+     * @return False if this editor is already completed
+     */
+    public boolean edit(@NotNull Message message) {
+        return edit(hook -> hook.editOriginal(message));
+    }
+
+    /**
+     * Edit the original message embeds.
+     *
+     * @param embeds The new embeds
+     * @return False if this editor is already completed
+     */
+    public boolean editEmbeds(@NotNull Collection<? extends MessageEmbed> embeds) {
+        return edit(hook -> hook.editOriginalEmbeds(embeds));
+    }
+
+    /**
+     * Request an edit, replacing any pending one.
+     *
+     * @param edit The edit action to create from the hook, created only if it is sent
+     * @return False if this editor is already completed
+     */
+    public boolean edit(@NotNull Function<InteractionHook, RestAction<?>> edit) {
+        return submit(edit, false);
+    }
+
+    /**
+     * Send the final message content and complete this editor.
+     *
+     * @param content The final content
+     * @return A future completed once the final edit is applied
+     */
+    public @NotNull CompletableFuture<Void> complete(@NotNull String content) {
+        return complete(hook -> hook.editOriginal(content));
+    }
+
+    /**
+     * Send the final message and complete this editor.
+     *
+     * @param message The final message
+     * @return A future completed once the final edit is applied
+     */
+    public @NotNull CompletableFuture<Void> complete(@NotNull Message message) {
+        return complete(hook -> hook.editOriginal(message));
+    }
+
+    /**
+     * Send the final edit and complete this editor.
+     *
+     * <p>The final edit replaces any pending one and is sent without waiting for any later update.
+     * Completing an already completed editor does nothing.</p>
+     *
+     * @param edit The final edit action to create from the hook
+     * @return A future completed once the final edit is applied, or failed if it could not be
+     */
+    public @NotNull CompletableFuture<Void> complete(@NotNull Function<InteractionHook, RestAction<?>> edit) {
+        submit(edit, true);
+        return completion;
+    }
+
+    private boolean submit(@NotNull Function<InteractionHook, RestAction<?>> edit, boolean last) {
+        synchronized(this) {
+            if(completed) return false;
+            if(last) completed = true;
+            if(pending != null) coalesced.increment();
+
+            pending = edit;
+            if(inFlight) return true;
+
+            inFlight = true;
+        }
+        next();
+        return true;
+    }
+
+    /**
+     * Send the pending edit if any, or go idle
+     */
+    private void next() {
+        Function<InteractionHook, RestAction<?>> edit;
+        boolean last;
+        synchronized(this) {
+            // Once completed, the only edit left to take is the final one
+            edit = pending;
+            pending = null;
+            last = completed;
+
+            if(edit == null) {
+                inFlight = false;
+                return;
+            }
+        }
+
+        sent.increment();
+        try {
+            edit.apply(hook).queue(success -> {
+                if(last) completion.complete(null);
+                next();
+            }, failure -> {
+                if(last) completion.completeExceptionally(failure);
+                next();
+            });
+        }
+        catch (RuntimeException ex) {
+            // Failed before being queued, no callback is ever called
+            if(last) completion.completeExceptionally(ex);
+            next();
+        }
+    }
+
+    /**
+     * Check if the final edit was requested.
+     *
+     * @return True if completed, further edits are ignored
+     */
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Get the number of edits actually sent.
+     *
+     * @return The sent edit count
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * Get the number of edits replaced by a newer one before being sent.
+     *
+     * @return The coalesced edit count
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Get the hook this editor edits through.
+     *
+     * @return The interaction hook
+     */
+    public @NotNull InteractionHook getHook() {
+        return hook;
+    }
+}
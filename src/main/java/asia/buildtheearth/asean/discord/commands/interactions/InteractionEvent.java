@@ -1,6 +1,11 @@
 package asia.buildtheearth.asean.discord.commands.interactions;
 
+import asia.buildtheearth.asean.discord.commands.interactions.store.RemovalCause;
 import github.scarsz.discordsrv.dependencies.jda.api.interactions.commands.build.CommandData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
 
 /**
  * Interaction handler for all active slash-command interactions.
@@ -14,6 +19,16 @@ public interface InteractionEvent {
      */
     void removeInteraction(Long eventID);
 
+    /**
+     * Remove an interaction event from available cache.
+     *
+     * @param eventID The event ID to remove as primitive snowflake
+     * @see #removeInteraction(Long)
+     */
+    default void removeInteraction(long eventID) {
+        removeInteraction(Long.valueOf(eventID));
+    }
+
     /**
      * Clear all plugin created interactions
      */
@@ -27,6 +42,17 @@ public interface InteractionEvent {
      */
     Interaction getPayload(Long eventID);
 
+    /**
+     * Get the cached interaction data by event ID
+     *
+     * @param eventID The event ID that this interaction is registered with as primitive snowflake
+     * @return The payload as interface
+     * @see #getPayload(Long)
+     */
+    default Interaction getPayload(long eventID) {
+        return getPayload(Long.valueOf(eventID));
+    }
+
     /**
      * Register an interaction event with specify payload data.
      *
@@ -38,6 +64,18 @@ public interface InteractionEvent {
      */
     <T extends Interaction> void putPayload(Long eventID, T payload);
 
+    /**
+     * Register an interaction event with specify payload data.
+     *
+     * @param eventID The event ID to register as primitive snowflake
+     * @param payload The payload to put as the interaction data
+     * @param <T> Payload type to put as
+     * @see #putPayload(Long, Interaction)
+     */
+    default <T extends Interaction> void putPayload(long eventID, T payload) {
+        putPayload(Long.valueOf(eventID), payload);
+    }
+
     /**
      * Get an interaction data as the specify class
      * by casting the restored interaction by event ID with the class.
@@ -50,6 +88,21 @@ public interface InteractionEvent {
      */
     <T extends Interaction> T getAs(Class<T> interaction, Long eventID);
 
+    /**
+     * Get an interaction data as the specify class
+     * by casting the restored interaction by event ID with the class.
+     *
+     * @param interaction The interaction class to get as
+     * @param eventID The interaction ID to get as primitive snowflake
+     * @return The interaction payload
+     * @param <T> The interaction class that the payload is registered as
+     * @throws ClassCastException If the event does not related to specified interaction class
+     * @see #getAs(Class, Long)
+     */
+    default <T extends Interaction> T getAs(Class<T> interaction, long eventID) {
+        return getAs(interaction, Long.valueOf(eventID));
+    }
+
     /**
      * Get a command data as a specified class.
      *
@@ -60,6 +113,29 @@ public interface InteractionEvent {
      */
     <T extends CommandData> T fromClass(Class<T> command);
 
+    /**
+     * Get the executor running command triggers and button handlers off the JDA event thread.
+     *
+     * @return The virtual thread executor, or {@code null} to run every handler inline (Default to {@code null})
+     */
+    default @Nullable InteractionExecutor getExecutor() {
+        return null;
+    }
+
+    /**
+     * Run an interaction handler on the {@link #getExecutor() executor} if set, or inline otherwise.
+     *
+     * @param owner The command or handler class the concurrency cap is counted by
+     * @param interactionID The snowflake ID of the interaction that started this handler
+     * @param task The handler to run
+     * @see InteractionExecutor#execute(Class, long, Runnable)
+     */
+    default void execute(@NotNull Class<?> owner, long interactionID, @NotNull Runnable task) {
+        InteractionExecutor executor = getExecutor();
+        if(executor == null) task.run();
+        else executor.execute(owner, interactionID, task);
+    }
+
 
     /**
      * Called when a registered interaction times out without being handled.
@@ -70,4 +146,31 @@ public interface InteractionEvent {
      * @param interaction the class type of the interaction that timed out
      */
     void onInteractionTimeout(Class<? extends Interaction> interaction);
-}
\ No newline at end of file
+
+    /**
+     * Called with every registered interaction that times out on the same expiry tick.
+     *
+     * <p>The default implementation forwards each interaction
+     * to {@link #onInteractionTimeout(Class)} one by one.
+     * Override this method to handle a whole batch at once.</p>
+     *
+     * @param interactions The interactions that timed out, never empty
+     */
+    default void onInteractionTimeout(@NotNull List<? extends Interaction> interactions) {
+        for(Interaction interaction : interactions) onInteractionTimeout(interaction.getClass());
+    }
+
+    /**
+     * Called with a batch of registered interactions removed without being handled.
+     *
+     * <p>The default implementation forwards {@link RemovalCause#EXPIRED expired} interactions
+     * to {@link #onInteractionTimeout(List)} and ignores {@link RemovalCause#EVICTED evicted} ones.
+     * Override this method to tell the two apart, e.g. to answer an evicted interaction differently.</p>
+     *
+     * @param interactions The removed interactions, never empty
+     * @param cause Why these interactions are removed
+     */
+    default void onInteractionTimeout(@NotNull List<? extends Interaction> interactions, @NotNull RemovalCause cause) {
+        if(cause == RemovalCause.EXPIRED) onInteractionTimeout(interactions);
+    }
+}
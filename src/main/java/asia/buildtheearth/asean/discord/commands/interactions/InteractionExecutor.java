@@ -0,0 +1,202 @@
+package asia.buildtheearth.asean.discord.commands.interactions;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executor running slash command triggers and button handlers on virtual threads,
+ * so that a blocking handler never stalls the JDA event thread.
+ *
+ * <p>Every task is bound to the interaction that started it: once the interaction
+ * token expires, {@link #INTERACTION_LIFETIME} after the interaction was created,
+ * the task is interrupted since it can no longer respond. A task still waiting
+ * for a permit is dropped the same way.</p>
+ *
+ * <p>The number of tasks running at once is capped per owner class, usually the command
+ * or handler class, so that a burst of one slow command cannot exhaust its resources.
+ * Tasks over the cap wait on their virtual thread, which costs no platform thread.</p>
+ *
+ * <blockquote>{@snippet :
+ * provider.setExecutor(new InteractionExecutor("my-plugin", 8, plugin.getLogger()));
+ *
+ * // On disable
+ * provider.getExecutor().close();
+ * }</blockquote>
+ *
+ * @see InteractionEvent#execute(Class, long, Runnable)
+ */
+public class InteractionExecutor implements AutoCloseable {
+
+    /**
+     * Lifetime of a discord interaction token, after which a task can no longer respond.
+     */
+    public static final Duration INTERACTION_LIFETIME = Duration.ofMinutes(15);
+
+    /**
+     * Discord snowflake epoch, the first second of 2015
+     */
+    private static final long DISCORD_EPOCH = 1420070400000L;
+
+    private final String name;
+    private final Logger logger;
+    private final ToIntFunction<Class<?>> concurrency;
+    private final ConcurrentHashMap<Class<?>, Semaphore> permits = new ConcurrentHashMap<>();
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private final ScheduledThreadPoolExecutor watchdog;
+    private volatile boolean closed;
+
+    /**
+     * Create an executor with the same concurrency cap for every owner class.
+     *
+     * @param name The name prefix of every task thread
+     * @param concurrency The maximum number of tasks running at once per owner class
+     * @param logger The logger reporting task failures
+     */
+    public InteractionExecutor(@NotNull String name, int concurrency, @NotNull Logger logger) {
+        this(name, owner -> concurrency, logger);
+    }
+
+    /**
+     * Create an executor with a concurrency cap resolved per owner class.
+     *
+     * @param name The name prefix of every task thread
+     * @param concurrency Resolver of the maximum number of tasks running at once of an owner class,
+     *                    called once per class
+     * @param logger The logger reporting task failures
+     */
+    public InteractionExecutor(@NotNull String name,
+                               @NotNull ToIntFunction<Class<?>> concurrency,
+                               @NotNull Logger logger) {
+        this.name = name;
+        this.logger = logger;
+        this.concurrency = concurrency;
+        this.watchdog = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, name + "-interaction-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Run a task on a new virtual thread, interrupted when its interaction expires.
+     *
+     * @param owner The class the concurrency cap is counted by
+     * @param interactionID The snowflake ID of the interaction that started this task
+     * @param task The task to run
+     * @throws IllegalStateException If this executor is closed
+     */
+    public void execute(@NotNull Class<?> owner, long interactionID, @NotNull Runnable task) {
+        if(closed) throw new IllegalStateException("Interaction executor " + name + " is closed");
+
+        long delay = (interactionID >>> 22) + DISCORD_EPOCH + INTERACTION_LIFETIME.toMillis() - System.currentTimeMillis();
+        if(delay <= 0) {
+            onExpired(owner);
+            return;
+        }
+
+        Semaphore semaphore = permits.computeIfAbsent(owner, key -> new Semaphore(Math.max(1, concurrency.applyAsInt(key))));
+
+        Task bound = new Task(owner, semaphore, task);
+        Thread thread = Thread.ofVirtual().name(name + "-" + owner.getSimpleName()).unstarted(bound);
+
+        // Bound before start, so that the task always sees its deadline
+        try {
+            bound.deadline = watchdog.schedule(thread::interrupt, delay, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException ex) {
+            throw new IllegalStateException("Interaction executor " + name + " is closed", ex);
+        }
+
+        // Closed since checked, close() may have interrupted the running tasks before this one was added
+        running.add(thread);
+        if(closed) {
+            running.remove(thread);
+            bound.deadline.cancel(false);
+            throw new IllegalStateException("Interaction executor " + name + " is closed");
+        }
+        thread.start();
+    }
+
+    /**
+     * Get the number of tasks started and not yet finished, including tasks waiting for a permit.
+     *
+     * @return The number of pending tasks
+     */
+    public int getPendingCount() {
+        return running.size();
+    }
+
+    /**
+     * Called when a task is dropped because its interaction expired before it could run.
+     *
+     * <p>The default implementation does nothing.</p>
+     *
+     * @param owner The owner class of the dropped task
+     */
+    protected void onExpired(@NotNull Class<?> owner) {}
+
+    /**
+     * Called when a task throws.
+     *
+     * <p>The default implementation logs a warning.</p>
+     *
+     * @param owner The owner class of the failed task
+     * @param error The thrown error
+     */
+    protected void onFailure(@NotNull Class<?> owner, @NotNull Throwable error) {
+        logger.log(Level.WARNING, "Interaction task of " + owner.getSimpleName() + " failed", error);
+    }
+
+    /**
+     * A task bound to its concurrency permit and interaction deadline
+     */
+    private final class Task implements Runnable {
+        private final Class<?> owner;
+        private final Semaphore semaphore;
+        private final Runnable task;
+        private ScheduledFuture<?> deadline;
+
+        private Task(@NotNull Class<?> owner, @NotNull Semaphore semaphore, @NotNull Runnable task) {
+            this.owner = owner;
+            this.semaphore = semaphore;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                semaphore.acquire();
+                try { task.run(); }
+                catch (Throwable ex) { onFailure(owner, ex); }
+                finally { semaphore.release(); }
+            }
+            catch (InterruptedException ex) { onExpired(owner); }
+            finally {
+                deadline.cancel(false);
+                running.remove(Thread.currentThread());
+            }
+        }
+    }
+
+    /**
+     * Reject new tasks and interrupt every pending one.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        watchdog.shutdownNow();
+        running.forEach(Thread::interrupt);
+    }
+}
@@ -0,0 +1,85 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lookup of {@link InteractionCodec} by interaction class and by encoded codec ID.
+ *
+ * <p>An encoded interaction is {@code [byte idLength][codec ID][payload]},
+ * where the payload spans to the buffer limit.</p>
+ */
+final class CodecRegistry {
+
+    private final Map<Class<? extends Interaction>, Integer> byType = new HashMap<>();
+    private final InteractionCodec<?>[] codecs;
+    private final byte[][] codecIDs;
+
+    CodecRegistry(@NotNull InteractionCodec<?>[] codecs) {
+        this.codecs = codecs.clone();
+        this.codecIDs = new byte[codecs.length][];
+
+        for(int i = 0; i < codecs.length; i++) {
+            byType.put(codecs[i].type(), i);
+            codecIDs[i] = codecs[i].id().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Check if an interaction class has a codec.
+     *
+     * @param type The exact interaction class
+     * @return True if it can be encoded
+     */
+    boolean supports(@NotNull Class<? extends Interaction> type) {
+        return byType.containsKey(type);
+    }
+
+    /**
+     * Encode an interaction at the buffer position.
+     *
+     * @param payload The interaction to encode
+     * @param buffer The buffer to write to
+     * @return False if the interaction class has no codec
+     * @throws java.nio.BufferOverflowException If the buffer is too small
+     */
+    @SuppressWarnings("unchecked")
+    boolean encode(@NotNull Interaction payload, @NotNull ByteBuffer buffer) {
+        Integer type = byType.get(payload.getClass());
+        if(type == null) return false;
+
+        byte[] id = codecIDs[type];
+        buffer.put((byte) id.length).put(id);
+        ((InteractionCodec<Interaction>) codecs[type]).encode(payload, buffer);
+        return true;
+    }
+
+    /**
+     * Decode an interaction from the buffer position up to its limit.
+     * The codec ID is compared in place without being decoded.
+     *
+     * @param buffer The buffer to read from
+     * @return The decoded interaction, {@code null} if its codec is unknown
+     */
+    @Nullable Interaction decode(@NotNull ByteBuffer buffer) {
+        int pos = buffer.position();
+        int length = buffer.get(pos) & 0xff;
+
+        search: for(int i = 0; i < codecIDs.length; i++) {
+            byte[] id = codecIDs[i];
+            if(id.length != length) continue;
+
+            for(int j = 0; j < length; j++) if(buffer.get(pos + 1 + j) != id[j]) continue search;
+
+            buffer.position(pos + 1 + length);
+            return codecs[i].decode(buffer);
+        }
+        return null;
+    }
+}
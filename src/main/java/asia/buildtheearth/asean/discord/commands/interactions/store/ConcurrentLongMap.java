@@ -0,0 +1,395 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent hash map keyed by primitive {@code long} (discord snowflake).
+ *
+ * <p>The map is split into lock-striped segments, each segment is an open addressing
+ * table with linear probing over a {@code long[]} key array. Keys are never boxed.
+ * Reads are optimistic and only fall back to a read lock when a writer races with it,
+ * writes lock only the segment that the key hashes into.</p>
+ *
+ * <p>{@code null} values are not permitted, a {@code null} return value always means absent.</p>
+ *
+ * @param <V> The value type of this map
+ *
+ * @see #get(long)
+ * @see #put(long, Object)
+ * @see #remove(long)
+ * @see #remove(long, Object)
+ */
+public class ConcurrentLongMap<V> {
+
+    /**
+     * Consumer of a primitive keyed map entry.
+     *
+     * @param <V> The value type
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        /**
+         * Accept a map entry
+         *
+         * @param key The entry key
+         * @param value The entry value
+         */
+        void accept(long key, @NotNull V value);
+    }
+
+    /**
+     * Key reserved to mark an empty slot,
+     * mapping of this key is stored outside the table.
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * Initial table capacity of each segment, must be a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Striped segments of this map
+     */
+    private final Segment<V>[] segments;
+
+    /**
+     * Bits to shift a hash to get its segment index
+     */
+    private final int segmentShift;
+
+    /**
+     * Create a new map with segment count derived from available processors.
+     */
+    public ConcurrentLongMap() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Create a new map with a specific concurrency level.
+     *
+     * @param concurrency The estimated number of concurrent writer threads,
+     *                    rounded up to a power of two segment count.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentLongMap(int concurrency) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(concurrency, 1 << 16)) * 2 - 1);
+
+        this.segments = new Segment[count];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+
+        for(int i = 0; i < count; i++) segments[i] = new Segment<>();
+    }
+
+    /**
+     * Spread the bits of a snowflake. Low bits of a snowflake are
+     * the worker and increment counter which cluster badly on their own.
+     *
+     * @param key The key to hash
+     * @return Mixed 64-bit hash
+     */
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private @NotNull Segment<V> segmentFor(long hash) {
+        // A single segment would need a shift of 64, which java treats as 0
+        return segments.length == 1? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    /**
+     * Get the value mapped to a key.
+     *
+     * @param key The key to look up
+     * @return The mapped value, {@code null} if absent
+     */
+    public @Nullable V get(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, (int) hash);
+    }
+
+    /**
+     * Check if a key is mapped in this map.
+     *
+     * @param key The key to look up
+     * @return True if a mapping exist
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Map a key to a value, replacing any previous mapping.
+     *
+     * @param key The key to map
+     * @param value The value to map, must not be null
+     * @return The previous value or {@code null} if there was none
+     */
+    public @Nullable V put(long key, @NotNull V value) {
+        if(value == null) throw new IllegalArgumentException("ConcurrentLongMap does not permit null values");
+        long hash = hash(key);
+        return segmentFor(hash).put(key, (int) hash, value, false);
+    }
+
+    /**
+     * Map a key to a value only if the key is not already mapped.
+     *
+     * @param key The key to map
+     * @param value The value to map, must not be null
+     * @return The existing value, or {@code null} if the value is mapped
+     */
+    public @Nullable V putIfAbsent(long key, @NotNull V value) {
+        if(value == null) throw new IllegalArgumentException("ConcurrentLongMap does not permit null values");
+        long hash = hash(key);
+        return segmentFor(hash).put(key, (int) hash, value, true);
+    }
+
+    /**
+     * Remove a mapping of a key.
+     *
+     * @param key The key to remove
+     * @return The removed value, {@code null} if the key was not mapped
+     */
+    public @Nullable V remove(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, (int) hash, null);
+    }
+
+    /**
+     * Remove a mapping only if the key is currently mapped to the exact value instance.
+     *
+     * @param key The key to remove
+     * @param value The expected value, compared by identity
+     * @return True if the mapping is removed
+     */
+    public boolean remove(long key, @NotNull V value) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, (int) hash, value) != null;
+    }
+
+    /**
+     * Remove all mappings of this map.
+     */
+    public void clear() {
+        for(Segment<V> segment : segments) segment.clear();
+    }
+
+    /**
+     * Count all the mappings in this map.
+     * The result is a moving estimate while this map is concurrently modified.
+     *
+     * @return The number of mappings
+     */
+    public int size() {
+        long size = 0;
+        for(Segment<V> segment : segments) size += segment.size;
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Check if this map has no mapping.
+     *
+     * @return True if the map is empty
+     */
+    public boolean isEmpty() {
+        for(Segment<V> segment : segments) if(segment.size != 0) return false;
+        return true;
+    }
+
+    /**
+     * Iterate every mapping in this map, one segment at a time.
+     * Each segment is locked while being iterated, the consumer must not modify this map.
+     *
+     * @param consumer The consumer to accept each entry
+     */
+    public void forEach(@NotNull EntryConsumer<? super V> consumer) {
+        for(Segment<V> segment : segments) segment.forEach(consumer);
+    }
+
+    /**
+     * Key and value arrays of a segment,
+     * replaced as a whole so an optimistic reader never sees mismatched arrays.
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+        }
+    }
+
+    /**
+     * A lock striped open addressing table.
+     *
+     * @param <V> The value type
+     */
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        private volatile int size = 0;
+        private Object zeroValue = null;
+
+        @SuppressWarnings("unchecked")
+        private V get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if(stamp != 0L) {
+                Object value = find(key, hash);
+                if(lock.validate(stamp)) return (V) value;
+            }
+
+            stamp = lock.readLock();
+            try { return (V) find(key, hash); }
+            finally { lock.unlockRead(stamp); }
+        }
+
+        /**
+         * Probe the table for a key, bounded by capacity
+         * so a torn optimistic read can never spin forever.
+         */
+        private Object find(long key, int hash) {
+            if(key == EMPTY) return zeroValue;
+
+            Table table = this.table;
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+
+            for(int i = hash & mask, probe = 0; probe <= mask; i = (i + 1) & mask, probe++) {
+                long slot = keys[i];
+                if(slot == key) return table.values[i];
+                if(slot == EMPTY) return null;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V put(long key, int hash, V value, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                if(key == EMPTY) {
+                    Object previous = zeroValue;
+                    if(previous == null) size++;
+                    if(previous == null || !onlyIfAbsent) zeroValue = value;
+                    return (V) previous;
+                }
+
+                Table table = this.table;
+                long[] keys = table.keys;
+                int mask = keys.length - 1;
+                int i = hash & mask;
+
+                while(keys[i] != EMPTY) {
+                    if(keys[i] == key) {
+                        Object previous = table.values[i];
+                        if(!onlyIfAbsent) table.values[i] = value;
+                        return (V) previous;
+                    }
+                    i = (i + 1) & mask;
+                }
+
+                keys[i] = key;
+                table.values[i] = value;
+
+                // Keep load factor under 0.5 for short probe sequences
+                if(++size * 2 > keys.length) resize(table);
+                return null;
+            }
+            finally { lock.unlockWrite(stamp); }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V remove(long key, int hash, Object expected) {
+            long stamp = lock.writeLock();
+            try {
+                if(key == EMPTY) {
+                    Object previous = zeroValue;
+                    if(previous == null || (expected != null && previous != expected)) return null;
+                    zeroValue = null;
+                    size--;
+                    return (V) previous;
+                }
+
+                Table table = this.table;
+                long[] keys = table.keys;
+                Object[] values = table.values;
+                int mask = keys.length - 1;
+                int i = hash & mask;
+
+                while(keys[i] != key) {
+                    if(keys[i] == EMPTY) return null;
+                    i = (i + 1) & mask;
+                }
+
+                Object previous = values[i];
+                if(expected != null && previous != expected) return null;
+
+                // Backward shift deletion, keeps probe chains intact without tombstones
+                int gap = i;
+                for(int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                    int home = (int) hash(keys[j]) & mask;
+                    if(((j - home) & mask) >= ((j - gap) & mask)) {
+                        keys[gap] = keys[j];
+                        values[gap] = values[j];
+                        gap = j;
+                    }
+                }
+                keys[gap] = EMPTY;
+                values[gap] = null;
+                size--;
+
+                return (V) previous;
+            }
+            finally { lock.unlockWrite(stamp); }
+        }
+
+        private void resize(@NotNull Table old) {
+            Table table = new Table(old.keys.length << 1);
+            int mask = table.keys.length - 1;
+
+            for(int i = 0; i < old.keys.length; i++) {
+                long key = old.keys[i];
+                if(key == EMPTY) continue;
+
+                int j = (int) hash(key) & mask;
+                while(table.keys[j] != EMPTY) j = (j + 1) & mask;
+
+                table.keys[j] = key;
+                table.values[j] = old.values[i];
+            }
+            this.table = table;
+        }
+
+        private void clear() {
+            long stamp = lock.writeLock();
+            try {
+                this.table = new Table(INITIAL_CAPACITY);
+                this.zeroValue = null;
+                this.size = 0;
+            }
+            finally { lock.unlockWrite(stamp); }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void forEach(@NotNull EntryConsumer<? super V> consumer) {
+            long stamp = lock.readLock();
+            try {
+                if(zeroValue != null) consumer.accept(EMPTY, (V) zeroValue);
+
+                Table table = this.table;
+                for(int i = 0; i < table.keys.length; i++) {
+                    if(table.keys[i] != EMPTY) consumer.accept(table.keys[i], (V) table.values[i]);
+                }
+            }
+            finally { lock.unlockRead(stamp); }
+        }
+    }
+}
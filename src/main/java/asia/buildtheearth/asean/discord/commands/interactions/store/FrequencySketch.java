@@ -0,0 +1,134 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Count-Min sketch of 4-bit counters estimating how often an event ID is accessed.
+ *
+ * <p>Used as the TinyLFU admission filter of {@link InteractionCache}.
+ * Every counter is halved once the sample size is reached, so the history
+ * ages out and a formerly popular interaction cannot stay admitted forever.</p>
+ *
+ * <p>Not thread-safe, guarded by the eviction lock of the owning cache.</p>
+ */
+final class FrequencySketch {
+
+    private static final long[] SEED = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    /** 16 counters of 4-bit per slot */
+    private long[] table = new long[0];
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    /**
+     * Grow the sketch so it can estimate the expected number of entries accurately.
+     *
+     * <p>Counters are hashed by the table size, so the frequency of every resident
+     * key is re-counted into the grown table instead of being lost while the cache fills.</p>
+     *
+     * @param expected The expected number of entries in the cache
+     * @param residents Visitor of every key currently stored in the cache
+     */
+    void ensureCapacity(long expected, @NotNull Consumer<LongConsumer> residents) {
+        int maximum = (int) Math.min(Math.max(expected, 16), Integer.MAX_VALUE >>> 1);
+        if(table.length >= maximum) return;
+
+        long[] previous = table;
+        int previousMask = tableMask;
+
+        table = new long[Integer.highestOneBit(maximum * 2 - 1)];
+        tableMask = table.length - 1;
+        sampleSize = (int) Math.min(10L * table.length, Integer.MAX_VALUE);
+        size = 0;
+
+        if(previous.length == 0) return;
+
+        residents.accept(key -> {
+            int hash = spread(key);
+            int count = frequency(previous, previousMask, hash);
+            for(int n = 0; n < count; n++) if(incrementAll(hash)) size++;
+        });
+        if(size >= sampleSize) reset();
+    }
+
+    /**
+     * Estimate the access frequency of a key.
+     *
+     * @param key The event ID
+     * @return The estimated frequency, from 0 to 15
+     */
+    int frequency(long key) {
+        return frequency(table, tableMask, spread(key));
+    }
+
+    private static int frequency(long[] table, int mask, int hash) {
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+
+        for(int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i, mask);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Record an access of a key, aging the sketch if the sample size is reached.
+     *
+     * @param key The event ID
+     */
+    void increment(long key) {
+        if(incrementAll(spread(key)) && ++size == sampleSize) reset();
+    }
+
+    private boolean incrementAll(int hash) {
+        int start = (hash & 3) << 2;
+        boolean added = false;
+
+        for(int i = 0; i < 4; i++) added |= incrementAt(indexOf(hash, i, tableMask), start + i);
+        return added;
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+
+        if((table[index] & mask) == mask) return false;
+
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    /**
+     * Halve every counter, adjusting the sample size by the truncated odd counts.
+     */
+    private void reset() {
+        int odd = 0;
+        for(int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private static int indexOf(int item, int depth, int mask) {
+        long hash = (item + SEED[depth]) * SEED[depth];
+        hash += hash >>> 32;
+        return ((int) hash) & mask;
+    }
+
+    private static int spread(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        int hash = (int) (key ^ (key >>> 32));
+        return (hash ^ (hash >>> 17)) * 0x45d9f3b;
+    }
+}
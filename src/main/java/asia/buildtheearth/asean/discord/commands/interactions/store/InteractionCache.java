@@ -0,0 +1,441 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runtime interaction storage with expiry and an optional weight bound.
+ *
+ * <p>Every interaction is stored in a {@link ConcurrentLongMap} and expired by an {@link InteractionExpirer}.
+ * When created with a maximum weight, each interaction is weighed by an {@link InteractionWeigher}
+ * and the cache evicts with a W-TinyLFU policy: new interactions enter a small LRU window,
+ * then compete against the least recently used main space entry by their estimated
+ * access {@link FrequencySketch frequency} to be admitted.</p>
+ *
+ * <p>Lookups never block. Writes of a bounded cache are serialized by the eviction lock,
+ * while access reordering on lookup is skipped when that lock is contended.</p>
+ *
+ * @see #put(long, Interaction, long)
+ * @see #get(long)
+ * @see RemovalListener
+ */
+public class InteractionCache implements InteractionStore {
+
+    /**
+     * Maximum weight of a cache that never evicts.
+     */
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private static final byte WINDOW = 0, PROBATION = 1, PROTECTED = 2, DEAD = 3;
+
+    private final ConcurrentLongMap<Node> data = new ConcurrentLongMap<>();
+    private final InteractionExpirer expirer;
+    private final InteractionWeigher weigher;
+    private volatile RemovalListener listener = (interactions, cause) -> {};
+    private final long maximum;
+
+    // Eviction policy, guarded by the eviction lock and unused if unbounded
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final AccessOrder window = new AccessOrder();
+    private final AccessOrder probation = new AccessOrder();
+    private final AccessOrder protect = new AccessOrder();
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long windowWeight, protectedWeight, weightedSize;
+    private long evictionCount;
+
+    /**
+     * Create an unbounded interaction cache.
+     *
+     * @param name Name of the expiry thread
+     */
+    public InteractionCache(@NotNull String name) {
+        this(name, UNBOUNDED, InteractionWeigher.SINGLETON);
+    }
+
+    /**
+     * Create an interaction cache bounded by weight.
+     *
+     * @param name Name of the expiry thread
+     * @param maximumWeight The maximum total weight of all interactions, or {@link #UNBOUNDED}
+     * @param weigher The weigher of each interaction
+     */
+    public InteractionCache(@NotNull String name, long maximumWeight, @NotNull InteractionWeigher weigher) {
+        if(maximumWeight <= 0) throw new IllegalArgumentException("Maximum weight must be positive");
+
+        this.expirer = new InteractionExpirer(name, this::onExpired);
+        this.weigher = weigher;
+        this.maximum = maximumWeight;
+
+        // Caffeine's defaults: 1% admission window, 80% of the main space protected
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) / 10 * 8;
+    }
+
+    @Override
+    public void setRemovalListener(@NotNull RemovalListener listener) {
+        this.listener = listener;
+    }
+
+    private boolean isBounded() {
+        return maximum != UNBOUNDED;
+    }
+
+    /**
+     * Get an interaction by its event ID.
+     *
+     * @param eventID The event ID to look up
+     * @return The interaction, {@code null} if absent
+     */
+    @Override
+    public @Nullable Interaction get(long eventID) {
+        Node node = data.get(eventID);
+        if(node == null) return null;
+
+        if(isBounded() && evictionLock.tryLock()) {
+            try { if(node.queue != DEAD) onAccess(node); }
+            finally { evictionLock.unlock(); }
+        }
+        return node.payload;
+    }
+
+    /**
+     * Check if an interaction is stored, without counting as an access.
+     *
+     * @param eventID The event ID to look up
+     * @return True if stored
+     */
+    @Override
+    public boolean contains(long eventID) {
+        return data.containsKey(eventID);
+    }
+
+    /**
+     * Store an interaction, replacing and cancelling any previous one of the same event ID.
+     *
+     * @param eventID The event ID to store with
+     * @param payload The interaction payload
+     * @param ttlMillis Time to live of the interaction in milliseconds
+     */
+    @Override
+    public void put(long eventID, @NotNull Interaction payload, long ttlMillis) {
+        Node node = new Node(eventID, payload, isBounded()? weigher.weigh(eventID, payload) : 0);
+        if(node.weight < 0) throw new IllegalArgumentException("Interaction weight must not be negative");
+
+        node.timeout = expirer.schedule(eventID, payload, ttlMillis);
+
+        Node previous;
+        List<Interaction> evicted = null;
+
+        if(isBounded()) {
+            evictionLock.lock();
+            try {
+                previous = data.put(eventID, node);
+                if(previous != null) unlink(previous);
+
+                link(node);
+                evicted = evict();
+            }
+            finally { evictionLock.unlock(); }
+        }
+        else previous = data.put(eventID, node);
+
+        if(previous != null) previous.timeout.cancel();
+        if(evicted != null) listener.onRemoval(evicted, RemovalCause.EVICTED);
+
+        // A time to live below a wheel tick can expire before the node is stored, finding nothing to remove
+        if(node.timeout.isExpired()) onExpired(List.of(node.timeout));
+    }
+
+    /**
+     * Remove an interaction by its event ID, cancelling its expiry.
+     *
+     * @param eventID The event ID to remove
+     * @return The removed interaction, {@code null} if absent
+     */
+    @Override
+    public @Nullable Interaction remove(long eventID) {
+        Node node;
+
+        if(isBounded()) {
+            evictionLock.lock();
+            try {
+                node = data.remove(eventID);
+                if(node != null) unlink(node);
+            }
+            finally { evictionLock.unlock(); }
+        }
+        else node = data.remove(eventID);
+
+        if(node == null) return null;
+
+        node.timeout.cancel();
+        return node.payload;
+    }
+
+    /**
+     * Remove every interaction of this cache, cancelling their expiry.
+     */
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            data.forEach((eventID, node) -> {
+                node.timeout.cancel();
+                node.queue = DEAD;
+            });
+            data.clear();
+
+            window.clear();
+            probation.clear();
+            protect.clear();
+            windowWeight = protectedWeight = weightedSize = 0;
+        }
+        finally { evictionLock.unlock(); }
+    }
+
+    /**
+     * Count the interactions of this cache.
+     *
+     * @return The estimated number of interactions
+     */
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Get the total weight of all interactions of a bounded cache.
+     *
+     * @return The weighted size, always {@code 0} if unbounded
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try { return weightedSize; }
+        finally { evictionLock.unlock(); }
+    }
+
+    /**
+     * Get the number of interactions evicted since this cache is created.
+     *
+     * @return The eviction count
+     */
+    public long evictionCount() {
+        evictionLock.lock();
+        try { return evictionCount; }
+        finally { evictionLock.unlock(); }
+    }
+
+    /**
+     * Visit every stored interaction with its expiry.
+     *
+     * @param consumer The consumer of each interaction, with its wall-clock expiry time
+     */
+    void forEach(@NotNull InteractionJournal.Replay consumer) {
+        long now = System.currentTimeMillis();
+        data.forEach((eventID, node) -> consumer.accept(eventID, node.payload, now + node.timeout.getRemainingMillis()));
+    }
+
+    private void onExpired(@NotNull List<InteractionExpirer.Timeout> expired) {
+        List<Interaction> removed = new ArrayList<>(expired.size());
+
+        for(InteractionExpirer.Timeout timeout : expired) {
+            Node node = data.get(timeout.eventID);
+
+            // Only the exact timeout, the event may have been re-registered since
+            if(node == null || node.timeout != timeout) continue;
+
+            if(isBounded()) {
+                evictionLock.lock();
+                try { if(data.remove(node.key, node)) unlink(node); else continue; }
+                finally { evictionLock.unlock(); }
+            }
+            else if(!data.remove(node.key, node)) continue;
+
+            removed.add(node.payload);
+        }
+
+        if(!removed.isEmpty()) listener.onRemoval(removed, RemovalCause.EXPIRED);
+    }
+
+    /**
+     * Add a new node to the admission window.
+     */
+    private void link(@NotNull Node node) {
+        sketch.ensureCapacity(data.size(), keys -> data.forEach((key, resident) -> keys.accept(key)));
+        sketch.increment(node.key);
+
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowWeight += node.weight;
+        weightedSize += node.weight;
+    }
+
+    /**
+     * Remove a node from whichever policy queue it is in.
+     */
+    private void unlink(@NotNull Node node) {
+        switch (node.queue) {
+            case WINDOW -> {
+                window.remove(node);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> probation.remove(node);
+            case PROTECTED -> {
+                protect.remove(node);
+                protectedWeight -= node.weight;
+            }
+            default -> { return; }
+        }
+        weightedSize -= node.weight;
+        node.queue = DEAD;
+    }
+
+    private void onAccess(@NotNull Node node) {
+        sketch.increment(node.key);
+
+        switch (node.queue) {
+            case WINDOW -> window.moveToLast(node);
+            case PROTECTED -> protect.moveToLast(node);
+            case PROBATION -> {
+                // Promote, then demote the protected overflow back to probation
+                probation.remove(node);
+                protect.addLast(node);
+                node.queue = PROTECTED;
+                protectedWeight += node.weight;
+
+                while(protectedWeight > protectedMaximum) {
+                    Node demoted = protect.pollFirst();
+                    if(demoted == null) break;
+
+                    protectedWeight -= demoted.weight;
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the window overflow to probation as candidates,
+     * then evict until the cache is within its maximum weight.
+     *
+     * @return The evicted interactions, {@code null} if none
+     */
+    private @Nullable List<Interaction> evict() {
+        Node candidate = null;
+
+        while(windowWeight > windowMaximum) {
+            Node node = window.pollFirst();
+            if(node == null) break;
+
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+
+            if(candidate == null) candidate = node;
+        }
+
+        List<Interaction> evicted = null;
+
+        while(weightedSize > maximum) {
+            Node victim = probation.head;
+            if(victim == null) victim = protect.head;
+            if(victim == null) victim = window.head;
+            if(victim == null) break;
+
+            Node evict;
+            if(candidate == null || victim == candidate || candidate.weight > maximum) evict = candidate == null? victim : candidate;
+            else evict = admit(candidate, victim)? victim : candidate;
+
+            // Candidates are the tail of probation, continue with the next one
+            if(evict == candidate) candidate = candidate.next;
+
+            Interaction payload = evict.payload;
+            unlink(evict);
+            if(!data.remove(evict.key, evict)) continue;
+
+            evict.timeout.cancel();
+            evictionCount++;
+
+            if(evicted == null) evicted = new ArrayList<>();
+            evicted.add(payload);
+        }
+
+        return evicted;
+    }
+
+    /**
+     * TinyLFU admission, a candidate is admitted only if it is accessed more often than the victim.
+     */
+    private boolean admit(@NotNull Node candidate, @NotNull Node victim) {
+        return sketch.frequency(candidate.key) > sketch.frequency(victim.key);
+    }
+
+    /**
+     * A stored interaction and its policy state.
+     */
+    private static final class Node {
+        private final long key;
+        private final Interaction payload;
+        private final int weight;
+        private InteractionExpirer.Timeout timeout;
+
+        // Policy state, guarded by the eviction lock
+        private byte queue = DEAD;
+        private Node prev, next;
+
+        private Node(long key, @NotNull Interaction payload, int weight) {
+            this.key = key;
+            this.payload = payload;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list ordered from least to most recently used.
+     */
+    private static final class AccessOrder {
+        private Node head, tail;
+
+        private void addLast(@NotNull Node node) {
+            node.prev = tail;
+            node.next = null;
+            if(tail == null) head = node;
+            else tail.next = node;
+            tail = node;
+        }
+
+        private void remove(@NotNull Node node) {
+            if(node.prev == null) head = node.next;
+            else node.prev.next = node.next;
+
+            if(node.next == null) tail = node.prev;
+            else node.next.prev = node.prev;
+
+            node.prev = node.next = null;
+        }
+
+        private void moveToLast(@NotNull Node node) {
+            if(node == tail) return;
+            remove(node);
+            addLast(node);
+        }
+
+        private @Nullable Node pollFirst() {
+            Node node = head;
+            if(node != null) remove(node);
+            return node;
+        }
+
+        private void clear() {
+            head = tail = null;
+        }
+    }
+}
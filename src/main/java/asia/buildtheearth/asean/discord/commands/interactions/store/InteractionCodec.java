@@ -0,0 +1,145 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Binary codec of an {@link Interaction} subclass, used to persist interactions outside the heap.
+ *
+ * <p>The codec {@link #id()} is written along every encoded interaction, it must stay stable
+ * across plugin versions (unlike class names which change with relocation).</p>
+ *
+ * <p>Usage:</p>
+ * <blockquote>{@snippet :
+ * InteractionCodec<PlotInteraction> codec = InteractionCodec.of("plot", PlotInteraction.class,
+ *     (interaction, buffer) -> {
+ *         buffer.putLong(interaction.userID).putLong(interaction.eventID);
+ *         InteractionCodec.putString(buffer, interaction.plotName);
+ *     },
+ *     buffer -> new PlotInteraction(buffer.getLong(), buffer.getLong(), InteractionCodec.getString(buffer))
+ * );
+ * }</blockquote>
+ *
+ * @param <T> The interaction type of this codec
+ * @see #BASE
+ * @see InteractionJournal
+ */
+public interface InteractionCodec<T extends Interaction> {
+
+    /**
+     * Codec of the base {@link Interaction} class, encoding only its user and event ID.
+     */
+    InteractionCodec<Interaction> BASE = of("interaction", Interaction.class,
+        (interaction, buffer) -> buffer.putLong(interaction.userID).putLong(interaction.eventID),
+        buffer -> new Interaction(buffer.getLong(), buffer.getLong())
+    );
+
+    /**
+     * The stable identifier of this codec, at most 255 bytes of UTF-8.
+     *
+     * @return The codec ID
+     */
+    @NotNull String id();
+
+    /**
+     * The exact interaction class handled by this codec.
+     *
+     * @return The interaction class
+     */
+    @NotNull Class<T> type();
+
+    /**
+     * Encode an interaction into a buffer.
+     *
+     * <p>The buffer may run out of space, the caller retries with a larger
+     * buffer on {@link java.nio.BufferOverflowException}.</p>
+     *
+     * @param interaction The interaction to encode
+     * @param buffer The buffer to write at its current position
+     */
+    void encode(@NotNull T interaction, @NotNull ByteBuffer buffer);
+
+    /**
+     * Decode an interaction from a buffer.
+     *
+     * @param buffer A buffer positioned at the encoded interaction, limited to its end
+     * @return The decoded interaction
+     */
+    @NotNull T decode(@NotNull ByteBuffer buffer);
+
+    /**
+     * Create a codec from functions.
+     *
+     * @param id The stable identifier of this codec
+     * @param type The exact interaction class handled by this codec
+     * @param encoder The encode function
+     * @param decoder The decode function
+     * @return A new codec instance
+     * @param <T> The interaction type of this codec
+     */
+    static <T extends Interaction> @NotNull InteractionCodec<T> of(@NotNull String id,
+                                                                   @NotNull Class<T> type,
+                                                                   @NotNull BiConsumer<T, ByteBuffer> encoder,
+                                                                   @NotNull Function<ByteBuffer, T> decoder) {
+        if(id.getBytes(StandardCharsets.UTF_8).length > 255)
+            throw new IllegalArgumentException("Interaction codec ID must not exceed 255 bytes (" + id + ")");
+
+        return new InteractionCodec<>() {
+            @Override
+            public @NotNull String id() {
+                return id;
+            }
+
+            @Override
+            public @NotNull Class<T> type() {
+                return type;
+            }
+
+            @Override
+            public void encode(@NotNull T interaction, @NotNull ByteBuffer buffer) {
+                encoder.accept(interaction, buffer);
+            }
+
+            @Override
+            public @NotNull T decode(@NotNull ByteBuffer buffer) {
+                return decoder.apply(buffer);
+            }
+        };
+    }
+
+    /**
+     * Write a nullable string as length-prefixed UTF-8.
+     *
+     * @param buffer The buffer to write to
+     * @param value The string to write
+     */
+    static void putString(@NotNull ByteBuffer buffer, @Nullable String value) {
+        if(value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #putString(ByteBuffer, String)}.
+     *
+     * @param buffer The buffer to read from
+     * @return The string value
+     */
+    static @Nullable String getString(@NotNull ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if(length < 0) return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
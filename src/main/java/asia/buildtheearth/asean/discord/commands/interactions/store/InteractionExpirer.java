@@ -0,0 +1,345 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel that expires registered interactions.
+ *
+ * <p>A single daemon thread advances the wheel on {@link System#nanoTime() monotonic} time,
+ * so expiry does not drift with the server TPS. Every interaction expiring on the same tick
+ * is delivered to the {@link Listener} as one batch.</p>
+ *
+ * <p>The worker thread is started on the first {@link #schedule(long, Interaction, long)} and
+ * stops by itself once no timeout is left, so an idle expirer holds no thread.</p>
+ *
+ * @see #schedule(long, Interaction, long)
+ * @see Timeout#cancel()
+ */
+public class InteractionExpirer {
+
+    /**
+     * Receiver of expired timeouts, invoked on the expirer thread.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called once per wheel tick with all the timeouts that expired on it.
+         *
+         * @param expired The expired timeouts, never empty
+         */
+        void onExpired(@NotNull List<Timeout> expired);
+    }
+
+    private static final int STOPPED = 0, STARTED = 1;
+
+    /**
+     * Name of the worker thread
+     */
+    private final String name;
+
+    /**
+     * Listener of every expired batch
+     */
+    private final Listener listener;
+
+    /**
+     * Wheel tick duration in nanoseconds
+     */
+    private final long tickNanos;
+
+    /**
+     * Wheel buckets, each is a doubly linked list of timeouts
+     */
+    private final Bucket[] wheel;
+
+    /**
+     * Timeouts waiting to be placed on the wheel by the worker thread
+     */
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Timeouts waiting to be unlinked from the wheel by the worker thread
+     */
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Worker state, {@link #STOPPED} or {@link #STARTED}
+     */
+    private final AtomicInteger state = new AtomicInteger(STOPPED);
+
+    /**
+     * Number of timeouts currently on the wheel, only touched by the worker thread
+     */
+    private int scheduled = 0;
+
+    /**
+     * Create an interaction expirer with 1 second tick and 512 buckets.
+     *
+     * @param name Name of the worker thread
+     * @param listener Receiver of every expired batch
+     */
+    public InteractionExpirer(@NotNull String name, @NotNull Listener listener) {
+        this(name, listener, 1, TimeUnit.SECONDS, 512);
+    }
+
+    /**
+     * Create an interaction expirer.
+     *
+     * @param name Name of the worker thread
+     * @param listener Receiver of every expired batch
+     * @param tick Duration of a wheel tick, the precision of expiry
+     * @param unit Time unit of the tick duration
+     * @param buckets Number of wheel buckets, rounded up to a power of two
+     */
+    public InteractionExpirer(@NotNull String name,
+                              @NotNull Listener listener,
+                              long tick,
+                              @NotNull TimeUnit unit,
+                              int buckets) {
+        if(tick <= 0) throw new IllegalArgumentException("Expirer tick must be positive");
+        if(buckets <= 0 || buckets > (1 << 20)) throw new IllegalArgumentException("Expirer bucket count must be within 1 and 2^20");
+
+        this.name = name;
+        this.listener = listener;
+        this.tickNanos = unit.toNanos(tick);
+        this.wheel = new Bucket[Integer.highestOneBit(buckets * 2 - 1)];
+
+        for(int i = 0; i < wheel.length; i++) wheel[i] = new Bucket();
+    }
+
+    /**
+     * Schedule an interaction to expire.
+     *
+     * @param eventID The event ID that the interaction is registered with
+     * @param payload The interaction payload
+     * @param delayMillis Time to live of this interaction in milliseconds
+     * @return The timeout handle to cancel this expiry
+     */
+    public @NotNull Timeout schedule(long eventID, @NotNull Interaction payload, long delayMillis) {
+        Timeout timeout = new Timeout(this, eventID, payload,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+
+        pending.add(timeout);
+
+        if(state.get() == STOPPED && state.compareAndSet(STOPPED, STARTED)) start();
+
+        return timeout;
+    }
+
+    private void start() {
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Worker loop, runs until no timeout is left to process.
+     */
+    private void run() {
+        final long startTime = System.nanoTime();
+        long tick = 0;
+
+        while(true) {
+            long deadline = startTime + (tick + 1) * tickNanos;
+            long sleep;
+            while((sleep = deadline - System.nanoTime()) > 0) LockSupport.parkNanos(this, sleep);
+
+            unlinkCancelled();
+            transferPending(startTime, tick);
+
+            List<Timeout> expired = expireBucket(wheel[(int) (tick & (wheel.length - 1))], deadline);
+
+            if(expired != null) {
+                try { listener.onExpired(expired); }
+                catch (RuntimeException ex) {
+                    Thread.currentThread().getUncaughtExceptionHandler()
+                            .uncaughtException(Thread.currentThread(), ex);
+                }
+            }
+
+            tick++;
+
+            if(scheduled == 0 && pending.isEmpty()) {
+                state.set(STOPPED);
+                // A timeout may have been queued after the empty check but before the stop
+                if(pending.isEmpty() || !state.compareAndSet(STOPPED, STARTED)) return;
+            }
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while((timeout = cancelled.poll()) != null) {
+            if(timeout.bucket != null) {
+                timeout.bucket.unlink(timeout);
+                scheduled--;
+            }
+        }
+    }
+
+    private void transferPending(long startTime, long currentTick) {
+        Timeout timeout;
+        while((timeout = pending.poll()) != null) {
+            if(timeout.isCancelled()) continue;
+
+            // Never schedule into the past, an overdue timeout expires on this tick
+            long ticks = Math.max(currentTick, (timeout.deadline - startTime) / tickNanos);
+
+            timeout.rounds = (ticks - currentTick) / wheel.length;
+            wheel[(int) (ticks & (wheel.length - 1))].link(timeout);
+            scheduled++;
+        }
+    }
+
+    private @Nullable List<Timeout> expireBucket(@NotNull Bucket bucket, long deadline) {
+        List<Timeout> expired = null;
+
+        Timeout timeout = bucket.head;
+        while(timeout != null) {
+            Timeout next = timeout.next;
+
+            if(timeout.rounds <= 0 && timeout.deadline <= deadline) {
+                bucket.unlink(timeout);
+                scheduled--;
+
+                if(timeout.expire()) {
+                    if(expired == null) expired = new ArrayList<>();
+                    expired.add(timeout);
+                }
+            }
+            else timeout.rounds--;
+
+            timeout = next;
+        }
+
+        return expired;
+    }
+
+    /**
+     * A scheduled interaction expiry.
+     *
+     * @see #cancel()
+     */
+    public static final class Timeout {
+        private static final int WAITING = 0, CANCELLED = 1, EXPIRED = 2;
+
+        private final InteractionExpirer expirer;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        /**
+         * The event ID that the interaction is registered with
+         */
+        public final long eventID;
+
+        /**
+         * Monotonic deadline of this timeout in nanoseconds
+         */
+        private final long deadline;
+
+        /**
+         * The interaction payload, cleared on cancellation
+         */
+        private volatile Interaction payload;
+
+        // Wheel state, only touched by the worker thread
+        private long rounds;
+        private Bucket bucket;
+        private Timeout next, prev;
+
+        private Timeout(@NotNull InteractionExpirer expirer, long eventID, @NotNull Interaction payload, long deadline) {
+            this.expirer = expirer;
+            this.eventID = eventID;
+            this.payload = payload;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Get the interaction payload of this timeout.
+         *
+         * @return The payload, {@code null} if this timeout is cancelled
+         */
+        public @Nullable Interaction getPayload() {
+            return payload;
+        }
+
+        /**
+         * Get the remaining time until this timeout expires.
+         *
+         * @return Remaining milliseconds, zero or negative if already due
+         */
+        public long getRemainingMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+
+        /**
+         * Cancel this timeout, releasing its payload.
+         *
+         * @return True if this call cancelled it, false if it already expired or cancelled
+         */
+        public boolean cancel() {
+            if(!state.compareAndSet(WAITING, CANCELLED)) return false;
+            this.payload = null;
+            expirer.cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * Check if this timeout has been cancelled.
+         *
+         * @return True if cancelled
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * Check if this timeout has expired, its listener being called or about to be.
+         *
+         * @return True if expired
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private boolean expire() {
+            return state.compareAndSet(WAITING, EXPIRED);
+        }
+    }
+
+    /**
+     * A wheel bucket as doubly linked list of timeouts.
+     */
+    private static final class Bucket {
+        private Timeout head, tail;
+
+        private void link(@NotNull Timeout timeout) {
+            timeout.bucket = this;
+            if(tail == null) head = tail = timeout;
+            else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void unlink(@NotNull Timeout timeout) {
+            if(timeout.prev != null) timeout.prev.next = timeout.next;
+            else head = timeout.next;
+
+            if(timeout.next != null) timeout.next.prev = timeout.prev;
+            else tail = timeout.prev;
+
+            timeout.next = timeout.prev = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+/**
+ * Append-only, memory-mapped journal of registered interactions, so they survive a restart or reload.
+ *
+ * <p>Every registered interaction is appended as a record encoded by its {@link InteractionCodec},
+ * along with its wall-clock expiry time. Removals are appended as tombstones.
+ * On {@link #open(Path, InteractionCodec[]) open}, the file is scanned once to index the latest
+ * record of every event, skipping expired ones; {@link #replay(Replay)} then decodes only what is live.</p>
+ *
+ * <p>The journal grows until {@link #maintain(LongPredicate)} finds that most of it is garbage,
+ * then it is compacted into a new file which atomically replaces the old one.</p>
+ *
+ * <p>Record layout: {@code [int length][byte op][long eventID]} followed by
+ * {@code [long expiresAt][byte idLength][codec ID][payload]} for a put record.
+ * A record length is written last, so a torn write ends the journal at the last complete record.</p>
+ *
+ * <p>Once {@link #close() closed}, the journal is unmapped and every write is rejected with an {@link IOException},
+ * so a writer still holding a closed journal never writes past the end of the truncated file.</p>
+ *
+ * @see #open(Path, InteractionCodec[])
+ * @see #replay(Replay)
+ */
+public class InteractionJournal implements Closeable {
+
+    /**
+     * Consumer of every live interaction on replay.
+     */
+    @FunctionalInterface
+    public interface Replay {
+        /**
+         * Accept a live interaction.
+         *
+         * @param eventID The event ID that the interaction is registered with
+         * @param payload The decoded interaction
+         * @param expiresAt Wall-clock expiry time in epoch milliseconds
+         */
+        void accept(long eventID, @NotNull Interaction payload, long expiresAt);
+    }
+
+    private static final int MAGIC = 0x42544a31; // "BTJ1"
+    private static final int HEADER = 8;
+    private static final byte PUT = 1, REMOVE = 2;
+    private static final int MAP_CHUNK = 1 << 20;
+    private static final long MAINTENANCE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final Path path;
+    private final CodecRegistry codecs;
+
+    /**
+     * The latest live record of every event
+     */
+    private final ConcurrentLongMap<Record> index = new ConcurrentLongMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private long liveBytes;
+    private long lastMaintenance;
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    /**
+     * Whether the file is released, either closed or failed to re-open after a compaction
+     */
+    private boolean closed;
+
+    /**
+     * Position and expiry of an indexed record
+     */
+    private record Record(int position, int length, long expiresAt) {}
+
+    private InteractionJournal(@NotNull Path path, @NotNull InteractionCodec<?>[] codecs) {
+        this.path = path;
+        this.codecs = new CodecRegistry(codecs);
+    }
+
+    /**
+     * Open a journal, creating the file if it does not exist.
+     *
+     * @param path The journal file
+     * @param codecs Codecs of every interaction type to persist,
+     *               interactions of other types are kept in memory only
+     * @return The opened journal, indexed and ready to {@link #replay(Replay)}
+     * @throws IOException If the file cannot be opened or is not a journal
+     */
+    public static @NotNull InteractionJournal open(@NotNull Path path, @NotNull InteractionCodec<?>... codecs) throws IOException {
+        InteractionJournal journal = new InteractionJournal(path, codecs);
+        journal.load();
+        return journal;
+    }
+
+    private void load() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if(parent != null) Files.createDirectories(parent);
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+
+        if(size > Integer.MAX_VALUE - MAP_CHUNK) throw new IOException("Interaction journal is too large: " + path);
+
+        map(Math.max(size, MAP_CHUNK));
+
+        if(size < HEADER || buffer.getInt(0) == 0) {
+            buffer.putInt(0, MAGIC).putInt(4, 0);
+            position = HEADER;
+            return;
+        }
+        if(buffer.getInt(0) != MAGIC) throw new IOException("File is not an interaction journal: " + path);
+
+        long now = System.currentTimeMillis();
+        int pos = HEADER;
+
+        while(pos + 4 <= buffer.limit()) {
+            int length = buffer.getInt(pos);
+            if(length <= 0 || pos + 4 + length > buffer.limit()) break;
+
+            byte op = buffer.get(pos + 4);
+            long eventID = buffer.getLong(pos + 5);
+
+            Record previous;
+            if(op == PUT) {
+                long expiresAt = buffer.getLong(pos + 13);
+                previous = expiresAt > now
+                        ? index.put(eventID, new Record(pos, 4 + length, expiresAt))
+                        : index.remove(eventID);
+                if(expiresAt > now) liveBytes += 4 + length;
+            }
+            else previous = index.remove(eventID);
+
+            if(previous != null) liveBytes -= previous.length();
+            pos += 4 + length;
+        }
+
+        position = pos;
+        lastMaintenance = now;
+    }
+
+    private void map(long capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void ensureCapacity(int required) throws IOException {
+        if(required <= buffer.capacity()) return;
+
+        long capacity = buffer.capacity();
+        while(capacity < required) capacity += Math.min(capacity, 64L * MAP_CHUNK);
+
+        if(capacity > Integer.MAX_VALUE) throw new IOException("Interaction journal is too large: " + path);
+        map(capacity);
+    }
+
+    private void ensureOpen() throws IOException {
+        if(closed) throw new IOException("Interaction journal is closed: " + path);
+    }
+
+    /**
+     * Decode every live, unexpired interaction of this journal.
+     *
+     * <p>A record that its codec fails to decode is skipped, the other records are still replayed.</p>
+     *
+     * @param consumer The consumer of every live interaction
+     * @throws IllegalStateException If this journal is closed
+     */
+    public synchronized void replay(@NotNull Replay consumer) {
+        if(closed) throw new IllegalStateException("Interaction journal is closed: " + path);
+        long now = System.currentTimeMillis();
+
+        index.forEach((eventID, record) -> {
+            if(record.expiresAt() <= now) return;
+
+            Interaction payload = decode(record);
+            if(payload != null) consumer.accept(eventID, payload, record.expiresAt());
+        });
+    }
+
+    private @Nullable Interaction decode(@NotNull Record record) {
+        int start = record.position() + 4 + 1 + 8 + 8;
+        int end = record.position() + record.length();
+        try {
+            return codecs.decode(buffer.slice(start, end - start).asReadOnlyBuffer());
+        }
+        catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Append an interaction to this journal.
+     *
+     * @param eventID The event ID that the interaction is registered with
+     * @param payload The interaction payload
+     * @param expiresAt Wall-clock expiry time in epoch milliseconds
+     * @return False if the interaction type has no codec and is not persisted
+     * @throws IOException If the journal is closed or cannot grow
+     */
+    public synchronized boolean put(long eventID, @NotNull Interaction payload, long expiresAt) throws IOException {
+        ensureOpen();
+        if(!codecs.supports(payload.getClass())) return false;
+
+        while(true) {
+            try {
+                scratch.clear();
+                scratch.put(PUT).putLong(eventID).putLong(expiresAt);
+                codecs.encode(payload, scratch);
+                break;
+            }
+            catch (BufferOverflowException ex) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+        scratch.flip();
+
+        Record record = new Record(position, 4 + scratch.remaining(), expiresAt);
+        append(scratch);
+
+        Record previous = index.put(eventID, record);
+        liveBytes += record.length();
+        if(previous != null) liveBytes -= previous.length();
+
+        return true;
+    }
+
+    /**
+     * Append a removal of an interaction to this journal.
+     *
+     * @param eventID The event ID to remove
+     * @throws IOException If the journal is closed or cannot grow
+     */
+    public synchronized void remove(long eventID) throws IOException {
+        ensureOpen();
+        Record previous = index.remove(eventID);
+        if(previous == null) return;
+
+        liveBytes -= previous.length();
+
+        scratch.clear();
+        scratch.put(REMOVE).putLong(eventID).flip();
+        append(scratch);
+    }
+
+    private void append(@NotNull ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        ensureCapacity(position + 4 + length + 4);
+
+        buffer.put(position + 4, record, 0, length);
+        buffer.putInt(position + 4 + length, 0);
+        buffer.putInt(position, length);
+
+        position += 4 + length;
+    }
+
+    /**
+     * Drop every record of this journal.
+     * The file is not shrunk, stale bytes after the first empty record are never read.
+     *
+     * @throws IOException If the journal is closed
+     */
+    public synchronized void clear() throws IOException {
+        ensureOpen();
+        index.clear();
+        liveBytes = 0;
+        position = HEADER;
+        buffer.putInt(HEADER, 0);
+    }
+
+    /**
+     * Periodic maintenance, rate limited to once a minute.
+     *
+     * <p>Drops expired and no longer live records from the index, then {@link #compact() compacts}
+     * the journal if the garbage exceeds the live records and is at least a mapped chunk.</p>
+     *
+     * @param live Predicate testing if an event is still registered in memory
+     * @throws IOException If the journal is closed or the compaction failed
+     */
+    public synchronized void maintain(@NotNull LongPredicate live) throws IOException {
+        ensureOpen();
+        long now = System.currentTimeMillis();
+        if(now - lastMaintenance < MAINTENANCE_INTERVAL) return;
+        lastMaintenance = now;
+
+        ConcurrentLongMap<Record> dead = new ConcurrentLongMap<>(1);
+        index.forEach((eventID, record) -> {
+            if(record.expiresAt() <= now || !live.test(eventID)) dead.put(eventID, record);
+        });
+        dead.forEach((eventID, record) -> {
+            if(index.remove(eventID, record)) liveBytes -= record.length();
+        });
+
+        long garbage = position - HEADER - liveBytes;
+        if(garbage >= MAP_CHUNK && garbage > liveBytes) compact();
+    }
+
+    /**
+     * Rewrite every live record into a new file and atomically replace this journal with it.
+     *
+     * <p>The journal is flushed and unmapped before the replacement, then re-opened from the
+     * compacted file. If the replacement fails, it is re-opened from the untouched file instead;
+     * if it cannot be re-opened at all, the journal stays closed.</p>
+     *
+     * @throws IOException If the journal is closed or the new journal cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        Path temp = path.resolveSibling(path.getFileName() + ".compact");
+
+        try(FileChannel out = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(0).flip();
+            while(header.hasRemaining()) out.write(header);
+
+            IOException[] failure = { null };
+
+            // Live records are copied raw, no codec involved
+            index.forEach((eventID, record) -> {
+                if(failure[0] != null) return;
+                try {
+                    ByteBuffer raw = buffer.slice(record.position(), record.length());
+                    while(raw.hasRemaining()) out.write(raw);
+                }
+                catch (IOException ex) { failure[0] = ex; }
+            });
+
+            if(failure[0] != null) throw failure[0];
+            out.force(true);
+        }
+
+        // Release the live file first, platforms that lock open or mapped files refuse to replace it
+        buffer.force();
+        channel.close();
+        buffer = null;
+        index.clear();
+        liveBytes = 0;
+        closed = true;
+
+        try { Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+        finally {
+            // Re-index from the compacted file, or the untouched journal if it could not be replaced.
+            // A scan is cheaper than tracking moved positions
+            load();
+            closed = false;
+        }
+    }
+
+    /**
+     * Flush the mapped journal to storage and close it, every later write is rejected.
+     *
+     * @throws IOException If the file cannot be flushed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) return;
+        closed = true;
+
+        buffer.force();
+        buffer = null;
+        index.clear();
+
+        // Trim the unused mapped tail, not possible on platforms that lock mapped files
+        try { channel.truncate(position); }
+        catch (IOException ignored) {}
+
+        channel.close();
+    }
+}
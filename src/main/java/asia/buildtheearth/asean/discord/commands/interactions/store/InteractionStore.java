@@ -0,0 +1,94 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * Storage SPI of the runtime interactions behind
+ * {@link asia.buildtheearth.asean.discord.commands.interactions.InteractionEvent InteractionEvent}.
+ *
+ * <p>Implementations must be thread-safe, they are written from JDA event threads
+ * and expire interactions on their own thread.</p>
+ *
+ * @see InteractionCache In-process implementation
+ * @see SharedInteractionStore Implementation shared by multiple servers
+ */
+public interface InteractionStore extends Closeable {
+
+    /**
+     * Receiver of interactions removed without being handled.
+     */
+    @FunctionalInterface
+    interface RemovalListener {
+        /**
+         * Called with a batch of interactions removed for the same cause.
+         *
+         * @param interactions The removed interactions, never empty
+         * @param cause Why these interactions are removed
+         */
+        void onRemoval(@NotNull List<Interaction> interactions, @NotNull RemovalCause cause);
+    }
+
+    /**
+     * Set the receiver of interactions removed by this store.
+     * Called once by the owner of this store before it is used.
+     *
+     * @param listener The removal listener
+     */
+    void setRemovalListener(@NotNull RemovalListener listener);
+
+    /**
+     * Get an interaction by its event ID.
+     *
+     * @param eventID The event ID to look up
+     * @return The interaction, {@code null} if absent
+     */
+    @Nullable Interaction get(long eventID);
+
+    /**
+     * Check if an interaction is stored, without counting as an access.
+     *
+     * @param eventID The event ID to look up
+     * @return True if stored
+     */
+    boolean contains(long eventID);
+
+    /**
+     * Store an interaction, replacing any previous one of the same event ID.
+     *
+     * @param eventID The event ID to store with
+     * @param payload The interaction payload
+     * @param ttlMillis Time to live of the interaction in milliseconds
+     */
+    void put(long eventID, @NotNull Interaction payload, long ttlMillis);
+
+    /**
+     * Remove an interaction by its event ID.
+     *
+     * @param eventID The event ID to remove
+     * @return The removed interaction if it was known to this store, otherwise {@code null}
+     */
+    @Nullable Interaction remove(long eventID);
+
+    /**
+     * Remove every interaction of this store.
+     */
+    void clear();
+
+    /**
+     * Count the interactions of this store.
+     *
+     * @return The estimated number of interactions
+     */
+    int size();
+
+    /**
+     * Release any resource of this store. The default implementation does nothing.
+     */
+    @Override
+    default void close() {}
+}
@@ -0,0 +1,30 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Calculates the weight of an interaction for a bounded {@link InteractionCache}.
+ *
+ * <p>The weight is calculated once when the interaction is registered, it should be
+ * proportional to the memory the payload retains (e.g. collection sizes of a subclass).</p>
+ *
+ * @see #SINGLETON
+ */
+@FunctionalInterface
+public interface InteractionWeigher {
+
+    /**
+     * Weigh every interaction as {@code 1}, bounding the cache by entry count.
+     */
+    InteractionWeigher SINGLETON = (eventID, payload) -> 1;
+
+    /**
+     * Calculate the weight of an interaction.
+     *
+     * @param eventID The event ID that the interaction is registered with
+     * @param payload The interaction payload
+     * @return The weight of this interaction, must not be negative
+     */
+    int weigh(long eventID, @NotNull Interaction payload);
+}
@@ -0,0 +1,13 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+/**
+ * The reason an interaction is removed without being handled.
+ *
+ * @see InteractionCache.RemovalListener
+ */
+public enum RemovalCause {
+    /** The interaction outlived its time to live */
+    EXPIRED,
+    /** The interaction is evicted to keep the cache within its maximum weight */
+    EVICTED
+}
@@ -0,0 +1,273 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Minimal interaction server shared by every {@link SharedInteractionStore} of a network.
+ *
+ * <p>Interactions are kept as opaque encoded bytes with their expiry, so the server needs no codec
+ * and can run in any process: one of the servers, the proxy, or standalone with {@link #main(String[])}.
+ * Each connection is served by its own virtual thread. Replies and invalidations are buffered per
+ * connection and flushed once the requesting connection has no more buffered frames,
+ * so a batch of writes from one server reaches every other server as a single write.</p>
+ *
+ * <p>Usage:</p>
+ * <blockquote>{@snippet :
+ * SharedInteractionServer server = SharedInteractionServer.start(
+ *     UnixDomainSocketAddress.of("/run/bte/interactions.sock")
+ * );
+ * }</blockquote>
+ */
+public class SharedInteractionServer implements Closeable {
+
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private final ServerSocketChannel server;
+    private final SocketAddress address;
+    private final ConcurrentLongMap<Entry> entries = new ConcurrentLongMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private final Thread sweeper;
+
+    /**
+     * A stored interaction, encoded by the store that registered it
+     */
+    private record Entry(long expiresAt, byte[] payload) {}
+
+    private SharedInteractionServer(@NotNull ServerSocketChannel server, @NotNull SocketAddress address) {
+        this.server = server;
+        this.address = address;
+        this.acceptor = Thread.ofPlatform().daemon().name("shared-interaction-acceptor").unstarted(this::runAcceptor);
+        this.sweeper = Thread.ofVirtual().name("shared-interaction-sweeper").unstarted(this::runSweeper);
+    }
+
+    /**
+     * Start a server listening on an address.
+     * A stale Unix domain socket file left by a previous server is replaced.
+     *
+     * @param address A Unix domain socket or TCP address
+     * @return The started server
+     * @throws IOException If the address cannot be bound
+     */
+    public static @NotNull SharedInteractionServer start(@NotNull SocketAddress address) throws IOException {
+        if(address instanceof UnixDomainSocketAddress unix) Files.deleteIfExists(unix.getPath());
+
+        ServerSocketChannel channel = address instanceof UnixDomainSocketAddress
+            ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+            : ServerSocketChannel.open();
+        channel.bind(address);
+
+        SharedInteractionServer server = new SharedInteractionServer(channel, address);
+        server.acceptor.start();
+        server.sweeper.start();
+        return server;
+    }
+
+    /**
+     * Run a standalone server until the process is stopped.
+     *
+     * @param args Either a Unix domain socket path, or {@code host:port}
+     * @throws IOException If the address cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1) {
+            System.err.println("Usage: SharedInteractionServer <socket path | host:port>");
+            return;
+        }
+
+        String target = args[0];
+        int port = target.lastIndexOf(':');
+        SocketAddress address = port > 0
+            ? new InetSocketAddress(target.substring(0, port), Integer.parseInt(target.substring(port + 1)))
+            : UnixDomainSocketAddress.of(Path.of(target));
+
+        SharedInteractionServer server = start(address);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Shared interaction server listening on " + address);
+
+        try { server.acceptor.join(); }
+        catch (InterruptedException ignored) {}
+    }
+
+    /**
+     * Count the interactions stored by this server, including expired ones not swept yet.
+     *
+     * @return The estimated number of interactions
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stop this server and close every connection.
+     */
+    @Override
+    public void close() {
+        try { server.close(); }
+        catch (IOException ignored) {}
+
+        sweeper.interrupt();
+        connections.forEach(Connection::close);
+
+        if(address instanceof UnixDomainSocketAddress unix) {
+            try { Files.deleteIfExists(unix.getPath()); }
+            catch (IOException ignored) {}
+        }
+    }
+
+    private void runAcceptor() {
+        while(server.isOpen()) {
+            try {
+                Connection connection = new Connection(server.accept());
+                connections.add(connection);
+
+                // Accepted while closing, after the open connections were closed
+                if(!server.isOpen()) {
+                    connection.close();
+                    return;
+                }
+                Thread.ofVirtual().name("shared-interaction-connection").start(connection::run);
+            }
+            catch (IOException ex) {
+                if(!server.isOpen()) return;
+            }
+        }
+    }
+
+    private void runSweeper() {
+        while(true) {
+            try { Thread.sleep(SWEEP_INTERVAL); }
+            catch (InterruptedException ex) { return; }
+
+            long now = System.currentTimeMillis();
+            entries.forEach((eventID, entry) -> {
+                if(entry.expiresAt() <= now) entries.remove(eventID, entry);
+            });
+        }
+    }
+
+    /**
+     * A connected store, with its buffered outgoing frames.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final List<ByteBuffer> outgoing = new ArrayList<>();
+
+        // Not synchronized, so that a blocking write does not pin the virtual thread carrier
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Connection(@NotNull SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void run() {
+            StoreProtocol.FrameReader reader = new StoreProtocol.FrameReader(channel);
+
+            try {
+                ByteBuffer frame;
+                while((frame = reader.next()) != null) {
+                    switch (frame.get()) {
+                        case StoreProtocol.PUT -> {
+                            long eventID = frame.getLong();
+                            long expiresAt = frame.getLong();
+                            byte[] payload = new byte[frame.remaining()];
+                            frame.get(payload);
+
+                            entries.put(eventID, new Entry(expiresAt, payload));
+                            invalidate(eventID);
+                        }
+                        case StoreProtocol.REMOVE -> {
+                            long eventID = frame.getLong();
+                            if(entries.remove(eventID) != null) invalidate(eventID);
+                        }
+                        case StoreProtocol.GET -> enqueue(result(frame));
+                        default -> throw new IOException("Unknown frame from a shared interaction store");
+                    }
+
+                    if(!reader.hasFrame()) connections.forEach(Connection::flush);
+                }
+            }
+            catch (IOException ignored) {}
+            finally { close(); }
+        }
+
+        private @NotNull ByteBuffer result(@NotNull ByteBuffer request) {
+            int requestID = request.getInt();
+            int count = request.getInt();
+            long now = System.currentTimeMillis();
+
+            Entry[] found = new Entry[count];
+            int length = 4 + 1 + 4 + 4;
+
+            for(int i = 0; i < count; i++) {
+                Entry entry = entries.get(request.getLong());
+                if(entry != null && entry.expiresAt() > now) {
+                    found[i] = entry;
+                    length += entry.payload().length;
+                }
+                length += 8 + 4;
+            }
+
+            ByteBuffer frame = ByteBuffer.allocate(length);
+            frame.putInt(length - 4).put(StoreProtocol.RESULT).putInt(requestID).putInt(count);
+
+            for(Entry entry : found) {
+                if(entry == null) frame.putLong(0).putInt(-1);
+                else frame.putLong(entry.expiresAt()).putInt(entry.payload().length).put(entry.payload());
+            }
+            return frame.flip();
+        }
+
+        /**
+         * Tell every other connection to drop its near-cached copy of an event.
+         */
+        private void invalidate(long eventID) {
+            for(Connection connection : connections)
+                if(connection != this) connection.enqueue(StoreProtocol.event(StoreProtocol.INVALIDATE, eventID));
+        }
+
+        private void enqueue(@NotNull ByteBuffer frame) {
+            lock.lock();
+            try { outgoing.add(frame); }
+            finally { lock.unlock(); }
+        }
+
+        private void flush() {
+            lock.lock();
+            try {
+                if(!outgoing.isEmpty()) StoreProtocol.writeFully(channel, outgoing.toArray(new ByteBuffer[0]));
+            }
+            catch (IOException ex) {
+                close();
+            }
+            finally {
+                outgoing.clear();
+                lock.unlock();
+            }
+        }
+
+        private void close() {
+            connections.remove(this);
+            try { channel.close(); }
+            catch (IOException ignored) {}
+        }
+    }
+}
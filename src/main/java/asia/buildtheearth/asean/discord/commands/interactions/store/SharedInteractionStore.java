@@ -0,0 +1,478 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Interaction storage shared by every server of a network through a {@link SharedInteractionServer}.
+ *
+ * <p>Interactions registered by this server are kept in a local {@link InteractionCache},
+ * which also expires them and reports their timeout to this server only.
+ * Interactions fetched from other servers are kept in a bounded near-cache until they expire
+ * or are invalidated by the shared server, so repeated lookups never leave the process.</p>
+ *
+ * <p>Writes are queued and a single writer thread sends every queued frame in one gathering write.
+ * Lookups that miss both caches are coalesced the same way: concurrent lookups of the same event
+ * share one request, and every pending lookup is sent as a single batch.
+ * A lookup waits at most its read timeout, then reports the interaction as absent.</p>
+ *
+ * <p>{@link #get(long)} never waits for the shared server by default, it is called from JDA event threads.
+ * A miss starts the lookup in the background and reports the interaction as absent,
+ * later gets are then served from the near-cache.
+ * Use {@link #lookup(long)} to wait for a remote interaction without blocking,
+ * or {@link #setBlockingLookups(boolean)} when gets are made off the event threads,
+ * such as by handlers run on an
+ * {@link asia.buildtheearth.asean.discord.commands.interactions.InteractionExecutor InteractionExecutor}.</p>
+ *
+ * <p>When the shared server is unreachable this store keeps working with its local cache,
+ * reconnecting in the background and re-sending every local interaction once reconnected,
+ * along with every removal made while disconnected.</p>
+ *
+ * <p>Usage:</p>
+ * <blockquote>{@snippet :
+ * SharedInteractionStore store = new SharedInteractionStore(
+ *     "my-plugin",
+ *     UnixDomainSocketAddress.of("/run/bte/interactions.sock"),
+ *     InteractionCodec.BASE, PlotInteraction.CODEC
+ * );
+ * }</blockquote>
+ *
+ * @see SharedInteractionServer
+ */
+public class SharedInteractionStore implements InteractionStore {
+
+    /**
+     * Default duration a remote lookup may wait for the shared server.
+     */
+    public static final long DEFAULT_READ_TIMEOUT = 50;
+
+    /**
+     * Default maximum number of interactions fetched from other servers kept in memory.
+     */
+    public static final long DEFAULT_NEAR_CACHE_SIZE = 10_000;
+
+    private static final long RECONNECT_DELAY = TimeUnit.SECONDS.toNanos(5);
+
+    private final String name;
+    private final SocketAddress address;
+    private final CodecRegistry codecs;
+    private final InteractionCache local;
+    private final InteractionCache near;
+    private final long readTimeout;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> writes = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Lookup> lookups = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLongMap<Lookup> inflight = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<Request> requests = new ConcurrentLongMap<>();
+    private final Thread writer;
+
+    private volatile @Nullable SocketChannel channel;
+    private volatile boolean closed;
+    private volatile boolean blockingLookups;
+    private int nextRequest;
+
+    /**
+     * Create a shared store with the default read timeout and near-cache size.
+     *
+     * @param name Name of this store threads
+     * @param address Address of the {@link SharedInteractionServer}, a Unix domain socket or TCP address
+     * @param codecs Codecs of every interaction type to share,
+     *               interactions of other types are only stored locally
+     */
+    public SharedInteractionStore(@NotNull String name, @NotNull SocketAddress address, @NotNull InteractionCodec<?>... codecs) {
+        this(name, address, DEFAULT_READ_TIMEOUT, DEFAULT_NEAR_CACHE_SIZE, codecs);
+    }
+
+    /**
+     * Create a shared store.
+     *
+     * @param name Name of this store threads
+     * @param address Address of the {@link SharedInteractionServer}, a Unix domain socket or TCP address
+     * @param readTimeout Maximum milliseconds a remote lookup may wait
+     * @param nearCacheSize Maximum number of interactions fetched from other servers kept in memory
+     * @param codecs Codecs of every interaction type to share,
+     *               interactions of other types are only stored locally
+     */
+    public SharedInteractionStore(@NotNull String name,
+                                  @NotNull SocketAddress address,
+                                  long readTimeout,
+                                  long nearCacheSize,
+                                  @NotNull InteractionCodec<?>... codecs) {
+        if(readTimeout <= 0) throw new IllegalArgumentException("Read timeout must be positive");
+
+        this.name = name;
+        this.address = address;
+        this.codecs = new CodecRegistry(codecs);
+        this.local = new InteractionCache(name + "-expirer");
+        this.near = new InteractionCache(name + "-near-expirer", nearCacheSize, InteractionWeigher.SINGLETON);
+        this.readTimeout = readTimeout;
+
+        this.writer = new Thread(this::runWriter, name + "-store-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void setRemovalListener(@NotNull RemovalListener listener) {
+        local.setRemovalListener(listener);
+    }
+
+    /**
+     * Make {@link #get(long)} wait up to the read timeout for interactions of other servers.
+     * Disabled by default, only enable it when gets are never made from JDA event threads.
+     *
+     * @param blocking True to wait for remote lookups in {@link #get(long)}
+     */
+    public void setBlockingLookups(boolean blocking) {
+        this.blockingLookups = blocking;
+    }
+
+    /**
+     * Get an interaction by its event ID.
+     *
+     * <p>Without {@linkplain #setBlockingLookups(boolean) blocking lookups},
+     * an interaction missing from both caches is looked up in the background and reported absent.</p>
+     *
+     * @param eventID The event ID to look up
+     * @return The interaction, {@code null} if absent or not fetched yet
+     */
+    @Override
+    public @Nullable Interaction get(long eventID) {
+        Interaction payload = local.get(eventID);
+        if(payload == null) payload = near.get(eventID);
+        if(payload != null || channel == null) return payload;
+
+        if(!blockingLookups) {
+            request(eventID);
+            return null;
+        }
+
+        try {
+            return lookup(eventID).get();
+        }
+        catch (ExecutionException ex) {
+            return null;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Look up an interaction by its event ID, fetching it from the shared server if missing from both caches.
+     *
+     * @param eventID The event ID to look up
+     * @return Future completed with the interaction, with {@code null} if absent
+     *         or not received within the read timeout
+     */
+    public @NotNull CompletableFuture<@Nullable Interaction> lookup(long eventID) {
+        Interaction payload = local.get(eventID);
+        if(payload == null) payload = near.get(eventID);
+        if(payload != null || channel == null) return CompletableFuture.completedFuture(payload);
+
+        Lookup lookup = request(eventID);
+        return lookup.copy().completeOnTimeout(null, readTimeout, TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+            // A lookup left unanswered would otherwise be shared by every later lookup
+            if(!lookup.isDone()) inflight.remove(eventID, lookup);
+        });
+    }
+
+    /**
+     * Start a remote lookup, or join the one in flight for the same event.
+     *
+     * @param eventID The event ID to look up
+     * @return The pending lookup
+     */
+    private @NotNull Lookup request(long eventID) {
+        Lookup lookup = new Lookup(eventID);
+        Lookup existing = inflight.putIfAbsent(eventID, lookup);
+        if(existing != null) return existing;
+
+        lookups.add(lookup);
+        LockSupport.unpark(writer);
+        return lookup;
+    }
+
+    @Override
+    public boolean contains(long eventID) {
+        return local.contains(eventID) || near.contains(eventID);
+    }
+
+    @Override
+    public void put(long eventID, @NotNull Interaction payload, long ttlMillis) {
+        local.put(eventID, payload, ttlMillis);
+        near.remove(eventID);
+
+        ByteBuffer frame = StoreProtocol.put(codecs, eventID, payload, System.currentTimeMillis() + ttlMillis);
+        if(frame != null) send(frame);
+    }
+
+    @Override
+    public @Nullable Interaction remove(long eventID) {
+        Interaction removed = local.remove(eventID);
+        Interaction fetched = near.remove(eventID);
+
+        send(StoreProtocol.event(StoreProtocol.REMOVE, eventID));
+        return removed != null? removed : fetched;
+    }
+
+    /**
+     * Remove every interaction registered by this server,
+     * interactions registered by other servers are only dropped from the near-cache.
+     */
+    @Override
+    public void clear() {
+        local.forEach((eventID, payload, expiresAt) -> writes.add(StoreProtocol.event(StoreProtocol.REMOVE, eventID)));
+        LockSupport.unpark(writer);
+
+        local.clear();
+        near.clear();
+    }
+
+    /**
+     * Count the interactions registered by this server.
+     *
+     * @return The estimated number of local interactions
+     */
+    @Override
+    public int size() {
+        return local.size();
+    }
+
+    /**
+     * Check if this store is currently connected to its shared server.
+     *
+     * @return True if connected
+     */
+    public boolean isConnected() {
+        return channel != null;
+    }
+
+    /**
+     * Close the connection to the shared server, queued writes that are not sent yet are discarded.
+     * Local interactions stay readable.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+
+        SocketChannel current = channel;
+        if(current != null) disconnect(current);
+    }
+
+    private void send(@NotNull ByteBuffer frame) {
+        if(closed) return;
+
+        writes.add(frame);
+        LockSupport.unpark(writer);
+    }
+
+    private void runWriter() {
+        List<ByteBuffer> batch = new ArrayList<>();
+
+        while(!closed) {
+            SocketChannel current = channel;
+
+            if(current == null) {
+                current = connect();
+                if(current == null) {
+                    dropShared();
+                    LockSupport.parkNanos(this, RECONNECT_DELAY);
+                    continue;
+                }
+            }
+
+            if(writes.isEmpty() && lookups.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            ByteBuffer frame;
+            while(batch.size() < StoreProtocol.MAX_BATCH && (frame = writes.poll()) != null) batch.add(frame);
+
+            frame = pollLookups(current);
+            if(frame != null) batch.add(frame);
+
+            try {
+                StoreProtocol.writeFully(current, batch.toArray(new ByteBuffer[0]));
+            }
+            catch (IOException ex) {
+                disconnect(current);
+            }
+            finally { batch.clear(); }
+        }
+    }
+
+    /**
+     * Drain the pending lookups into a single request frame.
+     *
+     * @param current The connection the request is sent on
+     * @return The request frame, {@code null} if no lookup is pending
+     */
+    private @Nullable ByteBuffer pollLookups(@NotNull SocketChannel current) {
+        if(lookups.isEmpty()) return null;
+
+        List<Lookup> batch = new ArrayList<>();
+        Lookup lookup;
+        while(batch.size() < StoreProtocol.MAX_BATCH && (lookup = lookups.poll()) != null) batch.add(lookup);
+
+        int requestID = nextRequest++;
+        requests.put(requestID, new Request(current, batch.toArray(new Lookup[0])));
+
+        ByteBuffer frame = ByteBuffer.allocate(4 + 1 + 4 + 4 + batch.size() * 8);
+        frame.putInt(frame.capacity() - 4).put(StoreProtocol.GET).putInt(requestID).putInt(batch.size());
+        for(Lookup pending : batch) frame.putLong(pending.eventID);
+
+        return frame.flip();
+    }
+
+    private @Nullable SocketChannel connect() {
+        SocketChannel connected;
+        try {
+            connected = SocketChannel.open(address);
+        }
+        catch (IOException ex) {
+            return null;
+        }
+
+        // Re-share the local interactions, the server may have restarted while disconnected
+        dropShared();
+        local.forEach((eventID, payload, expiresAt) -> {
+            ByteBuffer frame = StoreProtocol.put(codecs, eventID, payload, expiresAt);
+            if(frame != null) writes.add(frame);
+        });
+        near.clear();
+
+        this.channel = connected;
+
+        Thread reader = new Thread(() -> runReader(connected), name + "-store-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        return connected;
+    }
+
+    /**
+     * Drop the queued put frames, every local interaction is re-shared once reconnected.
+     * Removals are kept, the shared server may still hold the removed interactions.
+     */
+    private void dropShared() {
+        writes.removeIf(frame -> frame.get(4) != StoreProtocol.REMOVE);
+    }
+
+    /**
+     * Close a connection and fail the lookups sent on it.
+     * The reader of an old connection may only exit once a newer one is made,
+     * lookups sent on the newer connection are left pending.
+     *
+     * @param current The connection to close
+     */
+    void disconnect(@NotNull SocketChannel current) {
+        try { current.close(); }
+        catch (IOException ignored) {}
+
+        if(channel == current) channel = null;
+
+        // Fail the lookups of this connection fast, instead of waiting for their timeout.
+        // Removed one by one, the writer may be registering a request on the closed channel
+        List<Long> pending = new ArrayList<>();
+        requests.forEach((requestID, request) -> {
+            if(request.channel == current) pending.add(requestID);
+        });
+
+        for(long requestID : pending) {
+            Request request = requests.remove(requestID);
+            if(request != null) for(Lookup lookup : request.batch) complete(lookup, null);
+        }
+
+        // Lookups not sent yet go out on the next connection, unless there is none yet
+        if(channel == null) {
+            Lookup lookup;
+            while((lookup = lookups.poll()) != null) complete(lookup, null);
+        }
+
+        LockSupport.unpark(writer);
+    }
+
+    private void runReader(@NotNull SocketChannel current) {
+        StoreProtocol.FrameReader reader = new StoreProtocol.FrameReader(current);
+
+        try {
+            ByteBuffer frame;
+            while((frame = reader.next()) != null) {
+                switch (frame.get()) {
+                    case StoreProtocol.RESULT -> onResult(frame);
+                    case StoreProtocol.INVALIDATE -> {
+                        long eventID = frame.getLong();
+                        local.remove(eventID);
+                        near.remove(eventID);
+                    }
+                    default -> throw new IOException("Unknown frame from the shared interaction server");
+                }
+            }
+        }
+        catch (IOException ignored) {}
+        finally { disconnect(current); }
+    }
+
+    private void onResult(@NotNull ByteBuffer frame) {
+        Request request = requests.remove(frame.getInt());
+        Lookup[] batch = request != null? request.batch : null;
+        int count = frame.getInt();
+        long now = System.currentTimeMillis();
+
+        for(int i = 0; i < count; i++) {
+            long expiresAt = frame.getLong();
+            int length = frame.getInt();
+
+            Interaction payload = null;
+            if(length >= 0) {
+                payload = codecs.decode(frame.slice(frame.position(), length));
+                frame.position(frame.position() + length);
+            }
+
+            if(batch == null || i >= batch.length) continue;
+
+            if(payload != null && expiresAt > now) near.put(batch[i].eventID, payload, expiresAt - now);
+            else payload = null;
+
+            complete(batch[i], payload);
+        }
+    }
+
+    private void complete(@NotNull Lookup lookup, @Nullable Interaction payload) {
+        inflight.remove(lookup.eventID, lookup);
+        lookup.complete(payload);
+    }
+
+    /**
+     * A batch of lookups sent on a connection.
+     */
+    private record Request(@NotNull SocketChannel channel, @NotNull Lookup[] batch) {}
+
+    /**
+     * A pending lookup, shared by every concurrent lookup of the same event.
+     */
+    private static final class Lookup extends CompletableFuture<Interaction> {
+        private final long eventID;
+
+        private Lookup(long eventID) {
+            this.eventID = eventID;
+        }
+    }
+}
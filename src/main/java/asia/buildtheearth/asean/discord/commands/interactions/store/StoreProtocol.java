@@ -0,0 +1,153 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Wire protocol between {@link SharedInteractionStore} and {@link SharedInteractionServer}.
+ *
+ * <p>Every frame is {@code [int length][byte op][body]} where the length excludes itself:</p>
+ * <ul>
+ *     <li>{@link #PUT} {@code [long eventID][long expiresAt][encoded interaction]}</li>
+ *     <li>{@link #REMOVE} and {@link #INVALIDATE} {@code [long eventID]}</li>
+ *     <li>{@link #GET} {@code [int requestID][int count][long eventID]...}</li>
+ *     <li>{@link #RESULT} {@code [int requestID][int count]} then
+ *     {@code [long expiresAt][int length][encoded interaction]} for each requested event,
+ *     with a length of {@code -1} if absent</li>
+ * </ul>
+ *
+ * <p>The server stores encoded interactions as opaque bytes, it never needs a codec.</p>
+ */
+final class StoreProtocol {
+
+    static final byte PUT = 1, REMOVE = 2, GET = 3, RESULT = 4, INVALIDATE = 5;
+
+    /**
+     * Upper bound of a frame length, anything larger is a corrupted stream
+     */
+    static final int MAX_FRAME = 16 << 20;
+
+    /**
+     * Maximum number of event IDs in a single {@link #GET} frame
+     */
+    static final int MAX_BATCH = 1024;
+
+    private StoreProtocol() {}
+
+    /**
+     * Encode a put frame of an interaction.
+     *
+     * @param codecs The codecs to encode with
+     * @param eventID The event ID of the interaction
+     * @param payload The interaction to encode
+     * @param expiresAt Wall-clock expiry time in epoch milliseconds
+     * @return The frame ready to be written, {@code null} if the interaction has no codec
+     */
+    static @Nullable ByteBuffer put(@NotNull CodecRegistry codecs,
+                                    long eventID,
+                                    @NotNull Interaction payload,
+                                    long expiresAt) {
+        for(int capacity = 128;; capacity *= 2) {
+            try {
+                ByteBuffer frame = ByteBuffer.allocate(capacity);
+                frame.putInt(0).put(PUT).putLong(eventID).putLong(expiresAt);
+                if(!codecs.encode(payload, frame)) return null;
+
+                return frame.putInt(0, frame.position() - 4).flip();
+            }
+            catch (BufferOverflowException ignored) {
+                if(capacity >= MAX_FRAME) throw new IllegalArgumentException("Interaction is too large to be shared");
+            }
+        }
+    }
+
+    /**
+     * Encode a frame holding a single event ID.
+     *
+     * @param op Either {@link #REMOVE} or {@link #INVALIDATE}
+     * @param eventID The event ID
+     * @return The frame ready to be written
+     */
+    static @NotNull ByteBuffer event(byte op, long eventID) {
+        return ByteBuffer.allocate(4 + 1 + 8).putInt(1 + 8).put(op).putLong(eventID).flip();
+    }
+
+    /**
+     * Write every buffer fully with as few gathering writes as possible.
+     *
+     * @param channel The channel to write to
+     * @param buffers The buffers to write
+     * @throws IOException If the channel fails
+     */
+    static void writeFully(@NotNull GatheringByteChannel channel, @NotNull ByteBuffer[] buffers) throws IOException {
+        int first = 0;
+        while(first < buffers.length) {
+            channel.write(buffers, first, buffers.length - first);
+            while(first < buffers.length && !buffers[first].hasRemaining()) first++;
+        }
+    }
+
+    /**
+     * Reader of length-prefixed frames from a blocking channel.
+     */
+    static final class FrameReader {
+        private final ReadableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(8192).flip();
+
+        FrameReader(@NotNull ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Read the next frame, blocking until it is complete.
+         *
+         * @return The frame positioned at its op code and limited to its end, only valid until the next read.
+         *         {@code null} at the end of stream.
+         * @throws IOException If the channel fails or the stream is malformed
+         */
+        @Nullable ByteBuffer next() throws IOException {
+            if(!fill(4)) return null;
+
+            int length = buffer.getInt(buffer.position());
+            if(length < 1 || length > MAX_FRAME) throw new IOException("Malformed frame length: " + length);
+            if(!fill(4 + length)) return null;
+
+            int start = buffer.position() + 4;
+            buffer.position(start + length);
+            return buffer.slice(start, length);
+        }
+
+        /**
+         * Check if a complete frame is already buffered, so that reading it would not block.
+         *
+         * @return True if a frame is buffered
+         */
+        boolean hasFrame() {
+            return buffer.remaining() >= 4 && buffer.remaining() >= 4 + buffer.getInt(buffer.position());
+        }
+
+        private boolean fill(int bytes) throws IOException {
+            while(buffer.remaining() < bytes) {
+                buffer.compact();
+
+                if(buffer.capacity() < bytes) {
+                    ByteBuffer grown = ByteBuffer.allocate(Integer.highestOneBit(bytes - 1) << 1);
+                    grown.put(buffer.flip());
+                    buffer = grown;
+                }
+
+                int read = channel.read(buffer);
+                buffer.flip();
+                if(read < 0) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
+import github.scarsz.discordsrv.dependencies.okhttp3.RequestBody;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * In-memory {@link AttachmentSource} being its own request body
+ */
+abstract class AttachmentBody extends RequestBody implements AttachmentSource {
+    private final String name;
+    private final MediaType type;
+    private final long length;
+
+    AttachmentBody(@NotNull String name, @NotNull MediaType type, long length) {
+        this.name = checkName(name);
+        this.type = type;
+        this.length = length;
+    }
+
+    static @NotNull String checkName(@NotNull String name) {
+        if(name.isBlank()) throw new IllegalArgumentException("Attachment name cannot be blank.");
+        return name;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+
+    @Override
+    public @NotNull RequestBody toRequestBody() {
+        return this;
+    }
+
+    @Override
+    public @NotNull MediaType contentType() {
+        return type;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+}
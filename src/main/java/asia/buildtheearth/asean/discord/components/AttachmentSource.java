@@ -0,0 +1,143 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
+import github.scarsz.discordsrv.dependencies.okhttp3.RequestBody;
+import github.scarsz.discordsrv.dependencies.okio.BufferedSink;
+import github.scarsz.discordsrv.dependencies.okio.Okio;
+import github.scarsz.discordsrv.dependencies.okio.Source;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * A file attachment of a {@link WebhookDataBuilder.WebhookData}, uploaded from memory or from disk.
+ *
+ * <p>Runtime generated images can be uploaded straight from their bytes,
+ * without a round trip through a temporary file.
+ * Every source can be written more than once, so that a rate limited request can be retried.</p>
+ *
+ * <blockquote>{@snippet :
+ * WebhookData data = new WebhookDataBuilder().build();
+ *
+ * data.addAttachment(AttachmentSource.of("head.png", PNG, renderHead(player)));
+ * data.addAttachment(AttachmentSource.of("region.png", PNG, length, () -> openRender(region)));
+ * }</blockquote>
+ *
+ * @see WebhookDataBuilder.WebhookData#addAttachment(AttachmentSource)
+ */
+public interface AttachmentSource {
+
+    /**
+     * The attachment file name shown on discord.
+     *
+     * @return The file name
+     */
+    @NotNull String getName();
+
+    /**
+     * Create the request body uploading this attachment, called each time a request is prepared.
+     *
+     * @return The attachment request body
+     * @throws IOException If the attachment can no longer be read
+     */
+    @NotNull RequestBody toRequestBody() throws IOException;
+
+    /**
+     * Attachment of a file on disk, uploaded by {@link FileRequestBody}.
+     *
+     * @param file The file to upload, read only when a request is prepared
+     * @return The attachment source named after the file
+     */
+    static @NotNull AttachmentSource of(@NotNull File file) {
+        return of(file.getName(), file.toPath());
+    }
+
+    /**
+     * Attachment of a file on disk under another name, uploaded by {@link FileRequestBody}.
+     *
+     * @param name The attachment file name
+     * @param file The file to upload, read only when a request is prepared
+     * @return The attachment source
+     */
+    static @NotNull AttachmentSource of(@NotNull String name, @NotNull Path file) {
+        AttachmentBody.checkName(name);
+        return new AttachmentSource() {
+            @Override
+            public @NotNull String getName() {
+                return name;
+            }
+
+            @Override
+            public @NotNull RequestBody toRequestBody() throws IOException {
+                return FileRequestBody.of(file);
+            }
+        };
+    }
+
+    /**
+     * Attachment of a byte array, uploaded without copying the array first.
+     *
+     * @param name The attachment file name
+     * @param type The attachment media type
+     * @param data The attachment content, must not be modified until every request is sent
+     * @return The attachment source
+     */
+    static @NotNull AttachmentSource of(@NotNull String name, @NotNull MediaType type, byte @NotNull [] data) {
+        return of(name, type, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Attachment of a byte buffer, heap or direct, from its position to its limit.
+     *
+     * <p>The buffer position is never moved, each write reads through a duplicate of the buffer.</p>
+     *
+     * @param name The attachment file name
+     * @param type The attachment media type
+     * @param data The attachment content, must not be modified until every request is sent
+     * @return The attachment source
+     */
+    static @NotNull AttachmentSource of(@NotNull String name, @NotNull MediaType type, @NotNull ByteBuffer data) {
+        ByteBuffer content = data.duplicate();
+        return new AttachmentBody(name, type, content.remaining()) {
+            @Override
+            public void writeTo(@NotNull BufferedSink sink) throws IOException {
+                ByteBuffer remaining = content.duplicate();
+                while(remaining.hasRemaining()) sink.write(remaining);
+            }
+        };
+    }
+
+    /**
+     * Attachment of a stream of known length, opened each time the attachment is written
+     * and always closed afterward.
+     *
+     * @param name The attachment file name
+     * @param type The attachment media type
+     * @param length The exact number of bytes uploaded from each stream
+     * @param data The stream supplier, called once per write
+     * @return The attachment source
+     * @throws IllegalArgumentException If the length is negative
+     */
+    static @NotNull AttachmentSource of(@NotNull String name,
+                                        @NotNull MediaType type,
+                                        long length,
+                                        @NotNull Supplier<? extends InputStream> data) {
+        if(length < 0) throw new IllegalArgumentException("Attachment length cannot be negative: " + length);
+
+        return new AttachmentBody(name, type, length) {
+            @Override
+            public void writeTo(@NotNull BufferedSink sink) throws IOException {
+                // The source closes the stream
+                try(Source source = Okio.source(data.get())) {
+                    // Fails on a stream shorter than the declared length
+                    sink.write(source, length);
+                }
+            }
+        };
+    }
+}
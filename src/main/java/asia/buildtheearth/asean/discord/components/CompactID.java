@@ -0,0 +1,400 @@
+package asia.buildtheearth.asean.discord.components;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Compact encoding of a plugin component {@code custom_id}, version 1.
+ *
+ * <p>A compact ID is {@code <plugin>/<type>/~1<id><user><payload>} where both snowflakes are
+ * 11 characters of unpadded base64url, and the payload is a base64url packed sequence of typed fields.
+ * The {@code ~} marker is never a word character, so compact IDs cannot be confused with the
+ * {@link IDPattern} convention. Compared to the decimal convention, the snowflakes take
+ * 22 characters instead of up to 41, leaving most of the 100 characters for the payload.</p>
+ *
+ * <p>Every payload field is a varint of {@code value << 3 | tag}, except longs which are a tag varint
+ * followed by a zigzag varint of the value, and strings which are followed by their UTF-8 bytes.</p>
+ *
+ * <p>Usage:</p>
+ * <blockquote>{@snippet :
+ * String id = provider.newCompactID("plot", eventID, userID, payload -> payload
+ *     .putInt(plot.getID())
+ *     .putEnum(PlotStatus.REVIEW)
+ *     .putString(plot.getCity())
+ * );
+ *
+ * // On interacted
+ * CompactID.Reader payload = button.getCompactPayload();
+ * int plotID = payload.getInt();
+ * PlotStatus status = payload.getEnum(PlotStatus.class);
+ * String city = payload.getString();
+ * }</blockquote>
+ *
+ * @see asia.buildtheearth.asean.discord.providers.ComponentProvider#newCompactID(String, long, long, Consumer)
+ * @see ComponentID#isCompact()
+ */
+public final class CompactID {
+
+    /**
+     * The version marker prefixing the ID field of a compact ID.
+     */
+    public static final String MARKER = "~1";
+
+    /**
+     * Length of an encoded snowflake.
+     */
+    public static final int SNOWFLAKE_LENGTH = 11;
+
+    /**
+     * Maximum length of a discord {@code custom_id}.
+     */
+    public static final int MAX_LENGTH = 100;
+
+    private static final byte INT = 0, LONG = 1, ENUM = 2, STRING = 3, BOOLEAN = 4;
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for(int i = 0; i < ALPHABET.length; i++) VALUES[ALPHABET[i]] = (byte) i;
+    }
+
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(Writer::new);
+
+    private CompactID() {}
+
+    /**
+     * Encode a compact component ID.
+     *
+     * @param plugin The plugin name
+     * @param type The component type identifier, word characters only
+     * @param id The snowflake ID of this component
+     * @param user The only allowed user to use this component
+     * @param payload Writer of the payload fields, or {@code null} for no payload
+     * @return The compact {@code custom_id}
+     * @throws IllegalArgumentException If the type is not word characters, or the ID exceeds 100 characters
+     */
+    public static @NotNull String encode(@NotNull String plugin,
+                                         @NotNull String type,
+                                         long id,
+                                         long user,
+                                         @Nullable Consumer<Writer> payload) {
+        if(ComponentID.fieldEnd(type, 0, type.length()) != type.length())
+            throw new IllegalArgumentException("Component type must be word characters only (" + type + ")");
+
+        Writer writer = WRITERS.get();
+
+        // A payload writer may encode another ID, which then gets its own writer
+        if(writer.inUse) writer = new Writer();
+
+        writer.inUse = true;
+        try {
+            writer.reset();
+            if(payload != null) payload.accept(writer);
+            return writer.encode(plugin, type, id, user);
+        }
+        finally { writer.inUse = false; }
+    }
+
+    /**
+     * Check if a character range is a compact ID body, the ID field after its type.
+     *
+     * @param raw The raw ID
+     * @param start The start of the ID field
+     * @param end The end of the raw ID
+     * @return True if the range is a valid compact body
+     */
+    static boolean isCompact(@NotNull String raw, int start, int end) {
+        if(!raw.startsWith(MARKER, start) || end - start < MARKER.length() + 2 * SNOWFLAKE_LENGTH) return false;
+
+        for(int i = start + MARKER.length(); i < end; i++) if(valueOf(raw.charAt(i)) < 0) return false;
+
+        // The first character of a snowflake only holds its 4 highest bits
+        return valueOf(raw.charAt(start + MARKER.length())) < 16
+            && valueOf(raw.charAt(start + MARKER.length() + SNOWFLAKE_LENGTH)) < 16;
+    }
+
+    /**
+     * Decode a base64url snowflake.
+     *
+     * @param raw The raw ID
+     * @param start The start of the encoded snowflake
+     * @return The snowflake value
+     */
+    static long decodeSnowflake(@NotNull CharSequence raw, int start) {
+        long value = 0;
+        for(int i = start; i < start + SNOWFLAKE_LENGTH; i++) value = value << 6 | valueOf(raw.charAt(i));
+        return value;
+    }
+
+    /**
+     * Get the value of a base64url character.
+     *
+     * @param c The character
+     * @return The 6 bits value, or {@code -1} if not a base64url character
+     */
+    static int valueOf(char c) {
+        return c < 128? VALUES[c] : -1;
+    }
+
+    /**
+     * Get the base64url character of a value.
+     *
+     * @param value The value, only its 6 lowest bits are used
+     * @return The base64url character
+     */
+    static char digit(long value) {
+        return ALPHABET[(int) (value & 63)];
+    }
+
+    /**
+     * Reusable encoder of a compact ID payload.
+     * Fields are read back by a {@link Reader} in the same order.
+     */
+    public static final class Writer {
+        private final StringBuilder out = new StringBuilder(MAX_LENGTH);
+        private byte[] bytes = new byte[MAX_LENGTH];
+        private int size;
+        private boolean inUse;
+
+        private Writer() {}
+
+        private void reset() {
+            size = 0;
+            out.setLength(0);
+        }
+
+        /**
+         * Write an int field.
+         *
+         * @param value The value
+         * @return This writer
+         */
+        public @NotNull Writer putInt(int value) {
+            writeVarint(((long) ((value << 1) ^ (value >> 31)) & 0xffffffffL) << 3 | INT);
+            return this;
+        }
+
+        /**
+         * Write a long field.
+         *
+         * @param value The value
+         * @return This writer
+         */
+        public @NotNull Writer putLong(long value) {
+            writeVarint(LONG);
+            writeVarint((value << 1) ^ (value >> 63));
+            return this;
+        }
+
+        /**
+         * Write an enum field as its ordinal.
+         *
+         * @param value The enum constant
+         * @return This writer
+         */
+        public @NotNull Writer putEnum(@NotNull Enum<?> value) {
+            writeVarint((long) value.ordinal() << 3 | ENUM);
+            return this;
+        }
+
+        /**
+         * Write a boolean field.
+         *
+         * @param value The value
+         * @return This writer
+         */
+        public @NotNull Writer putBoolean(boolean value) {
+            writeVarint((value? 1 : 0) << 3 | BOOLEAN);
+            return this;
+        }
+
+        /**
+         * Write a short string field as UTF-8.
+         *
+         * @param value The string, limited by the 100 characters of the whole ID
+         * @return This writer
+         */
+        public @NotNull Writer putString(@NotNull String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint((long) encoded.length << 3 | STRING);
+
+            ensureCapacity(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+            return this;
+        }
+
+        private void writeVarint(long value) {
+            ensureCapacity(10);
+            while((value & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void ensureCapacity(int additional) {
+            if(size + additional > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+        }
+
+        private @NotNull String encode(@NotNull String plugin, @NotNull String type, long id, long user) {
+            out.append(plugin).append('/').append(type).append('/').append(MARKER);
+            appendSnowflake(id);
+            appendSnowflake(user);
+
+            // Unpadded base64url of the payload bytes
+            int bits = 0, buffer = 0;
+            for(int i = 0; i < size; i++) {
+                buffer = buffer << 8 | (bytes[i] & 0xff);
+                bits += 8;
+                while(bits >= 6) {
+                    bits -= 6;
+                    out.append(ALPHABET[(buffer >>> bits) & 63]);
+                }
+            }
+            if(bits > 0) out.append(ALPHABET[(buffer << (6 - bits)) & 63]);
+
+            if(out.length() > MAX_LENGTH)
+                throw new IllegalArgumentException("Created component's custom_id has length greater than 100 characters! (" + out + ")");
+
+            return out.toString();
+        }
+
+        private void appendSnowflake(long value) {
+            int start = out.length();
+            out.setLength(start + SNOWFLAKE_LENGTH);
+            for(int i = start + SNOWFLAKE_LENGTH - 1; i >= start; i--) {
+                out.setCharAt(i, ALPHABET[(int) (value & 63)]);
+                value >>>= 6;
+            }
+        }
+    }
+
+    /**
+     * Zero-copy reader of a compact ID payload, decoding directly from the raw ID characters.
+     *
+     * <p>Fields must be read in their written order,
+     * reading a field of another type throws {@link IllegalStateException}.</p>
+     */
+    public static final class Reader {
+        private final String raw;
+        private final int end;
+        private int position;
+        private int buffer, bits;
+
+        Reader(@NotNull String raw, int start, int end) {
+            this.raw = raw;
+            this.position = start;
+            this.end = end;
+        }
+
+        /**
+         * Check if there are more fields to read.
+         *
+         * @return True if another field is encoded
+         */
+        public boolean hasRemaining() {
+            return bits + (end - position) * 6 >= 8;
+        }
+
+        /**
+         * Read an int field.
+         *
+         * @return The value
+         */
+        public int getInt() {
+            int value = (int) (readTagged(INT));
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Read a long field.
+         *
+         * @return The value
+         */
+        public long getLong() {
+            readTagged(LONG);
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Read an enum field.
+         *
+         * @param type The enum class
+         * @return The enum constant of the encoded ordinal
+         * @param <E> The enum type
+         * @throws IllegalStateException If the ordinal is out of range
+         */
+        public <E extends Enum<E>> @NotNull E getEnum(@NotNull Class<E> type) {
+            long ordinal = readTagged(ENUM);
+            E[] constants = type.getEnumConstants();
+            if(ordinal >= constants.length)
+                throw new IllegalStateException("Compact payload enum ordinal " + ordinal + " is out of range of " + type.getSimpleName());
+            return constants[(int) ordinal];
+        }
+
+        /**
+         * Read a boolean field.
+         *
+         * @return The value
+         */
+        public boolean getBoolean() {
+            return readTagged(BOOLEAN) != 0;
+        }
+
+        /**
+         * Read a string field.
+         *
+         * @return The decoded string
+         * @throws IllegalStateException If the encoded length exceeds the remaining payload
+         */
+        public @NotNull String getString() {
+            long length = readTagged(STRING);
+            if(length > remaining())
+                throw new IllegalStateException("Compact payload string of " + length + " bytes exceeds the " + remaining() + " bytes left");
+
+            byte[] value = new byte[(int) length];
+            for(int i = 0; i < length; i++) value[i] = (byte) readByte();
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        private int remaining() {
+            return (bits + (end - position) * 6) / 8;
+        }
+
+        private long readTagged(byte tag) {
+            long value = readVarint();
+            if((value & 7) != tag)
+                throw new IllegalStateException("Compact payload field is of tag " + (value & 7) + ", expected " + tag);
+            return value >>> 3;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7f) << shift;
+                if((b & 0x80) == 0) return value;
+            }
+            throw new IllegalStateException("Malformed compact payload varint");
+        }
+
+        private int readByte() {
+            while(bits < 8) {
+                if(position >= end) throw new IllegalStateException("Compact payload has no more field");
+                buffer = buffer << 6 | valueOf(raw.charAt(position++));
+                bits += 6;
+            }
+            bits -= 8;
+            return (buffer >>> bits) & 0xff;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package asia.buildtheearth.asean.discord.components;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.RandomAccess;
+
+/**
+ * Child list of a {@link CompactMap}, marking every map above it dirty on change.
+ *
+ * <p>Every change of an {@link AbstractList} goes through {@link #add(int, Object)},
+ * {@link #set(int, Object)} or {@link #remove(int)}, including changes through a
+ * {@code DataArray} wrapping this list, so the serialized bytes memoized above it are never stale.
+ * Maps and lists added to it, nested lists included, are linked to it the same way.</p>
+ *
+ * @see CompactMap
+ */
+public final class CompactList extends AbstractList<Object> implements RandomAccess {
+
+    private final ArrayList<Object> elements = new ArrayList<>();
+
+    /**
+     * The map or list holding this list, dirtied on change, {@link CompactMap#SHARED} if held by many
+     */
+    @Nullable Object parent;
+    boolean frozen;
+
+    /**
+     * Create an empty child list.
+     */
+    public CompactList() {}
+
+    @Override
+    public Object get(int index) {
+        return elements.get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        changing();
+        CompactMap.adopt(element, this);
+        return elements.set(index, element);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        changing();
+        CompactMap.adopt(element, this);
+        modCount++;
+        elements.add(index, element);
+    }
+
+    @Override
+    public Object remove(int index) {
+        changing();
+        modCount++;
+        return elements.remove(index);
+    }
+
+    private void changing() {
+        if(frozen) throw new UnsupportedOperationException("Cannot modify a frozen component");
+        CompactMap.changed(parent);
+    }
+}
@@ -0,0 +1,486 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.SerializableData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact map of a fixed shape of keys, backing a data object with a single value array.
+ *
+ * <p>The keys of a {@link Shape} are shared by every map of that shape, and pre-encoded for {@link JsonRequestBody},
+ * which writes a compact map directly without iterating its entries.
+ * A map costs itself and its value array, instead of a hash table and one node per entry.
+ * Keys outside the shape are still accepted, into a hash map created on first use.</p>
+ *
+ * <p>A map also memoizes its encoded bytes, reused as long as neither it nor any map below it changed.
+ * Every change through the map, or through a {@link CompactList} below it, marks it and every map above it dirty,
+ * so checking a memoized map never walks its subtree.
+ * A subtree holding a mutable collection other than those, or a template hole, is encoded every time,
+ * so data built elsewhere is copied in with {@link #copyOf(Map)}.
+ * A map or list added to a second parent cannot notify both, so it is encoded every time as well,
+ * a component shared by many messages is rather {@linkplain #freeze() frozen}.
+ * A {@link #freeze() frozen} map rejects any change, so its bytes are reused without checking its subtree.
+ * A map being modified must not be encoded concurrently, a frozen map can be shared.</p>
+ *
+ * <blockquote>{@snippet :
+ * private static final CompactMap.Shape SHAPE = CompactMap.Shape.of("type", "id", "content");
+ *
+ * public TextDisplay(@NotNull String content) {
+ *     super(SHAPE, 10, null, content); // null leaves the ID out
+ * }
+ * }</blockquote>
+ *
+ * @see asia.buildtheearth.asean.discord.components.api.ComponentV2
+ */
+public final class CompactMap extends AbstractMap<String, Object> {
+
+    /**
+     * The fixed keys of a compact map, created once per data type.
+     */
+    public static final class Shape {
+        private final String[] keys;
+
+        /**
+         * Encoded {@code "key":} of every key
+         */
+        final byte[][] encodedKeys;
+
+        private Shape(@NotNull String[] keys) {
+            this.keys = keys;
+            this.encodedKeys = new byte[keys.length][];
+
+            try {
+                for(int i = 0; i < keys.length; i++) {
+                    JsonWriter writer = JsonWriter.memory();
+                    writer.string(keys[i]);
+                    writer.write(':');
+                    encodedKeys[i] = writer.toByteArray();
+                }
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Create a shape of keys, in the order they are serialized.
+         *
+         * @param keys The distinct keys of the shape
+         * @return The shape
+         * @throws IllegalArgumentException If a key is repeated
+         */
+        public static @NotNull Shape of(@NotNull String... keys) {
+            for(int i = 0; i < keys.length; i++)
+                for(int j = 0; j < i; j++)
+                    if(keys[i].equals(keys[j])) throw new IllegalArgumentException("Duplicate shape key: " + keys[i]);
+            return new Shape(keys.clone());
+        }
+
+        /**
+         * Get the number of keys of this shape.
+         *
+         * @return The shape size
+         */
+        public int size() {
+            return keys.length;
+        }
+
+        private int indexOf(@Nullable Object key) {
+            // Keys are mostly the same string literals
+            for(int i = 0; i < keys.length; i++) if(keys[i] == key) return i;
+            for(int i = 0; i < keys.length; i++) if(keys[i].equals(key)) return i;
+            return -1;
+        }
+    }
+
+    /**
+     * Stored value of an explicit {@code null}, an empty slot being an absent key
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * Parent of a map or list held by more than one parent, whose changes are not tracked
+     */
+    static final Object SHARED = new Object();
+
+    /**
+     * Classes of the immutable {@code List.of} and {@code Map.of} collections
+     */
+    private static final Set<Class<?>> IMMUTABLE = Set.copyOf(List.of(
+        List.of().getClass(), List.of(1).getClass(), List.of(1, 2, 3).getClass(),
+        Map.of().getClass(), Map.of(1, 1).getClass(), Map.of(1, 1, 2, 2).getClass()
+    ));
+
+    final Shape shape;
+    final Object[] values;
+    @Nullable Map<String, Object> extra;
+
+    /**
+     * Whether this map or any map below it changed since it was encoded
+     */
+    boolean dirty = true;
+
+    /**
+     * The map or list holding this map, dirtied on change, {@link #SHARED} if held by many
+     */
+    @Nullable Object parent;
+    private boolean frozen;
+    private volatile byte @Nullable [] encoded;
+
+    /**
+     * Session of the last encoding, 0 if never encoded
+     */
+    private long seen;
+
+    /**
+     * Create a compact map, taking ownership of the value array.
+     *
+     * @param shape The keys of this map
+     * @param values The value of each shape key in order, null for an absent key
+     * @throws IllegalArgumentException If the number of values does not match the shape
+     */
+    public CompactMap(@NotNull Shape shape, @NotNull Object... values) {
+        if(values.length != shape.keys.length)
+            throw new IllegalArgumentException("Expected " + shape.keys.length + " values but got " + values.length);
+        this.shape = shape;
+        this.values = values;
+        for(Object value : values) adopt(value, this);
+    }
+
+    /**
+     * Copy a map and everything below it into compact maps and lists.
+     *
+     * <p>For data built outside the components, such as the {@code toData()} of a JDA button or action row.
+     * Their hash maps cannot be tracked for changes, so a subtree holding them would be encoded for every message;
+     * the copy is memoized like any built-in component.</p>
+     *
+     * @param map The map to copy, its nested maps, lists and serializable data included
+     * @return The compact copy, of a shape of the map keys in iteration order
+     */
+    public static @NotNull CompactMap copyOf(@NotNull Map<?, ?> map) {
+        String[] keys = new String[map.size()];
+        Object[] values = new Object[keys.length];
+
+        int i = 0;
+        for(Map.Entry<?, ?> entry : map.entrySet()) {
+            keys[i] = String.valueOf(entry.getKey());
+            Object value = copy(entry.getValue());
+            values[i++] = value == null? NULL : value;
+        }
+        return new CompactMap(new Shape(keys), values);
+    }
+
+    private static @Nullable Object copy(@Nullable Object value) {
+        return switch(value) {
+            case Map<?, ?> map -> copyOf(map);
+            case Collection<?> collection -> {
+                CompactList list = new CompactList();
+                for(Object element : collection) list.add(copy(element));
+                yield list;
+            }
+            case DataArray array -> copy(array.toList());
+            case SerializableData serializable -> copyOf(serializable.toData().toMap());
+            case null, default -> value;
+        };
+    }
+
+    static @Nullable Object unwrap(@Nullable Object value) {
+        return value == NULL? null : value;
+    }
+
+    /**
+     * Freeze this map and everything below it, rejecting any further change.
+     *
+     * <p>The encoded bytes of a frozen map are reused without checking its subtree,
+     * for static components shared by every message.</p>
+     *
+     * @return This map
+     */
+    public @NotNull CompactMap freeze() {
+        if(frozen) return this;
+
+        frozen = true;
+        for(Object value : values) freeze(value);
+        if(extra != null) for(Object value : extra.values()) freeze(value);
+        return this;
+    }
+
+    /**
+     * Check whether this map is frozen.
+     *
+     * @return True if this map rejects changes
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private static void freeze(@Nullable Object value) {
+        switch(value) {
+            case CompactMap map -> map.freeze();
+            case CompactList list -> {
+                list.frozen = true;
+                for(Object element : list) freeze(element);
+            }
+            case List<?> list when IMMUTABLE.contains(list.getClass()) -> list.forEach(CompactMap::freeze);
+            case Map<?, ?> map when IMMUTABLE.contains(map.getClass()) -> map.values().forEach(CompactMap::freeze);
+            case null, default -> {}
+        }
+    }
+
+    /**
+     * Get the encoded bytes of this map, encoding it again only if its subtree changed.
+     *
+     * <p>A map is memoized once it was left unchanged since an encoding of an earlier session,
+     * a map changing for every message, such as the parent of a changing text, is rather encoded in place.</p>
+     *
+     * @param session The encoding session, shared by every pass over one request body
+     * @return The encoded map, null if it is to be encoded in place
+     * @throws IOException If the writer fails
+     */
+    byte @Nullable [] encoded(long session) throws IOException {
+        byte[] bytes = encoded;
+        boolean clean = frozen || !dirty;
+        if(bytes != null && clean) return bytes;
+
+        boolean stable = frozen || clean && seen != 0 && seen != session;
+        seen = session;
+        dirty = false;
+        encoded = null;
+        if(!stable || !isMemoizableFields()) return null;
+
+        // Own buffer, the pooled one may be in use by the writer of the parent
+        JsonWriter writer = new JsonWriter(null, new byte[256], true, session);
+        writer.fields(this);
+        bytes = writer.toByteArray();
+        encoded = bytes;
+        return bytes;
+    }
+
+    private boolean isMemoizableFields() {
+        for(Object value : values) if(!isMemoizable(value)) return false;
+        if(extra != null) for(Object value : extra.values()) if(!isMemoizable(value)) return false;
+        return true;
+    }
+
+    private static boolean isMemoizable(@Nullable Object value) {
+        return switch(value) {
+            case null -> true;
+            // Changes below a shared value may only reach its other parent
+            case CompactMap map when map.parent == SHARED && !map.frozen -> false;
+            case CompactList list when list.parent == SHARED && !list.frozen -> false;
+            case CompactMap map -> map.isMemoizableFields();
+            case List<?> list when list instanceof CompactList || IMMUTABLE.contains(list.getClass()) -> {
+                for(Object element : list) if(!isMemoizable(element)) yield false;
+                yield true;
+            }
+            case Map<?, ?> map when IMMUTABLE.contains(map.getClass()) -> {
+                for(Object element : map.values()) if(!isMemoizable(element)) yield false;
+                yield true;
+            }
+            default -> value == NULL || value instanceof String || value instanceof Boolean || value instanceof Enum<?>
+                || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof Double || value instanceof Float || value instanceof BigInteger || value instanceof BigDecimal;
+        };
+    }
+
+    private void changing() {
+        if(frozen) throw new UnsupportedOperationException("Cannot modify a frozen component");
+        dirty = true;
+        encoded = null;
+        changed(parent);
+    }
+
+    /**
+     * Mark dirty every map above a changed map or list.
+     *
+     * @param parent The parent of the changed map or list
+     */
+    static void changed(@Nullable Object parent) {
+        while(true) {
+            if(parent instanceof CompactMap map) {
+                map.dirty = true;
+                map.encoded = null;
+                parent = map.parent;
+            }
+            else if(parent instanceof CompactList list) parent = list.parent;
+            else return;
+        }
+    }
+
+    /**
+     * Link the maps and lists of a value to the map or list holding it.
+     *
+     * @param value The value being added
+     * @param parent The map or list the value is added to
+     */
+    static void adopt(@Nullable Object value, @NotNull Object parent) {
+        switch(value) {
+            case CompactMap map when !map.frozen -> map.parent = link(map.parent, parent);
+            case CompactList list when !list.frozen -> list.parent = link(list.parent, parent);
+            case List<?> list when IMMUTABLE.contains(list.getClass()) -> {
+                for(Object element : list) adopt(element, parent);
+            }
+            case Map<?, ?> map when IMMUTABLE.contains(map.getClass()) -> {
+                for(Object element : map.values()) adopt(element, parent);
+            }
+            case null, default -> {}
+        }
+    }
+
+    private static @NotNull Object link(@Nullable Object current, @NotNull Object parent) {
+        if(current == null || current == parent) return parent;
+
+        // The first parent may have memoized the value, it is encoded every time from now on
+        changed(current);
+        return SHARED;
+    }
+
+    @Override
+    public @Nullable Object get(@Nullable Object key) {
+        int slot = shape.indexOf(key);
+        if(slot >= 0) return unwrap(values[slot]);
+        return extra == null? null : extra.get(key);
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        int slot = shape.indexOf(key);
+        if(slot >= 0) return values[slot] != null;
+        return extra != null && extra.containsKey(key);
+    }
+
+    @Override
+    public @Nullable Object put(@NotNull String key, @Nullable Object value) {
+        changing();
+        adopt(value, this);
+        int slot = shape.indexOf(key);
+        if(slot < 0) {
+            if(extra == null) extra = new HashMap<>(4);
+            return extra.put(key, value);
+        }
+
+        Object previous = values[slot];
+        values[slot] = value == null? NULL : value;
+        return unwrap(previous);
+    }
+
+    @Override
+    public @Nullable Object remove(@Nullable Object key) {
+        changing();
+        int slot = shape.indexOf(key);
+        if(slot < 0) return extra == null? null : extra.remove(key);
+
+        Object previous = values[slot];
+        values[slot] = null;
+        return unwrap(previous);
+    }
+
+    @Override
+    public void clear() {
+        changing();
+        Arrays.fill(values, null);
+        extra = null;
+    }
+
+    @Override
+    public int size() {
+        int size = extra == null? 0 : extra.size();
+        for(Object value : values) if(value != null) size++;
+        return size;
+    }
+
+    @Override
+    public @NotNull Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<String, Object>> iterator() {
+                return new Members();
+            }
+
+            @Override
+            public int size() {
+                return CompactMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterator of the present shape slots, then of the extra entries
+     */
+    private final class Members implements Iterator<Entry<String, Object>> {
+        private int next = advance(0);
+        private int current = -1;
+        private @Nullable Iterator<Entry<String, Object>> extras;
+
+        private int advance(int from) {
+            while(from < values.length && values[from] == null) from++;
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(next < values.length) return true;
+            if(extras == null && extra != null) extras = extra.entrySet().iterator();
+            return extras != null && extras.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if(next < values.length) {
+                int slot = current = next;
+                next = advance(next + 1);
+                return new SimpleEntry<>(shape.keys[slot], unwrap(values[slot])) {
+                    @Override
+                    public Object setValue(Object value) {
+                        super.setValue(value);
+                        return put(shape.keys[slot], value);
+                    }
+                };
+            }
+            if(!hasNext()) throw new NoSuchElementException();
+
+            current = -1;
+            Entry<String, Object> entry = extras.next();
+            return new SimpleEntry<>(entry) {
+                @Override
+                public Object setValue(Object value) {
+                    changing();
+                    adopt(value, CompactMap.this);
+                    super.setValue(value);
+                    return entry.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if(current >= 0) {
+                changing();
+                values[current] = null;
+                current = -1;
+            }
+            else if(extras != null) {
+                changing();
+                extras.remove();
+            }
+            else throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.jda.api.JDA;
+import github.scarsz.discordsrv.dependencies.jda.api.events.GenericEvent;
+import github.scarsz.discordsrv.dependencies.jda.api.events.interaction.GenericComponentInteractionCreateEvent;
+import github.scarsz.discordsrv.dependencies.jda.api.hooks.EventListener;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Single component listener shared by every plugin using this bridge,
+ * routing each component event to its owning plugin by the plugin prefix of its {@code custom_id}.
+ *
+ * <p>Without it, every plugin registers its own JDA listener and validates every component event,
+ * so the work grows with the number of plugins. The demultiplexer walks a prefix trie of the registered
+ * plugin names over the {@code custom_id} characters, and stops at the first character that matches
+ * no plugin: an unowned ID is rejected after reading only its prefix, and only the owning plugin's listener runs.</p>
+ *
+ * <p>Plugins shading this bridge each have their own relocated copy of this class, so the instance is shared
+ * through the JDA registered listeners, and only JDK and JDA types are exchanged with it:
+ * the shared listener is any {@link EventListener} also implementing {@link BiConsumer BiConsumer&lt;String, EventListener&gt;},
+ * accepting a plugin name and its listener, or {@code null} to unregister.</p>
+ *
+ * <p>The shared instance is created by the copy of the first registering plugin, which owns it until
+ * the last plugin unregisters: it is then removed from JDA, and the next registrant creates its own.
+ * Every class it routes with is loaded on construction, so it keeps routing after its owner is disabled.</p>
+ *
+ * <p>Usage:</p>
+ * <blockquote>{@snippet :
+ * // On enable
+ * ComponentDemultiplexer.register(bridge.getJDA(), plugin, router);
+ *
+ * // On disable
+ * ComponentDemultiplexer.unregister(bridge.getJDA(), plugin);
+ * }</blockquote>
+ *
+ * @see asia.buildtheearth.asean.discord.components.buttons.ButtonRouter
+ */
+public final class ComponentDemultiplexer implements EventListener, BiConsumer<String, EventListener> {
+
+    private final JDA jda;
+    private final Map<String, EventListener> listeners = new LinkedHashMap<>();
+    private volatile Node routes = Node.build(listeners);
+
+    private ComponentDemultiplexer(@NotNull JDA jda) {
+        this.jda = jda;
+    }
+
+    /**
+     * Register the component listener of a plugin to the shared demultiplexer,
+     * creating and adding it to JDA if no plugin did yet.
+     *
+     * <p>The listener receives only the component events whose {@code custom_id}
+     * is prefixed by the plugin name, replacing any previous listener of this plugin.</p>
+     *
+     * @param jda The DiscordSRV JDA instance
+     * @param plugin The plugin owning the components
+     * @param listener The listener of this plugin's component events
+     * @throws IllegalArgumentException If the plugin name is not word characters only,
+     *                                  thus can never prefix a component ID
+     */
+    public static void register(@NotNull JDA jda, @NotNull Plugin plugin, @NotNull EventListener listener) {
+        String name = plugin.getName();
+        if(ComponentID.fieldEnd(name, 0, name.length()) != name.length())
+            throw new IllegalArgumentException("Plugin name must be word characters only to own components (" + name + ")");
+
+        synchronized(jda) {
+            getShared(jda, true).accept(name, listener);
+        }
+    }
+
+    /**
+     * Unregister the component listener of a plugin,
+     * removing the shared demultiplexer from JDA if it was the last plugin.
+     *
+     * @param jda The DiscordSRV JDA instance
+     * @param plugin The plugin to unregister
+     */
+    public static void unregister(@NotNull JDA jda, @NotNull Plugin plugin) {
+        synchronized(jda) {
+            BiConsumer<String, EventListener> shared = getShared(jda, false);
+            if(shared != null) shared.accept(plugin.getName(), null);
+        }
+    }
+
+    /**
+     * Find the demultiplexer registered by any copy of this class.
+     * Called synchronized on the JDA instance, the only lock shared by every copy,
+     * so that a lookup and its registration never interleave with the removal of the last plugin.
+     */
+    @SuppressWarnings("unchecked")
+    private static @Nullable BiConsumer<String, EventListener> getShared(@NotNull JDA jda, boolean create) {
+        for(Object listener : jda.getRegisteredListeners())
+            if(listener instanceof EventListener && listener instanceof BiConsumer<?, ?>
+                && listener.getClass().getSimpleName().equals(ComponentDemultiplexer.class.getSimpleName()))
+                return (BiConsumer<String, EventListener>) listener;
+
+        if(!create) return null;
+
+        ComponentDemultiplexer shared = new ComponentDemultiplexer(jda);
+        jda.addEventListener(shared);
+        return shared;
+    }
+
+    /**
+     * Register or unregister a plugin listener, rebuilding the routing trie.
+     * Once the last plugin is unregistered, this instance removes itself from JDA.
+     *
+     * @param plugin The plugin name
+     * @param listener The plugin listener, or {@code null} to unregister
+     */
+    @Override
+    public void accept(@NotNull String plugin, @Nullable EventListener listener) {
+        // Always locked after the JDA instance, like every registration
+        synchronized(jda) {
+            synchronized(this) {
+                if(listener == null) listeners.remove(plugin);
+                else listeners.put(plugin, listener);
+                routes = Node.build(listeners);
+
+                if(listeners.isEmpty()) jda.removeEventListener(this);
+            }
+        }
+    }
+
+    /**
+     * Route a component event to its owning plugin, ignoring every other event.
+     *
+     * @param event The JDA event
+     */
+    @Override
+    public void onEvent(@NotNull GenericEvent event) {
+        if(!(event instanceof GenericComponentInteractionCreateEvent component)) return;
+
+        EventListener listener = routes.route(component.getComponentId());
+        if(listener != null) listener.onEvent(event);
+    }
+
+    /**
+     * Immutable prefix trie node over plugin names
+     */
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = new char[0];
+        private Node[] children = NO_CHILDREN;
+
+        /** The plugin listener whose name ends at this node */
+        private EventListener listener;
+
+        private static @NotNull Node build(@NotNull Map<String, EventListener> listeners) {
+            Node root = new Node();
+            listeners.forEach((name, listener) -> {
+                Node node = root;
+                for(int i = 0; i < name.length(); i++) node = node.getOrAdd(name.charAt(i));
+                node.listener = listener;
+            });
+            return root;
+        }
+
+        private @NotNull Node getOrAdd(char key) {
+            Node child = child(key);
+            if(child != null) return child;
+
+            child = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = key;
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        private @Nullable Node child(char key) {
+            for(int i = 0; i < keys.length; i++) if(keys[i] == key) return children[i];
+            return null;
+        }
+
+        /**
+         * Walk the ID prefix up to its first slash.
+         *
+         * @return The listener of the plugin named by the prefix, {@code null} as soon as no plugin matches
+         */
+        private @Nullable EventListener route(@NotNull String id) {
+            Node node = this;
+            for(int i = 0; i < id.length(); i++) {
+                char c = id.charAt(i);
+                if(c == '/') return node.listener;
+                if((node = node.child(c)) == null) return null;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package asia.buildtheearth.asean.discord.components;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parsed view of a plugin component {@code custom_id}.
+ *
+ * <p>Parsing is a single pass over the raw ID, equivalent to matching {@link IDPattern#COMPONENT_PATTERN}
+ * but without any regex or substring: this view only holds offsets into the raw ID,
+ * with the snowflake fields parsed directly as {@code long}.
+ * A rejected ID allocates nothing, which matters since most component events
+ * of a guild with several bots are not from this plugin.</p>
+ *
+ * <p>The ID format is {@code <plugin>/<type>/<id>/<user>} or {@code <plugin>/<type>/<id>/<user>/<payload>},
+ * where a single trailing slash is ignored. The {@link CompactID compact} format
+ * {@code <plugin>/<type>/~1<id><user><payload>} is accepted as well.</p>
+ *
+ * @see #parse(String)
+ */
+public final class ComponentID {
+
+    /**
+     * {@code 2^64 / 10}, the largest unsigned value that can be multiplied by 10 without overflow
+     */
+    private static final long UNSIGNED_LIMIT = Long.divideUnsigned(-1L, 10);
+    private static final int UNSIGNED_LIMIT_DIGIT = (int) Long.remainderUnsigned(-1L, 10);
+
+    private final String raw;
+    private final int typeStart, idStart, userStart, userEnd;
+    private final int payloadStart, payloadEnd;
+    private final long id, user;
+    private final boolean snowflakeID, snowflakeUser;
+    private final boolean compact;
+
+    private ComponentID(@NotNull String raw, int typeStart, int idStart, int userStart, int userEnd, int payloadEnd) {
+        this.raw = raw;
+        this.typeStart = typeStart;
+        this.idStart = idStart;
+        this.userStart = userStart;
+        this.userEnd = userEnd;
+        this.payloadStart = userEnd + 1;
+        this.payloadEnd = payloadEnd;
+        this.compact = false;
+
+        this.snowflakeID = isSnowflake(raw, idStart, userStart - 1);
+        this.snowflakeUser = isSnowflake(raw, userStart, userEnd);
+        this.id = snowflakeID? parseSnowflake(raw, idStart, userStart - 1) : 0;
+        this.user = snowflakeUser? parseSnowflake(raw, userStart, userEnd) : 0;
+    }
+
+    /**
+     * Compact ID, where the snowflakes are decoded from base64url.
+     */
+    private ComponentID(@NotNull String raw, int typeStart, int idStart) {
+        int body = idStart + CompactID.MARKER.length();
+
+        this.raw = raw;
+        this.typeStart = typeStart;
+        this.idStart = idStart;
+        this.userStart = body + CompactID.SNOWFLAKE_LENGTH;
+        this.userEnd = userStart + CompactID.SNOWFLAKE_LENGTH;
+        this.payloadStart = userEnd;
+        this.payloadEnd = raw.length() > userEnd? raw.length() : -1;
+        this.compact = true;
+
+        this.snowflakeID = this.snowflakeUser = true;
+        this.id = CompactID.decodeSnowflake(raw, body);
+        this.user = CompactID.decodeSnowflake(raw, userStart);
+    }
+
+    /**
+     * Parse a {@code custom_id} by the plugin component convention.
+     *
+     * @param raw The raw {@code custom_id}
+     * @return The parsed ID view, or {@code null} if the ID does not follow the convention
+     */
+    public static @Nullable ComponentID parse(@NotNull String raw) {
+        int length = raw.length();
+
+        int typeStart = fieldEnd(raw, 0, length) + 1;
+        if(typeStart == 0 || typeStart >= length || raw.charAt(typeStart - 1) != '/') return null;
+
+        int idStart = fieldEnd(raw, typeStart, length) + 1;
+        if(idStart == 0 || idStart >= length || raw.charAt(idStart - 1) != '/') return null;
+
+        if(raw.charAt(idStart) == '~')
+            return CompactID.isCompact(raw, idStart, length)? new ComponentID(raw, typeStart, idStart) : null;
+
+        int userStart = fieldEnd(raw, idStart, length) + 1;
+        if(userStart == 0 || userStart >= length || raw.charAt(userStart - 1) != '/') return null;
+
+        int userEnd = fieldEnd(raw, userStart, length);
+        if(userEnd < 0) return null;
+
+        // No payload
+        if(userEnd == length) return new ComponentID(raw, typeStart, idStart, userStart, userEnd, -1);
+        if(raw.charAt(userEnd) != '/') return null;
+
+        for(int i = userEnd + 1; i < length; i++) if(isLineTerminator(raw.charAt(i))) return null;
+
+        // The lazy payload leaves out one trailing slash, if any
+        int payloadEnd = length;
+        if(payloadEnd > userEnd + 1 && raw.charAt(payloadEnd - 1) == '/') payloadEnd--;
+
+        return new ComponentID(raw, typeStart, idStart, userStart, userEnd, payloadEnd);
+    }
+
+    /**
+     * Find the end of a non-empty run of word characters.
+     *
+     * @return The exclusive end index, or {@code -1} if the run is empty
+     */
+    static int fieldEnd(@NotNull String raw, int from, int length) {
+        int i = from;
+        while(i < length && isWordCharacter(raw.charAt(i))) i++;
+        return i == from? -1 : i;
+    }
+
+    /**
+     * Regex {@code \w} without the unicode character class flag.
+     */
+    private static boolean isWordCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Characters not matched by the regex {@code .} without the dot-all flag.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isSnowflake(@NotNull String raw, int start, int end) {
+        if(end - start > 20) return false;
+
+        long value = 0;
+        for(int i = start; i < end; i++) {
+            int digit = raw.charAt(i) - '0';
+            if(digit < 0 || digit > 9) return false;
+
+            // Unsigned overflow of 20 digits values
+            if(Long.compareUnsigned(value, UNSIGNED_LIMIT) > 0
+                || (value == UNSIGNED_LIMIT && digit > UNSIGNED_LIMIT_DIGIT)) return false;
+            value = value * 10 + digit;
+        }
+        return true;
+    }
+
+    private static long parseSnowflake(@NotNull String raw, int start, int end) {
+        long value = 0;
+        for(int i = start; i < end; i++) value = value * 10 + (raw.charAt(i) - '0');
+        return value;
+    }
+
+    /**
+     * Check if this component is owned by a plugin, without allocating.
+     *
+     * @param plugin The plugin name to compare with
+     * @return True if the plugin field equals the given name
+     */
+    public boolean isPlugin(@NotNull String plugin) {
+        return plugin.length() == typeStart - 1 && raw.startsWith(plugin);
+    }
+
+    /**
+     * Check if this component is of a type, without allocating.
+     *
+     * @param type The type identifier to compare with
+     * @return True if the type field equals the given type
+     */
+    public boolean isType(@NotNull String type) {
+        return type.length() == idStart - 1 - typeStart && raw.startsWith(type, typeStart);
+    }
+
+    /**
+     * Get the hash code of the type field, without allocating.
+     *
+     * @return The same value as {@code getType().hashCode()}
+     */
+    public int getTypeHash() {
+        int hash = 0;
+        for(int i = typeStart; i < idStart - 1; i++) hash = 31 * hash + raw.charAt(i);
+        return hash;
+    }
+
+    /**
+     * Get the plugin name owning this component.
+     *
+     * @return The plugin field as a new string
+     */
+    public @NotNull String getPlugin() {
+        return raw.substring(0, typeStart - 1);
+    }
+
+    /**
+     * Get the type identifier of this component.
+     *
+     * @return The type field as a new string
+     */
+    public @NotNull String getType() {
+        return raw.substring(typeStart, idStart - 1);
+    }
+
+    /**
+     * Get the unique ID of this component.
+     *
+     * @return The ID field as a new string
+     */
+    public @NotNull String getID() {
+        return compact? Long.toUnsignedString(id) : raw.substring(idStart, userStart - 1);
+    }
+
+    /**
+     * Get the user that own this component.
+     *
+     * @return The user field as a new string
+     */
+    public @NotNull String getUserID() {
+        return compact? Long.toUnsignedString(user) : raw.substring(userStart, userEnd);
+    }
+
+    /**
+     * Check if the ID field is a valid discord snowflake.
+     *
+     * @return True if {@link #getIDLong()} is valid
+     */
+    public boolean isSnowflakeID() {
+        return snowflakeID;
+    }
+
+    /**
+     * Check if the user field is a valid discord snowflake.
+     *
+     * @return True if {@link #getUserIDLong()} is valid
+     */
+    public boolean isSnowflakeUser() {
+        return snowflakeUser;
+    }
+
+    /**
+     * Get the unique ID as discord snowflake.
+     *
+     * @return The ID parsed as unsigned long, {@code 0} if it is not a {@link #isSnowflakeID() snowflake}
+     */
+    public long getIDLong() {
+        return id;
+    }
+
+    /**
+     * Get the user that own this component as discord snowflake.
+     *
+     * @return The user ID parsed as unsigned long, {@code 0} if it is not a {@link #isSnowflakeUser() snowflake}
+     */
+    public long getUserIDLong() {
+        return user;
+    }
+
+    /**
+     * Check if this component has a payload, which may be empty.
+     *
+     * @return True if the ID has a payload field
+     */
+    public boolean hasPayload() {
+        return payloadEnd >= 0;
+    }
+
+    /**
+     * Get the optional payload of this component.
+     *
+     * @return The payload field as a new string, null if not exist
+     */
+    public @Nullable String getPayload() {
+        return hasPayload()? raw.substring(payloadStart, payloadEnd) : null;
+    }
+
+    /**
+     * Check if the payload of this component is a {@link PayloadOverflow} token, without allocating.
+     *
+     * @return True if the payload is stored in the overflow store
+     */
+    public boolean isOverflowPayload() {
+        return !compact && hasPayload() && raw.startsWith(PayloadOverflow.MARKER, payloadStart);
+    }
+
+    /**
+     * Resolve the payload of this component, looking up the {@link PayloadOverflow} store of its plugin if needed.
+     *
+     * @return The payload, or {@code null} if not exist or its overflow token has expired
+     */
+    public @Nullable String resolvePayload() {
+        if(!isOverflowPayload()) return getPayload();
+
+        PayloadOverflow overflow = PayloadOverflow.find(getPlugin());
+        return overflow != null? overflow.resolve(raw, payloadStart, payloadEnd) : null;
+    }
+
+    /**
+     * Check if this ID is in the {@link CompactID compact} format.
+     *
+     * @return True if compact
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Read the typed payload fields of a compact ID, decoded in place from the raw ID.
+     *
+     * @return A new reader positioned at the first payload field
+     * @throws IllegalStateException If this ID is not {@link #isCompact() compact}
+     */
+    public @NotNull CompactID.Reader getCompactPayload() {
+        if(!compact) throw new IllegalStateException("Component ID is not in the compact format");
+        return new CompactID.Reader(raw, payloadStart, Math.max(payloadStart, payloadEnd));
+    }
+
+    /**
+     * Get the raw ID of this view.
+     *
+     * @return The un-parsed {@code custom_id}
+     */
+    public @NotNull String getRawID() {
+        return raw;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
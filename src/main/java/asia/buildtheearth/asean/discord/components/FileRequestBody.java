@@ -0,0 +1,197 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
+import github.scarsz.discordsrv.dependencies.okhttp3.RequestBody;
+import github.scarsz.discordsrv.dependencies.okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Request body streaming a file with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ *
+ * <p>The file is opened only while the body is written, and always closed afterward,
+ * so a body that is never sent holds no file handle. The content length is the file size
+ * when the body was created; a file that changed size meanwhile fails the request
+ * instead of sending a corrupted upload.</p>
+ *
+ * <p>The media type is resolved once per file extension and cached, and by the leading magic bytes
+ * of the file for extensions that do not tell a known type.</p>
+ *
+ * <blockquote>{@snippet :
+ * MultipartBody body = new MultipartBody.Builder()
+ *     .setType(MultipartBody.FORM)
+ *     .addFormDataPart("files[0]", "render.png", FileRequestBody.of(render))
+ *     .build();
+ * }</blockquote>
+ */
+public final class FileRequestBody extends RequestBody {
+
+    /**
+     * Media type of a file with no known type.
+     */
+    public static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+    /**
+     * Number of leading bytes read to detect a media type
+     */
+    private static final int MAGIC_LENGTH = 12;
+
+    /**
+     * Media types resolved per lower case file extension, {@link #OCTET_STREAM} if unknown
+     */
+    private static final Map<String, MediaType> EXTENSIONS = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final long length;
+    private final MediaType type;
+
+    private FileRequestBody(@NotNull Path file, long length, @NotNull MediaType type) {
+        this.file = file;
+        this.length = length;
+        this.type = type;
+    }
+
+    /**
+     * Create a body of a file, resolving its media type.
+     *
+     * @param file The file to upload
+     * @return The file request body
+     * @throws IOException If the file cannot be read
+     */
+    public static @NotNull FileRequestBody of(@NotNull Path file) throws IOException {
+        MediaType type = getExtensionType(file);
+        if(type != OCTET_STREAM) return new FileRequestBody(file, Files.size(file), type);
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC_LENGTH);
+            int read = 0;
+            while(header.hasRemaining() && read >= 0) read = channel.read(header);
+            header.flip();
+
+            MediaType detected = getMagicType(header);
+            return new FileRequestBody(file, channel.size(), detected != null? detected : OCTET_STREAM);
+        }
+    }
+
+    /**
+     * Create a body of a file with a known media type.
+     *
+     * @param file The file to upload
+     * @param type The media type of the file
+     * @return The file request body
+     * @throws IOException If the file size cannot be read
+     */
+    public static @NotNull FileRequestBody of(@NotNull Path file, @NotNull MediaType type) throws IOException {
+        return new FileRequestBody(file, Files.size(file), type);
+    }
+
+    @Override
+    public @NotNull MediaType contentType() {
+        return type;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(@NotNull BufferedSink sink) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() != length)
+                throw new IOException("File " + file + " changed size from " + length + " to " + channel.size() + " bytes");
+
+            long position = 0;
+            while(position < length) {
+                long transferred = channel.transferTo(position, length - position, sink);
+                if(transferred <= 0) throw new IOException("File " + file + " was truncated while uploading");
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Get the file this body uploads.
+     *
+     * @return The file path
+     */
+    public @NotNull Path getFile() {
+        return file;
+    }
+
+    /**
+     * Get the media type of a file extension, resolved once per extension.
+     *
+     * @param file The file, only its name is used
+     * @return The media type, or {@link #OCTET_STREAM} if the extension is unknown
+     */
+    public static @NotNull MediaType getExtensionType(@NotNull Path file) {
+        Path name = file.getFileName();
+        String fileName = name == null? "" : name.toString();
+        int dot = fileName.lastIndexOf('.');
+        if(dot < 0) return OCTET_STREAM;
+
+        return EXTENSIONS.computeIfAbsent(fileName.substring(dot + 1).toLowerCase(Locale.ROOT), extension -> {
+            String probed = null;
+            try { probed = Files.probeContentType(Path.of("file." + extension)); }
+            catch (IOException | RuntimeException ignored) {}
+
+            MediaType type = probed == null? null : MediaType.parse(probed);
+            return type != null? type : OCTET_STREAM;
+        });
+    }
+
+    /**
+     * Detect the media type of a file from its leading bytes.
+     *
+     * @param header The leading bytes of the file, from its position to its limit
+     * @return The media type, or null if the bytes match no known type
+     */
+    public static @Nullable MediaType getMagicType(@NotNull ByteBuffer header) {
+        for(Magic magic : Magic.values())
+            if(magic.matches(header)) return magic.type;
+        return null;
+    }
+
+    /**
+     * Leading byte signatures of the attachment types discord previews
+     */
+    private enum Magic {
+        PNG("image/png", 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A),
+        JPEG("image/jpeg", 0, 0xFF, 0xD8, 0xFF),
+        GIF("image/gif", 0, 'G', 'I', 'F', '8'),
+        WEBP("image/webp", 8, 'W', 'E', 'B', 'P'),
+        MP4("video/mp4", 4, 'f', 't', 'y', 'p'),
+        PDF("application/pdf", 0, '%', 'P', 'D', 'F'),
+        ZIP("application/zip", 0, 'P', 'K', 0x03, 0x04),
+        GZIP("application/gzip", 0, 0x1F, 0x8B);
+
+        private final MediaType type;
+        private final int offset;
+        private final byte[] signature;
+
+        Magic(@NotNull String type, int offset, int... signature) {
+            this.type = MediaType.get(type);
+            this.offset = offset;
+            this.signature = new byte[signature.length];
+            for(int i = 0; i < signature.length; i++) this.signature[i] = (byte) signature[i];
+        }
+
+        private boolean matches(@NotNull ByteBuffer header) {
+            if(header.remaining() < offset + signature.length) return false;
+            for(int i = 0; i < signature.length; i++)
+                if(header.get(header.position() + offset + i) != signature[i]) return false;
+            return true;
+        }
+    }
+}
@@ -4,7 +4,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.EnumMap;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -44,6 +43,8 @@ public enum IDPattern {
      * Matches component IDs in the format: {@code <plugin>/<type>/<id>/<user>} or {@code <plugin>/<type>/<id>/<user>/<payload>}.
      * <p>
      * Regex pattern used: {@code "^(?<plugin>\\w+)/(?<type>\\w+)/(?<id>\\w+)/(?<user>\\w+)(?:/(?<payload>.*?))?/?$"}
+     * <p>
+     * Kept as the reference of the convention, parsing is done by {@link ComponentID#parse(String)}.
      */
     public static final Pattern COMPONENT_PATTERN = Pattern.compile(
         String.format(
@@ -60,20 +61,41 @@ public enum IDPattern {
      * Parses a {@code custom_id} string to extract the components based on the {@link IDPattern} convention.
      * The returned {@link EnumMap} maps {@link IDPattern} values to their corresponding extracted string values.
      *
+     * <p>Prefer {@link ComponentID#parse(String)} which allocates no map nor substring,
+     * this method is a wrapper of it producing the same result as {@link #COMPONENT_PATTERN}.
+     * {@link CompactID Compact} IDs are accepted too, with their snowflakes as decimal strings
+     * and their payload as the raw encoded segment.</p>
+     *
      * @param customId the {@code custom_id} string to be parsed
      * @return an {@link EnumMap} with the extracted components, or {@code null} if the {@code custom_id} doesn't match the pattern
      */
     @Nullable
     public static EnumMap<IDPattern, String> parseCustomID(@NotNull String customId) {
-        Matcher matcher = COMPONENT_PATTERN.matcher(customId);
-        if (!matcher.matches()) return null;
+        ComponentID parsed = ComponentID.parse(customId);
+        if (parsed == null) return null;
 
         EnumMap<IDPattern, String> result = new EnumMap<>(IDPattern.class);
         for (IDPattern component : values()) {
 
-            String value = matcher.group(component.group);
+            String value = component.of(parsed);
             if (value != null) result.put(component, value);
         }
         return result;
     }
+
+    /**
+     * Get the value of this pattern group from a parsed ID.
+     *
+     * @param parsed The parsed {@code custom_id}
+     * @return The group value, or {@code null} if the group is absent
+     */
+    public @Nullable String of(@NotNull ComponentID parsed) {
+        return switch (this) {
+            case PLUGIN -> parsed.getPlugin();
+            case TYPE -> parsed.getType();
+            case ID -> parsed.getID();
+            case USER -> parsed.getUserID();
+            case PAYLOAD -> parsed.getPayload();
+        };
+    }
 }
\ No newline at end of file
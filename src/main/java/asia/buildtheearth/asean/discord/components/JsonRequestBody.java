@@ -0,0 +1,93 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
+import github.scarsz.discordsrv.dependencies.okhttp3.RequestBody;
+import github.scarsz.discordsrv.dependencies.okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Request body streaming a JSON data tree straight to the request sink.
+ *
+ * <p>The tree of maps, lists and plain values held by a {@link DataObject} is encoded
+ * to UTF-8 through a small per-thread buffer while the request is written,
+ * without serializing it to an intermediate {@link String} first.
+ * The content length is counted by a first encoding pass that writes nothing,
+ * so the request keeps a fixed length instead of a chunked one.</p>
+ *
+ * <p>The data tree is read each time the body is written, it must not be modified while the request is running.</p>
+ *
+ * <blockquote>{@snippet :
+ * MultipartBody body = new MultipartBody.Builder()
+ *     .setType(MultipartBody.FORM)
+ *     .addFormDataPart("payload_json", null, new JsonRequestBody(data.toMap()))
+ *     .build();
+ * }</blockquote>
+ */
+public final class JsonRequestBody extends RequestBody {
+
+    /**
+     * The {@code application/json} media type of every JSON body.
+     */
+    public static final MediaType JSON = MediaType.get("application/json");
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] encoded;
+    private final Map<String, ?> data;
+    private final long session = JsonWriter.session();
+    private long length = -1;
+
+    /**
+     * Create a body streaming a JSON object.
+     *
+     * @param data The JSON object as a map of plain values, maps and lists
+     */
+    public JsonRequestBody(@NotNull Map<String, ?> data) {
+        this(EMPTY, data);
+    }
+
+    /**
+     * Create a body of a JSON object starting with members already encoded.
+     *
+     * @param encoded The leading object members encoded in UTF-8, without the object braces
+     * @param data The following object members as a map of plain values, maps and lists
+     */
+    public JsonRequestBody(byte @NotNull [] encoded, @NotNull Map<String, ?> data) {
+        this.encoded = encoded;
+        this.data = data;
+    }
+
+    @Override
+    public @NotNull MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if(length < 0) {
+            JsonWriter counter = JsonWriter.counting(session);
+            write(counter);
+            length = counter.count();
+        }
+        return length;
+    }
+
+    @Override
+    public void writeTo(@NotNull BufferedSink sink) throws IOException {
+        JsonWriter writer = JsonWriter.streaming(sink, session);
+        write(writer);
+        writer.flush();
+    }
+
+    private void write(@NotNull JsonWriter writer) throws IOException {
+        writer.write('{');
+        writer.raw(encoded);
+        if(encoded.length > 0 && !data.isEmpty()) writer.write(',');
+        writer.members(data);
+        writer.write('}');
+    }
+}
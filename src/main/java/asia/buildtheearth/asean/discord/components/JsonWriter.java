@@ -0,0 +1,373 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.SerializableData;
+import github.scarsz.discordsrv.dependencies.okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single pass UTF-8 JSON encoder of a data tree, writing to a sink through a pooled buffer,
+ * to a growing in-memory buffer, or only counting the encoded bytes.
+ *
+ * <p>The output is the same as {@link github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject#toString()
+ * DataObject.toString()} of the same tree, except that a NaN or infinite number is rejected
+ * instead of being written as a string.</p>
+ *
+ * @see JsonRequestBody
+ * @see WebhookTemplate
+ */
+class JsonWriter {
+
+    /**
+     * Size of a pooled buffer, one okio segment
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Largest in-memory buffer kept pooled after it grew
+     */
+    private static final int MAX_POOLED_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private static final AtomicLong SESSIONS = new AtomicLong();
+
+    private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+    private final @Nullable BufferedSink sink;
+    private final boolean growable;
+    private final long session;
+    private byte[] buffer;
+    private int position;
+    private long count;
+
+    JsonWriter(@Nullable BufferedSink sink, byte[] buffer, boolean growable, long session) {
+        this.sink = sink;
+        this.buffer = buffer;
+        this.growable = growable;
+        this.session = session;
+    }
+
+    JsonWriter(@Nullable BufferedSink sink, byte[] buffer, boolean growable) {
+        this(sink, buffer, growable, session());
+    }
+
+    /**
+     * Start an encoding session, shared by the writers of every pass over the same data.
+     *
+     * @return The session, never 0
+     * @see CompactMap
+     */
+    static long session() {
+        return SESSIONS.incrementAndGet();
+    }
+
+    /**
+     * Create a writer only counting the encoded bytes.
+     *
+     * @param session The encoding session
+     * @return The counting writer
+     */
+    static @NotNull JsonWriter counting(long session) {
+        return new JsonWriter(null, null, false, session);
+    }
+
+    /**
+     * Create a writer flushing a pooled buffer to a sink, {@link #flush()} must be called once done.
+     *
+     * @param sink The sink to write to
+     * @param session The encoding session
+     * @return The streaming writer
+     */
+    static @NotNull JsonWriter streaming(@NotNull BufferedSink sink, long session) {
+        return new JsonWriter(sink, BUFFERS.get(), false, session);
+    }
+
+    /**
+     * Create a writer into a pooled buffer growing as needed, read by {@link #toByteArray()}.
+     *
+     * @return The in-memory writer
+     */
+    static @NotNull JsonWriter memory() {
+        return new JsonWriter(null, BUFFERS.get(), true);
+    }
+
+    /**
+     * Get the number of bytes encoded so far.
+     *
+     * @return The encoded byte count
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * Copy the encoded bytes of an in-memory writer, releasing its buffer.
+     *
+     * @return The encoded bytes
+     */
+    byte @NotNull [] toByteArray() {
+        byte[] bytes = Arrays.copyOf(buffer, position);
+        if(buffer.length >= BUFFER_SIZE && buffer.length <= MAX_POOLED_SIZE) BUFFERS.set(buffer);
+        position = 0;
+        return bytes;
+    }
+
+    /**
+     * Called on a value that is a {@link WebhookTemplate.Hole}.
+     *
+     * @param hole The template hole
+     * @throws IOException If the writer fails
+     * @throws IllegalArgumentException By default, a hole only has a meaning to a template
+     */
+    void hole(@NotNull WebhookTemplate.Hole hole) throws IOException {
+        throw new IllegalArgumentException("Template hole " + hole.getName() + " cannot be written outside a WebhookTemplate");
+    }
+
+    void value(@Nullable Object value) throws IOException {
+        // Exact classes first, an interface check is slow to fail
+        switch(value) {
+            case null -> ascii("null");
+            case String text -> string(text);
+            case Integer number -> integer(number);
+            case CompactMap map -> compact(map);
+            case CompactList list -> array(list);
+            case CharSequence text -> string(text);
+            case Boolean bool -> ascii(bool? "true" : "false");
+            case Long number -> integer(number);
+            case Short number -> integer(number);
+            case Byte number -> integer(number);
+            case BigInteger number -> ascii(number.toString());
+            case BigDecimal number -> ascii(number.toString());
+            case Float number -> decimal(number, Float.toString(number));
+            case Number number -> decimal(number.doubleValue(), Double.toString(number.doubleValue()));
+            case Map<?, ?> map -> object(map);
+            case Collection<?> list -> array(list);
+            case DataArray array -> array(array.toList());
+            case WebhookTemplate.Hole hole -> hole(hole);
+            case SerializableData serializable -> object(serializable.toData().toMap());
+            case Enum<?> constant -> string(constant.name());
+            default -> string(value.toString());
+        }
+    }
+
+    void object(@NotNull Map<?, ?> map) throws IOException {
+        write('{');
+        members(map);
+        write('}');
+    }
+
+    /**
+     * Write a compact map from its memoized bytes, encoding only the maps below it that changed.
+     *
+     * @param map The compact map
+     * @throws IOException If the writer fails
+     */
+    void compact(@NotNull CompactMap map) throws IOException {
+        byte[] encoded = map.encoded(session);
+        if(encoded != null) raw(encoded);
+        else fields(map);
+    }
+
+    /**
+     * Encode a compact map from its pre-encoded keys, without iterating its entries.
+     *
+     * @param map The compact map
+     * @throws IOException If the writer fails
+     */
+    void fields(@NotNull CompactMap map) throws IOException {
+        write('{');
+        boolean first = true;
+        for(int i = 0; i < map.values.length; i++) {
+            Object value = map.values[i];
+            if(value == null) continue;
+
+            if(!first) write(',');
+            first = false;
+            raw(map.shape.encodedKeys[i]);
+            value(CompactMap.unwrap(value));
+        }
+        if(map.extra != null && !map.extra.isEmpty()) {
+            if(!first) write(',');
+            members(map.extra);
+        }
+        write('}');
+    }
+
+    /**
+     * Write the members of an object without its braces.
+     *
+     * @param map The object members
+     * @throws IOException If the writer fails
+     */
+    void members(@NotNull Map<?, ?> map) throws IOException {
+        boolean first = true;
+        for(Map.Entry<?, ?> entry : map.entrySet()) {
+            if(!first) write(',');
+            first = false;
+            member(String.valueOf(entry.getKey()), entry.getValue());
+        }
+    }
+
+    void member(@NotNull String key, @Nullable Object value) throws IOException {
+        string(key);
+        write(':');
+        value(value);
+    }
+
+    void array(@NotNull Collection<?> list) throws IOException {
+        write('[');
+        boolean first = true;
+        for(Object element : list) {
+            if(!first) write(',');
+            first = false;
+            value(element);
+        }
+        write(']');
+    }
+
+    void string(@NotNull CharSequence text) throws IOException {
+        write('"');
+        for(int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+
+            if(c >= 0x20 && c < 0x80) {
+                if(c == '"' || c == '\\') write('\\');
+                write(c);
+            }
+            else if(c < 0x20) escape(c);
+            else if(c < 0x800) {
+                write(0xC0 | (c >> 6));
+                write(0x80 | (c & 0x3F));
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                write(0xF0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3F));
+                write(0x80 | ((codePoint >> 6) & 0x3F));
+                write(0x80 | (codePoint & 0x3F));
+            }
+            else if(Character.isSurrogate(c)) write('?');
+            else {
+                write(0xE0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3F));
+                write(0x80 | (c & 0x3F));
+            }
+        }
+        write('"');
+    }
+
+    private void escape(char c) throws IOException {
+        write('\\');
+        switch(c) {
+            case '\n' -> write('n');
+            case '\r' -> write('r');
+            case '\t' -> write('t');
+            case '\b' -> write('b');
+            case '\f' -> write('f');
+            default -> {
+                write('u');
+                write('0');
+                write('0');
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xF]);
+            }
+        }
+    }
+
+    /**
+     * Write an integer without formatting it to a string first.
+     *
+     * @param number The integer
+     * @throws IOException If the writer fails
+     */
+    void integer(long number) throws IOException {
+        if(number == Long.MIN_VALUE) {
+            ascii(Long.toString(number));
+            return;
+        }
+        if(number < 0) {
+            write('-');
+            number = -number;
+        }
+
+        long divisor = 1;
+        while(divisor <= number / 10) divisor *= 10;
+        for(; divisor > 0; divisor /= 10) write((int) ('0' + number / divisor % 10));
+    }
+
+    /**
+     * Write a floating point number as formatted, JSON has no representation of NaN nor infinity.
+     *
+     * @param number The number
+     * @param text The number formatted by {@link Double#toString(double)} or {@link Float#toString(float)}
+     * @throws IOException If the writer fails
+     * @throws IllegalArgumentException If the number is NaN or infinite
+     */
+    private void decimal(double number, @NotNull String text) throws IOException {
+        if(!Double.isFinite(number)) throw new IllegalArgumentException("JSON cannot represent the number " + text);
+        ascii(text);
+    }
+
+    void ascii(@NotNull String text) throws IOException {
+        for(int i = 0; i < text.length(); i++) write(text.charAt(i));
+    }
+
+    /**
+     * Write bytes already encoded.
+     *
+     * @param bytes The encoded bytes
+     * @throws IOException If the writer fails
+     */
+    void raw(byte @NotNull [] bytes) throws IOException {
+        count += bytes.length;
+        if(buffer == null) return;
+
+        if(growable) ensure(bytes.length);
+        else if(bytes.length > BUFFER_SIZE - position) {
+            flush();
+            if(bytes.length > BUFFER_SIZE) {
+                if(sink != null) sink.write(bytes);
+                return;
+            }
+        }
+
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    void write(int b) throws IOException {
+        count++;
+        if(buffer == null) return;
+
+        if(position == buffer.length) {
+            if(growable) ensure(1);
+            else flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void ensure(int length) {
+        if(buffer.length - position >= length) return;
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+    }
+
+    /**
+     * Write the buffered bytes to the sink.
+     *
+     * @throws IOException If the sink fails
+     */
+    void flush() throws IOException {
+        if(sink != null && position > 0) sink.write(buffer, 0, position);
+        position = 0;
+    }
+}
@@ -0,0 +1,201 @@
+package asia.buildtheearth.asean.discord.components;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local storage of component payloads that do not fit in a 100 characters {@code custom_id}.
+ *
+ * <p>Each plugin has its own store, resolved by the plugin field of the component ID.
+ * An overflowing payload is stored in a fixed ring buffer and replaced in the ID by a short token,
+ * {@value #MARKER} followed by a per-boot epoch and a sequence number in base64url.
+ * Resolving a token is a single array read: the sequence number is the slot index,
+ * verified against the stored sequence so that an overwritten slot is never mistaken.
+ * The epoch rejects tokens issued before a restart.</p>
+ *
+ * <p>A store is bounded by its capacity, {@link #DEFAULT_CAPACITY} payloads unless configured
+ * by {@link asia.buildtheearth.asean.discord.providers.ComponentProvider#getPayloadOverflowCapacity()}.
+ * The oldest payload is overwritten first, and each payload expires after {@link #TIME_TO_LIVE},
+ * the lifetime of an interaction token. A payload overwritten before it expires can no longer be resolved,
+ * such overwrites are counted by {@link #getOverwrites()} to tell that the capacity is too small.</p>
+ *
+ * @see asia.buildtheearth.asean.discord.providers.ComponentProvider#isPayloadOverflow()
+ * @see PluginComponent#getPayload()
+ */
+public final class PayloadOverflow {
+
+    /**
+     * Reserved payload prefix of an overflow token, payloads starting with it are never taken literally.
+     */
+    public static final String MARKER = "~!";
+
+    /**
+     * Default maximum number of payloads stored at once by a plugin.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Time to live of every stored payload.
+     */
+    public static final Duration TIME_TO_LIVE = Duration.ofMinutes(15);
+
+    /**
+     * Maximum length of a stored payload.
+     */
+    public static final int MAX_PAYLOAD_LENGTH = 16 * 1024;
+
+    private static final int EPOCH_LENGTH = 4;
+    private static final ConcurrentHashMap<String, PayloadOverflow> STORES = new ConcurrentHashMap<>();
+
+    /**
+     * A stored payload and the sequence number it was stored with
+     */
+    private record Slot(long sequence, @NotNull String payload, long expiresAt) {}
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder overwrites = new LongAdder();
+    private final int capacity;
+    private final long ttl;
+    private final String epoch;
+
+    PayloadOverflow(int capacity, long ttlMillis) {
+        if(capacity <= 0) throw new IllegalArgumentException("Overflow capacity must be positive");
+
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.ttl = ttlMillis;
+
+        int random = new SecureRandom().nextInt();
+        char[] epoch = new char[EPOCH_LENGTH];
+        for(int i = 0; i < EPOCH_LENGTH; i++) epoch[i] = CompactID.digit(random >>> (i * 6));
+        this.epoch = new String(epoch);
+    }
+
+    /**
+     * Get the payload overflow store of a plugin, creating it on first use.
+     * The capacity is fixed by the call creating the store.
+     *
+     * @param plugin The plugin name, as in the plugin field of its component IDs
+     * @param capacity Maximum number of payloads stored at once, if the store is created
+     * @return The store of this plugin
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public static @NotNull PayloadOverflow of(@NotNull String plugin, int capacity) {
+        if(capacity <= 0) throw new IllegalArgumentException("Overflow capacity must be positive");
+        return STORES.computeIfAbsent(plugin, name -> new PayloadOverflow(capacity, TIME_TO_LIVE.toMillis()));
+    }
+
+    /**
+     * Find the payload overflow store of a plugin.
+     *
+     * @param plugin The plugin name, as in the plugin field of its component IDs
+     * @return The store of this plugin, {@code null} if it never stored a payload
+     */
+    public static @Nullable PayloadOverflow find(@NotNull String plugin) {
+        return STORES.get(plugin);
+    }
+
+    /**
+     * Get the maximum number of payloads of this store.
+     *
+     * @return The capacity of this store
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Count the payloads overwritten before they expired, which can no longer be resolved.
+     * A growing count means the capacity is too small for the payloads stored within {@link #TIME_TO_LIVE}.
+     *
+     * @return The number of live payloads overwritten since this store was created
+     */
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+
+    /**
+     * Check if a payload is an overflow token.
+     *
+     * @param payload The payload to check
+     * @return True if the payload starts with {@link #MARKER}
+     */
+    public static boolean isToken(@Nullable String payload) {
+        return payload != null && payload.startsWith(MARKER);
+    }
+
+    /**
+     * Store a payload, overwriting the oldest one if full.
+     * Overwriting a payload that has not expired yet is counted by {@link #getOverwrites()}.
+     *
+     * @param payload The payload to store
+     * @return The token to put in the {@code custom_id} payload field, in place of the payload
+     * @throws IllegalArgumentException If the payload exceeds {@link #MAX_PAYLOAD_LENGTH}
+     */
+    public @NotNull String store(@NotNull String payload) {
+        if(payload.length() > MAX_PAYLOAD_LENGTH)
+            throw new IllegalArgumentException("Overflow payload must not exceed " + MAX_PAYLOAD_LENGTH + " characters");
+
+        long seq = sequence.getAndIncrement();
+        long now = System.currentTimeMillis();
+
+        Slot previous = slots.getAndSet((int) (seq % capacity), new Slot(seq, payload, now + ttl));
+        if(previous != null && previous.expiresAt() > now) overwrites.increment();
+
+        StringBuilder token = new StringBuilder(MARKER.length() + EPOCH_LENGTH + 11).append(MARKER).append(epoch);
+
+        // Sequence in base64url, most significant digit first
+        int digits = Math.max(1, (64 - Long.numberOfLeadingZeros(seq) + 5) / 6);
+        for(int i = digits - 1; i >= 0; i--) token.append(CompactID.digit(seq >>> (i * 6)));
+
+        return token.toString();
+    }
+
+    /**
+     * Resolve a token to its stored payload.
+     *
+     * @param raw The string holding the token
+     * @param start The start of the token, at its {@link #MARKER}
+     * @param end The end of the token
+     * @return The stored payload, {@code null} if the token is malformed, from a previous boot,
+     *         overwritten or expired
+     */
+    public @Nullable String resolve(@NotNull String raw, int start, int end) {
+        int body = start + MARKER.length() + EPOCH_LENGTH;
+        if(end <= body || end - body > 11) return null;
+        if(!raw.startsWith(MARKER, start) || !raw.startsWith(epoch, start + MARKER.length())) return null;
+
+        long seq = 0;
+        for(int i = body; i < end; i++) {
+            int value = CompactID.valueOf(raw.charAt(i));
+            if(value < 0) return null;
+            seq = seq << 6 | value;
+        }
+
+        if(seq < 0) return null;
+
+        Slot slot = slots.get((int) (seq % capacity));
+        if(slot == null || slot.sequence() != seq || slot.expiresAt() <= System.currentTimeMillis()) return null;
+
+        return slot.payload();
+    }
+
+    /**
+     * Resolve a token to its stored payload.
+     *
+     * @param token The token as returned by {@link #store(String)}
+     * @return The stored payload, {@code null} if the token is malformed, from a previous boot,
+     *         overwritten or expired
+     */
+    public @Nullable String resolve(@NotNull String token) {
+        return resolve(token, 0, token.length());
+    }
+}
@@ -1,7 +1,6 @@
 package asia.buildtheearth.asean.discord.components;
 
 import github.scarsz.discordsrv.dependencies.jda.api.interactions.components.Component;
-import github.scarsz.discordsrv.dependencies.jda.internal.utils.Checks;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -15,22 +14,152 @@ import java.util.function.BiFunction;
  * Will throw {@link IllegalArgumentException} on creation
  * if the given component is not registered by this plugin.
  *
+ * <p>Use {@link #of(Plugin, Component)} to validate a component without any exception,
+ * which is the common case of component events from other bots of the same guild.</p>
+ *
  * @param <T> The component type of this referring plugin-component
  */
 public class PluginComponent<T extends Component> {
 
     /**
-     * The parsed component ID as {@link IDPattern}
+     * Reason of a component validation result.
      *
-     * @see IDPattern#parseCustomID(String)
+     * @see Result#getReason()
      */
-    private final java.util.EnumMap<IDPattern, String> dataID;
+    public enum Reason {
+        /** The component is a valid plugin component */
+        VALID("Component is valid"),
+        /** No component is given */
+        NULL_COMPONENT("Component cannot be null"),
+        /** The component has no {@code custom_id}, such as a link button */
+        NO_ID("Component has no ID to parse"),
+        /** The component ID is not prefixed by this plugin name, mostly components of other bots */
+        FOREIGN_PLUGIN("Component is not created from this plugin"),
+        /** The component ID is prefixed by this plugin name but does not follow the ID convention */
+        MALFORMED_ID("Component ID is invalid"),
+        /** The unique ID field is not a discord snowflake */
+        INVALID_ID("Component ID is not a valid snowflake value"),
+        /** The user ID field is not a discord snowflake */
+        INVALID_USER("Component's USER ID is not a valid snowflake value");
+
+        private final String message;
+
+        Reason(@NotNull String message) {
+            this.message = message;
+        }
+
+        /**
+         * Get the human-readable message of this reason.
+         *
+         * @return The message, used as the exception message of the throwing constructor
+         */
+        public @NotNull String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Non-throwing result of a component validation.
+     * Rejected results are shared constants, so rejecting a component allocates nothing.
+     *
+     * @param <V> The validated value type
+     */
+    public static final class Result<V> {
+
+        private static final Result<?>[] REJECTED = new Result<?>[Reason.values().length];
+
+        static {
+            for(Reason reason : Reason.values()) REJECTED[reason.ordinal()] = new Result<>(null, reason);
+        }
+
+        private final @Nullable V value;
+        private final @NotNull Reason reason;
+
+        private Result(@Nullable V value, @NotNull Reason reason) {
+            this.value = value;
+            this.reason = reason;
+        }
+
+        private static <V> @NotNull Result<V> valid(@NotNull V value) {
+            return new Result<>(value, Reason.VALID);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> @NotNull Result<V> rejected(@NotNull Reason reason) {
+            return (Result<V>) REJECTED[reason.ordinal()];
+        }
+
+        /**
+         * Check if the component is valid.
+         *
+         * @return True if {@link #get()} has a value
+         */
+        public boolean isValid() {
+            return reason == Reason.VALID;
+        }
+
+        /**
+         * Get the reason of this result.
+         *
+         * @return {@link Reason#VALID} if valid, otherwise why the component is rejected
+         */
+        public @NotNull Reason getReason() {
+            return reason;
+        }
+
+        /**
+         * Get the validated value.
+         *
+         * @return The value of a valid result
+         * @throws IllegalStateException If the result is rejected
+         */
+        public @NotNull V get() throws IllegalStateException {
+            if(value == null) throw new IllegalStateException(reason.getMessage());
+            return value;
+        }
+
+        /**
+         * Get the validated value as an optional.
+         *
+         * @return The value, or {@link Optional#empty() empty} if rejected
+         */
+        public @NotNull Optional<V> toOptional() {
+            return Optional.ofNullable(value);
+        }
+    }
+
+    /**
+     * A component ID validated for a plugin, handed to the constructor called right after validation
+     */
+    private record Validated(@NotNull Plugin plugin, @NotNull Component component, @NotNull ComponentID parsed) {}
+
+    /**
+     * The ID validated by {@link #getOpt(Plugin, Component, BiFunction)} for the constructor it calls on this thread
+     */
+    private static final ThreadLocal<Validated> VALIDATED = new ThreadLocal<>();
+
+    /**
+     * The parsed component ID
+     *
+     * @see ComponentID#parse(String)
+     */
+    private final ComponentID dataID;
 
     /**
      * The raw {@code custom_id} of this component
      */
     private final String rawID;
 
+    /**
+     * The component's unique snowflake ID
+     */
+    private final long id;
+
+    /**
+     * The component's owner snowflake ID
+     */
+    private final long userID;
+
     /**
      * The instance of this plugin component
      */
@@ -45,23 +174,99 @@ public class PluginComponent<T extends Component> {
      */
     @Contract("_, null -> fail")
     public PluginComponent(@NotNull Plugin plugin, @Nullable T component) throws IllegalArgumentException {
-        if(component == null) throw new IllegalArgumentException("Component cannot be null");
-        if(component.getId() == null) throw new IllegalArgumentException("Component has no ID to parse");
+        this(component, validated(plugin, component));
+    }
 
+    /**
+     * Create a plugin component from an already validated ID.
+     *
+     * @param component The component data.
+     * @param parsed The validated ID of this component, as given by {@link #validate(Plugin, Component)}.
+     */
+    protected PluginComponent(@NotNull T component, @NotNull ComponentID parsed) {
         this.component = component;
-        this.rawID = component.getId();
-        this.dataID = IDPattern.parseCustomID(this.rawID);
+        this.rawID = parsed.getRawID();
+        this.dataID = parsed;
+        this.id = parsed.getIDLong();
+        this.userID = parsed.getUserIDLong();
+    }
 
-        // Invalid button ID (possibly from other bots)
-        if (dataID == null)
-            throw new IllegalArgumentException("Component is not created from this plugin");
+    private static @NotNull ComponentID validated(@NotNull Plugin plugin, @Nullable Component component) {
+        // Already validated by getOpt, the ID is not parsed twice
+        Validated validated = VALIDATED.get();
+        if(validated != null && validated.plugin() == plugin && validated.component() == component) {
+            VALIDATED.remove();
+            return validated.parsed();
+        }
+
+        Result<ComponentID> result = validate(plugin, component);
+        if(!result.isValid()) throw new IllegalArgumentException(result.getReason().getMessage());
+        return result.get();
+    }
 
-        // If for whatever reason the button is not from this plugin
-        if (!dataID.get(IDPattern.PLUGIN).equals(plugin.getName()))
-            throw new IllegalArgumentException("Component ID is invalid");
+    /**
+     * Validate a component as registered by a plugin, without any exception.
+     *
+     * <p>Components of other plugins or bots are rejected by their prefix
+     * before the ID is parsed.</p>
+     *
+     * @param plugin The plugin that is supposed to register this component.
+     * @param component The component data to be validated.
+     * @return The result with the parsed ID if valid
+     */
+    public static @NotNull Result<ComponentID> validate(@NotNull Plugin plugin, @Nullable Component component) {
+        if(component == null) return Result.rejected(Reason.NULL_COMPONENT);
+
+        String raw = component.getId();
+        if(raw == null) return Result.rejected(Reason.NO_ID);
+
+        // Matched in place against the plugin name followed by a slash, nothing is cached across plugins
+        String name = plugin.getName();
+        if(raw.length() <= name.length() || raw.charAt(name.length()) != '/' || !raw.startsWith(name))
+            return Result.rejected(Reason.FOREIGN_PLUGIN);
+
+        ComponentID parsed = ComponentID.parse(raw);
+        if(parsed == null) return Result.rejected(Reason.MALFORMED_ID);
+        if(!parsed.isSnowflakeID()) return Result.rejected(Reason.INVALID_ID);
+        if(!parsed.isSnowflakeUser()) return Result.rejected(Reason.INVALID_USER);
+
+        return Result.valid(parsed);
+    }
 
-        Checks.isSnowflake(dataID.get(IDPattern.ID), "Component ID");
-        Checks.isSnowflake(dataID.get(IDPattern.USER), "Component's USER ID");
+    /**
+     * Construct a new {@link PluginComponent} without any exception.
+     *
+     * <p>Usage:</p>
+     * <blockquote> {@snippet :
+     * PluginComponent.Result<PluginComponent<Button>> result = PluginComponent.of(plugin, event.getButton());
+     * if(!result.isValid()) return; // result.getReason() tells why
+     * }</blockquote>
+     *
+     * @param plugin The plugin that is supposed to register this component.
+     * @param component The component data to be parsed.
+     * @return The result holding the new {@link PluginComponent} if valid
+     * @param <T> The component type to be parsed.
+     */
+    public static <T extends Component>
+    @NotNull Result<PluginComponent<T>> of(@NotNull Plugin plugin, @Nullable T component) {
+        return of(plugin, component, PluginComponent::new);
+    }
+
+    /**
+     * Construct a new {@link PluginComponent} subclass without any exception.
+     *
+     * @param plugin The plugin that is supposed to register this component.
+     * @param component The component data to be parsed.
+     * @param constructor The construct to construct a {@link PluginComponent} from its validated ID
+     * @return The result holding the constructed component if valid
+     * @param <T> The component type to be parsed.
+     * @param <V> The {@link PluginComponent} instance which will be constructed.
+     */
+    public static <T extends Component, V extends PluginComponent<T>>
+    @NotNull Result<V> of(@NotNull Plugin plugin, @Nullable T component, @NotNull BiFunction<T, ComponentID, V> constructor) {
+        Result<ComponentID> result = validate(plugin, component);
+        if(!result.isValid() || component == null) return Result.rejected(result.getReason());
+        return Result.valid(constructor.apply(component, result.get()));
     }
 
     /**
@@ -76,6 +281,9 @@ public class PluginComponent<T extends Component> {
     /**
      * Construct a new {@link PluginComponent} instance as an optional.
      *
+     * <p>The component is validated once: a constructor calling {@link #PluginComponent(Plugin, Component)}
+     * with the same plugin and component reuses the validated ID instead of parsing it again.</p>
+     *
      * <p>Usage:</p>
      * <blockquote> {@snippet :
      * import github.scarsz.discordsrv.dependencies.jda.api.interactions.components.Button;
@@ -96,10 +304,17 @@ public class PluginComponent<T extends Component> {
      */
     public static <T extends Component, V extends PluginComponent<T>>
     Optional<V> getOpt(@NotNull Plugin plugin, T component, @NotNull BiFunction<Plugin, T, V> constructor) {
+        // Reject without an exception first, most components are not from this plugin
+        Result<ComponentID> result = validate(plugin, component);
+        if(!result.isValid() || component == null) return Optional.empty();
+
+        VALIDATED.set(new Validated(plugin, component, result.get()));
         try {
             return Optional.of(constructor.apply(plugin, component));
         } catch (IllegalArgumentException ex) {
             return Optional.empty();
+        } finally {
+            VALIDATED.remove();
         }
     }
 
@@ -111,10 +326,11 @@ public class PluginComponent<T extends Component> {
      * @return A new {@link PluginComponent} as provided by constructor parameter which
      *         handled the initial exception as an {@link Optional#empty() empty}.
      * @param <T> The component type to be parsed.
+     * @see #of(Plugin, Component)
      */
     public static <T extends Component>
     Optional<PluginComponent<T>> getOpt(@NotNull Plugin plugin, @Nullable T component) {
-        return getOpt(plugin, component, PluginComponent::new);
+        return of(plugin, component).toOptional();
     }
 
     /**
@@ -123,7 +339,7 @@ public class PluginComponent<T extends Component> {
      * @return The ID as a string.
      */
     public @NotNull String getID() {
-        return dataID.get(IDPattern.ID);
+        return dataID.getID();
     }
 
     /**
@@ -132,16 +348,19 @@ public class PluginComponent<T extends Component> {
      * @return The ID parsed as unsigned long.
      */
     public long getIDLong() {
-        return Long.parseUnsignedLong(dataID.get(IDPattern.ID));
+        return id;
     }
 
     /**
      * Get the optional payload of this component.
      *
-     * @return The payload as a string, null if not exist.
+     * <p>A payload too large for the {@code custom_id} is transparently
+     * resolved from the {@link PayloadOverflow} store.</p>
+     *
+     * @return The payload as a string, null if not exist or if its overflow storage has expired.
      */
     public @Nullable String getPayload() {
-        return dataID.get(IDPattern.PAYLOAD);
+        return dataID.resolvePayload();
     }
 
     /**
@@ -151,8 +370,9 @@ public class PluginComponent<T extends Component> {
      * @throws NumberFormatException if the payload value cannot be parsed as integer
      */
     public @Nullable Integer getIntPayload() {
-        if (getPayload() == null) return null;
-        else return Integer.valueOf(getPayload());
+        String payload = getPayload();
+        if (payload == null) return null;
+        else return Integer.valueOf(payload);
     }
 
     /**
@@ -161,7 +381,7 @@ public class PluginComponent<T extends Component> {
      * @return The type as a string.
      */
     public @NotNull String getType() {
-        return dataID.get(IDPattern.TYPE);
+        return dataID.getType();
     }
 
     /**
@@ -170,7 +390,7 @@ public class PluginComponent<T extends Component> {
      * @return The user ID as a string
      */
     public @NotNull String getUserID() {
-        return dataID.get(IDPattern.USER);
+        return dataID.getUserID();
     }
 
     /**
@@ -179,7 +399,36 @@ public class PluginComponent<T extends Component> {
      * @return The ID parsed as unsigned long.
      */
     public long getUserIDLong() {
-        return Long.parseUnsignedLong(dataID.get(IDPattern.USER));
+        return userID;
+    }
+
+    /**
+     * Check if this component ID is in the {@link CompactID compact} format.
+     *
+     * @return True if compact
+     */
+    public boolean isCompact() {
+        return dataID.isCompact();
+    }
+
+    /**
+     * Read the typed payload fields of a compact component ID.
+     * Fields are decoded in place from the raw ID, without copying it.
+     *
+     * @return A new reader positioned at the first payload field
+     * @throws IllegalStateException If this component ID is not {@link #isCompact() compact}
+     */
+    public @NotNull CompactID.Reader getCompactPayload() {
+        return dataID.getCompactPayload();
+    }
+
+    /**
+     * Get the parsed ID of this component
+     *
+     * @return The parsed {@code custom_id} view
+     */
+    public @NotNull ComponentID getComponentID() {
+        return dataID;
     }
 
     /**
@@ -9,16 +9,11 @@ import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
 import github.scarsz.discordsrv.dependencies.jda.api.utils.data.SerializableData;
 import github.scarsz.discordsrv.dependencies.jda.internal.utils.AllowedMentionsImpl;
 
-import github.scarsz.discordsrv.dependencies.jda.internal.utils.BufferedRequestBody;
-import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
 import github.scarsz.discordsrv.dependencies.okhttp3.MultipartBody;
-import github.scarsz.discordsrv.dependencies.okhttp3.RequestBody;
-import github.scarsz.discordsrv.dependencies.okio.Okio;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.nio.file.Files;
 import java.util.*;
 
 /**
@@ -37,7 +32,8 @@ import java.util.*;
  * }</blockquote>
  *
  * <p><b>Note:</b> File attachments <i>cannot</i> be set through this builder. To include files,
- * use {@link WebhookData#addFile(File)} on the built {@link WebhookData} instance before preparing the request body.</p>
+ * use {@link WebhookData#addFile(File)} or {@link WebhookData#addAttachment(AttachmentSource)}
+ * on the built {@link WebhookData} instance before preparing the request body.</p>
  */
 public class WebhookDataBuilder extends AllowedMentionsImpl {
 
@@ -88,7 +84,7 @@ public class WebhookDataBuilder extends AllowedMentionsImpl {
 
     /**
      * Override default username of the webhook
-     * @param username A username that follows discord API guidelines
+     * @param username A username that follows discord API guidelines, of up to 80 characters
      * @return This builder instance for chaining.
      */
     public WebhookDataBuilder setUsername(@Nullable String username) {
@@ -186,8 +182,8 @@ public class WebhookDataBuilder extends AllowedMentionsImpl {
      * @return The constructed WebhookData object.
      */
     public WebhookData build() {
-        // Parse JSON Parameters
-        DataObject webhookData = DataObject.empty();
+        // Parse JSON Parameters, directly into the built data
+        WebhookData webhookData = new WebhookData(new HashMap<>());
 
         // Set Thread Name
         if(threadName != null) {
@@ -258,7 +254,7 @@ public class WebhookDataBuilder extends AllowedMentionsImpl {
             webhookData.put("allowed_mentions", suppressMention);
         }
 
-        return new WebhookData(webhookData.toMap());
+        return webhookData;
     }
 
     /**
@@ -277,14 +273,25 @@ public class WebhookDataBuilder extends AllowedMentionsImpl {
      * }</pre>
      *
      * @see #addFile(File)
+     * @see #addAttachment(AttachmentSource)
      * @see #prepareRequestBody()
      */
     public static class WebhookData extends DataObject implements SerializableData {
 
-        private @Nullable List<File> attachments = null;
+        private @Nullable List<AttachmentSource> attachments = null;
+
+        /**
+         * Leading payload members already encoded by a {@link WebhookTemplate}
+         */
+        private final byte[] encoded;
 
         private WebhookData(@NotNull Map<String, Object> data) {
+            this(data, new byte[0]);
+        }
+
+        WebhookData(@NotNull Map<String, Object> data, byte @NotNull [] encoded) {
             super(data);
+            this.encoded = encoded;
         }
 
         /**
@@ -297,72 +304,77 @@ public class WebhookDataBuilder extends AllowedMentionsImpl {
             if(file.isDirectory()) throw new IllegalArgumentException("Cannot add folder to WebhookData.");
             if(!file.exists()) throw new IllegalArgumentException("File does not exist in the filesystem to be added.");
 
-            if(attachments == null) attachments = new ArrayList<>(List.of(file));
-            else attachments.add(file);
+            addAttachment(AttachmentSource.of(file));
+        }
+
+        /**
+         * Add a file attachment for the webhook data, from memory or from disk.
+         *
+         * @param attachment The attachment to add
+         * @see AttachmentSource
+         */
+        public void addAttachment(@NotNull AttachmentSource attachment) {
+            if(attachments == null) attachments = new ArrayList<>(List.of(attachment));
+            else attachments.add(attachment);
         }
 
         /**
          * Prepares the complete request body for sending this webhook message to the Discord API.
          * <p>
          * It constructs a {@code multipart/form-data} body containing the
-         * {@code payload_json} part and any file attachments provided via {@link #addFile(File)}.
+         * {@code payload_json} part and any file attachments provided via {@link #addFile(File)}
+         * or {@link #addAttachment(AttachmentSource)}.
+         * The {@code payload_json} part is a {@link JsonRequestBody}, encoded straight into the request
+         * when it is written, so this data must not be modified until the request is sent.
          * </p>
          *
          * @return A {@link MultipartBody} representing the full webhook payload, ready to be sent.
+         * @throws UncheckedIOException if an attached file can no longer be read
          */
         public @NotNull MultipartBody prepareRequestBody() {
 
             MultipartBody.Builder bodyBuilder = new MultipartBody.Builder().setType(MultipartBody.FORM);
 
-            tryAttachFiles(bodyBuilder);
+            attachFiles(bodyBuilder);
 
-            bodyBuilder.addFormDataPart(
-                "payload_json",
-                null,
-                RequestBody.create(
-                    MediaType.get("application/json"),
-                    super.toString()
-                )
-            );
+            // Streamed from the data tree as the request is written
+            bodyBuilder.addFormDataPart("payload_json", null, payload());
 
             return bodyBuilder.build();
         }
 
+        /**
+         * The {@code payload_json} part of this data, template members included
+         *
+         * @return A body streaming this data when written
+         */
+        @NotNull JsonRequestBody payload() {
+            return new JsonRequestBody(encoded, data);
+        }
+
         /**
          * Attach files (if any) to the request body as form-data parts.
          * <p>
-         * Files must be added using {@link #addFile(File)} before calling this method.
-         * If any file cannot be attached, it will be silently skipped.
+         * Files must be added using {@link #addFile(File)} or {@link #addAttachment(AttachmentSource)}
+         * before calling this method. A file on disk is a {@link FileRequestBody}, only opened while the request is written.
          *
          * @param requestBody the MultipartBody builder to add attachments to
+         * @throws UncheckedIOException if any file can no longer be read
          */
-        private void tryAttachFiles(@NotNull MultipartBody.Builder requestBody) {
+        private void attachFiles(@NotNull MultipartBody.Builder requestBody) {
             List<String> attachmentIndex = putAllAttachments();
 
             if (attachmentIndex == null || attachments == null)  return;
 
             for (int i = 0; i < attachmentIndex.size(); i++) {
                 String name = attachmentIndex.get(i);
-                File file = attachments.get(i);
-                InputStream data = null;
-
-                try { data = new FileInputStream(file); }
-                catch (FileNotFoundException ignored) {}
-
-                if (data == null) continue;
+                AttachmentSource attachment = attachments.get(i);
 
                 try {
-                    String mimeType = Files.probeContentType(file.toPath());
-
-                    requestBody.addFormDataPart(
-                        "files[" + i + "]",
-                        name,
-                        new BufferedRequestBody(Okio.source(data), MediaType.parse(mimeType))
-                    );
+                    requestBody.addFormDataPart("files[" + i + "]", name, attachment.toRequestBody());
                 }
-                catch (RuntimeException | IOException ex) {
-                    try { data.close(); }
-                    catch (IOException ignored) {}
+                catch (IOException ex) {
+                    throw new UncheckedIOException("Cannot attach file " + name + " to WebhookData", ex);
                 }
             }
         }
@@ -377,11 +389,11 @@ public class WebhookDataBuilder extends AllowedMentionsImpl {
                 DataArray attachmentArray = DataArray.empty();
 
                 int i = 0;
-                for (File file : attachments) {
-                    attachmentIndex.add(file.getName());
+                for (AttachmentSource attachment : attachments) {
+                    attachmentIndex.add(attachment.getName());
                     DataObject attachmentObject = DataObject.empty();
                     attachmentObject.put("id", i);
-                    attachmentObject.put("filename", file.getName());
+                    attachmentObject.put("filename", attachment.getName());
                     attachmentArray.add(attachmentObject);
                     i++;
                 }
@@ -0,0 +1,374 @@
+package asia.buildtheearth.asean.discord.components;
+
+import asia.buildtheearth.asean.discord.components.api.ComponentV2;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-flight check of a webhook message against the limits discord enforces,
+ * so that an oversized message fails before its body and attachments are uploaded.
+ *
+ * <p>Every limit is checked in a single walk of the message tree, without allocating unless a limit is exceeded.
+ * Each violation is reported with the path to the offending node, such as
+ * {@code components[0].components[3].custom_id}.
+ * A {@link WebhookTemplate} is checked in two steps: its static skeleton when compiled,
+ * then its string hole values each time a message is built from it.</p>
+ *
+ * <blockquote>{@snippet :
+ * WebhookData data = new WebhookDataBuilder()
+ *     .setComponentsV2(List.of(container))
+ *     .forceComponentV2()
+ *     .build();
+ *
+ * for(WebhookLimits.Violation violation : WebhookLimits.validate(data))
+ *     getLogger().warning(violation.toString()); // components[0].components[3].custom_id: is 120 characters long, ...
+ * }</blockquote>
+ *
+ * @see asia.buildtheearth.asean.discord.components.webhook.WebhookDispatcher
+ */
+public final class WebhookLimits {
+
+    /**
+     * Maximum number of components in a message, nested ones included.
+     */
+    public static final int MAX_COMPONENTS = 40;
+
+    /**
+     * Maximum number of characters of every text display of a message together.
+     */
+    public static final int MAX_TEXT_DISPLAY_LENGTH = 4000;
+
+    /**
+     * Maximum number of embeds in a message.
+     */
+    public static final int MAX_EMBEDS = 10;
+
+    /**
+     * Maximum number of characters of the message content.
+     */
+    public static final int MAX_CONTENT_LENGTH = 2000;
+
+    /**
+     * Maximum number of characters of the {@code username} overriding the webhook name.
+     */
+    public static final int MAX_USERNAME_LENGTH = 80;
+
+    /**
+     * Maximum number of characters of a component {@code custom_id}.
+     */
+    public static final int MAX_CUSTOM_ID_LENGTH = 100;
+
+    private static final int TEXT_DISPLAY = 10;
+
+    private static final ThreadLocal<Walker> WALKERS = ThreadLocal.withInitial(Walker::new);
+
+    /**
+     * A limit exceeded by a message.
+     *
+     * @param path The path to the offending node from the message root
+     * @param message What limit is exceeded and by how much
+     */
+    public record Violation(@NotNull String path, @NotNull String message) {
+        @Override
+        public @NotNull String toString() {
+            return path + ": " + message;
+        }
+    }
+
+    /**
+     * Limit of a string hole in a template skeleton.
+     *
+     * @param path The path to the hole from the message root
+     * @param maxLength The maximum number of characters of its value
+     * @param textDisplay Whether its value counts toward {@link #MAX_TEXT_DISPLAY_LENGTH} with the other text displays
+     */
+    record HoleLimit(@NotNull String path, int maxLength, boolean textDisplay) {}
+
+    private WebhookLimits() {}
+
+    /**
+     * Check a message against every limit.
+     *
+     * @param message The message, usually a built {@link WebhookDataBuilder.WebhookData}
+     * @return Every violation in the order found, empty if the message is within limits
+     */
+    public static @NotNull List<Violation> validate(@NotNull DataObject message) {
+        Walker walker = WALKERS.get();
+        try {
+            walker.message(message.toMap());
+            return walker.violations == null? List.of() : walker.violations;
+        }
+        finally {
+            walker.reset();
+        }
+    }
+
+    /**
+     * Check the components of a message against every component limit.
+     *
+     * @param components The top-level components of the message
+     * @return Every violation in the order found, empty if the components are within limits
+     */
+    public static @NotNull List<Violation> validate(@NotNull Collection<? extends ComponentV2> components) {
+        Walker walker = WALKERS.get();
+        try {
+            walker.push("components");
+            int i = 0;
+            for(ComponentV2 component : components) {
+                walker.push(i++);
+                walker.component(component.toMap());
+                walker.pop();
+            }
+            return walker.violations == null? List.of() : walker.violations;
+        }
+        finally {
+            walker.reset();
+        }
+    }
+
+    /**
+     * Check a message against every limit, throwing if it exceeds any.
+     *
+     * @param message The message, usually a built {@link WebhookDataBuilder.WebhookData}
+     * @throws IllegalArgumentException If the message exceeds a limit, listing every violation
+     */
+    public static void check(@NotNull DataObject message) {
+        fail(validate(message));
+    }
+
+    /**
+     * Check the static part of a template skeleton, collecting the limit of every hole it holds.
+     *
+     * @param skeleton The skeleton members, possibly holding {@link WebhookTemplate.Hole} values
+     * @param holes Receiver of the limit of every limited hole
+     * @return The number of characters of the static text displays
+     * @throws IllegalArgumentException If the static part alone exceeds a limit, listing every violation
+     */
+    static int checkSkeleton(@NotNull Map<?, ?> skeleton, @NotNull Map<WebhookTemplate.Hole, HoleLimit> holes) {
+        Walker walker = WALKERS.get();
+        try {
+            walker.holes = holes;
+            walker.message(skeleton);
+            fail(walker.violations == null? List.of() : walker.violations);
+            return walker.textLength;
+        }
+        finally {
+            walker.reset();
+        }
+    }
+
+    /**
+     * Check the values filling the holes of a template.
+     *
+     * @param limits The limit of every hole, null for a hole without one
+     * @param values The value of every hole, in the same order
+     * @param textLength The number of characters of the static text displays
+     * @throws IllegalArgumentException If a value exceeds a limit, listing every violation
+     */
+    static void checkHoles(@Nullable HoleLimit @NotNull [] limits, @Nullable Object @NotNull [] values, int textLength) {
+        List<Violation> violations = null;
+        boolean textReported = false;
+
+        for(int i = 0; i < limits.length; i++) {
+            HoleLimit limit = limits[i];
+            if(limit == null || !(values[i] instanceof CharSequence value)) continue;
+
+            String message = null;
+            if(limit.textDisplay()) {
+                textLength += value.length();
+                if(textLength > MAX_TEXT_DISPLAY_LENGTH && !textReported) {
+                    textReported = true;
+                    message = "brings the text displays to " + textLength + " characters, the limit is " + MAX_TEXT_DISPLAY_LENGTH;
+                }
+            }
+            else if(value.length() > limit.maxLength())
+                message = "is " + value.length() + " characters long, the limit is " + limit.maxLength();
+
+            if(message == null) continue;
+            if(violations == null) violations = new ArrayList<>();
+            violations.add(new Violation(limit.path(), message));
+        }
+
+        if(violations != null) fail(violations);
+    }
+
+    private static void fail(@NotNull List<Violation> violations) {
+        if(violations.isEmpty()) return;
+
+        StringBuilder error = new StringBuilder("Webhook message exceeds discord limits");
+        for(Violation violation : violations) error.append("; ").append(violation);
+        throw new IllegalArgumentException(error.toString());
+    }
+
+    /**
+     * Reusable walk over a message tree, keeping the path as a stack of names and indices
+     */
+    private static final class Walker {
+        private String[] names = new String[16];
+        private int[] indices = new int[16];
+        private int depth;
+
+        private int components;
+        private int textLength;
+        private boolean textReported;
+        private @Nullable List<Violation> violations;
+
+        /**
+         * Receiver of the hole limits when walking a template skeleton
+         */
+        private @Nullable Map<WebhookTemplate.Hole, HoleLimit> holes;
+
+        private void message(@NotNull Map<?, ?> message) {
+            if(message.get("content") instanceof CharSequence content && content.length() > MAX_CONTENT_LENGTH) {
+                push("content");
+                violation("is " + content.length() + " characters long, the limit is " + MAX_CONTENT_LENGTH);
+                pop();
+            }
+            else if(message.get("content") instanceof WebhookTemplate.Hole hole)
+                hole("content", hole, MAX_CONTENT_LENGTH, false);
+
+            if(message.get("username") instanceof CharSequence username && username.length() > MAX_USERNAME_LENGTH) {
+                push("username");
+                violation("is " + username.length() + " characters long, the limit is " + MAX_USERNAME_LENGTH);
+                pop();
+            }
+            else if(message.get("username") instanceof WebhookTemplate.Hole hole)
+                hole("username", hole, MAX_USERNAME_LENGTH, false);
+
+            List<?> embeds = list(message.get("embeds"));
+            if(embeds != null && embeds.size() > MAX_EMBEDS) {
+                push("embeds");
+                violation("holds " + embeds.size() + " embeds, the limit is " + MAX_EMBEDS);
+                pop();
+            }
+
+            children(message, "components");
+        }
+
+        private void children(@NotNull Map<?, ?> parent, @NotNull String key) {
+            List<?> children = list(parent.get(key));
+            if(children == null) return;
+
+            push(key);
+            for(int i = 0, size = children.size(); i < size; i++) {
+                push(i);
+                component(children.get(i));
+                pop();
+            }
+            pop();
+        }
+
+        private void component(@Nullable Object node) {
+            Map<?, ?> component = map(node);
+            if(component == null) return;
+
+            if(++components == MAX_COMPONENTS + 1)
+                violation("is component number " + components + ", the limit is " + MAX_COMPONENTS + " components");
+
+            if(component.get("custom_id") instanceof CharSequence id && id.length() > MAX_CUSTOM_ID_LENGTH) {
+                push("custom_id");
+                violation("is " + id.length() + " characters long, the limit is " + MAX_CUSTOM_ID_LENGTH);
+                pop();
+            }
+            else if(component.get("custom_id") instanceof WebhookTemplate.Hole hole)
+                hole("custom_id", hole, MAX_CUSTOM_ID_LENGTH, false);
+
+            if(component.get("type") instanceof Number type && type.intValue() == TEXT_DISPLAY) {
+                Object text = component.get("content");
+                if(text instanceof CharSequence content) {
+                    textLength += content.length();
+                    if(textLength > MAX_TEXT_DISPLAY_LENGTH && !textReported) {
+                        textReported = true;
+                        push("content");
+                        violation("brings the text displays to " + textLength + " characters, the limit is " + MAX_TEXT_DISPLAY_LENGTH);
+                        pop();
+                    }
+                }
+                else if(text instanceof WebhookTemplate.Hole hole)
+                    hole("content", hole, MAX_TEXT_DISPLAY_LENGTH, true);
+            }
+
+            children(component, "components");
+
+            Object accessory = component.get("accessory");
+            if(accessory != null) {
+                push("accessory");
+                component(accessory);
+                pop();
+            }
+        }
+
+        private static @Nullable Map<?, ?> map(@Nullable Object value) {
+            if(value instanceof Map<?, ?> map) return map;
+            return value instanceof DataObject object? object.toMap() : null;
+        }
+
+        private static @Nullable List<?> list(@Nullable Object value) {
+            if(value instanceof List<?> list) return list;
+            return value instanceof DataArray array? array.toList() : null;
+        }
+
+        private void push(@NotNull String name) {
+            grow();
+            names[depth++] = name;
+        }
+
+        private void push(int index) {
+            grow();
+            names[depth] = null;
+            indices[depth++] = index;
+        }
+
+        private void pop() {
+            depth--;
+        }
+
+        private void grow() {
+            if(depth < names.length) return;
+            names = Arrays.copyOf(names, depth * 2);
+            indices = Arrays.copyOf(indices, depth * 2);
+        }
+
+        private void hole(@NotNull String key, @NotNull WebhookTemplate.Hole hole, int maxLength, boolean textDisplay) {
+            if(holes == null || hole.getType() != WebhookTemplate.Type.STRING) return;
+
+            push(key);
+            holes.put(hole, new HoleLimit(path(), maxLength, textDisplay));
+            pop();
+        }
+
+        private void violation(@NotNull String message) {
+            if(violations == null) violations = new ArrayList<>();
+            violations.add(new Violation(path(), message));
+        }
+
+        private @NotNull String path() {
+            StringBuilder path = new StringBuilder();
+            for(int i = 0; i < depth; i++) {
+                if(names[i] == null) path.append('[').append(indices[i]).append(']');
+                else {
+                    if(!path.isEmpty()) path.append('.');
+                    path.append(names[i]);
+                }
+            }
+            return path.toString();
+        }
+
+        private void reset() {
+            depth = 0;
+            components = 0;
+            textLength = 0;
+            textReported = false;
+            violations = null;
+            holes = null;
+        }
+    }
+}
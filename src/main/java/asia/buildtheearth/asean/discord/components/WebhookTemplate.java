@@ -0,0 +1,357 @@
+package asia.buildtheearth.asean.discord.components;
+
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message skeleton compiled once into encoded JSON segments, with typed holes filled per message.
+ *
+ * <p>A template is compiled from a built {@link WebhookData}. Its top-level fields named on
+ * {@link #compile(WebhookData, String...) compile}, such as {@code content} or {@code username}, become
+ * optional string holes defaulting to the skeleton value; a {@link Hole} put anywhere in the skeleton tree,
+ * such as the content of a {@code TextDisplay}, becomes a required hole of its type.
+ * Everything else, flags, {@code allowed_mentions} and static containers, is encoded once.
+ * Filling a template only writes the escaped hole values between the encoded segments.</p>
+ *
+ * <p>The filled {@link WebhookData} carries its encoded payload, it is not readable as a {@code DataObject}.
+ * Attachments can still be added to it. The static part is checked against {@link WebhookLimits} on compile,
+ * and the string holes it limits, such as {@code content}, {@code username} or a {@code custom_id}, on every build.</p>
+ *
+ * <blockquote>{@snippet :
+ * WebhookTemplate relay = WebhookTemplate.compile(
+ *     new WebhookDataBuilder().suppressMentions().build(),
+ *     "content", "username", "avatar_url"
+ * );
+ *
+ * // Per message
+ * WebhookData data = relay.builder()
+ *     .set("content", message)
+ *     .set("username", player.getName())
+ *     .set("avatar_url", avatarUrl)
+ *     .build();
+ * }</blockquote>
+ */
+public final class WebhookTemplate {
+
+    /**
+     * Type of the value filling a hole.
+     */
+    public enum Type {
+        /** A JSON string, or null */
+        STRING,
+        /** A JSON integer */
+        INTEGER,
+        /** A JSON boolean */
+        BOOLEAN
+    }
+
+    /**
+     * A typed hole in a template skeleton, filled per message.
+     *
+     * @see #string(String)
+     * @see #integer(String)
+     * @see #bool(String)
+     */
+    public static final class Hole {
+        private final String name;
+        private final Type type;
+
+        private Hole(@NotNull String name, @NotNull Type type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        /**
+         * Get the name this hole is filled by.
+         *
+         * @return The hole name
+         */
+        public @NotNull String getName() {
+            return name;
+        }
+
+        /**
+         * Get the type of the value filling this hole.
+         *
+         * @return The hole type
+         */
+        public @NotNull Type getType() {
+            return type;
+        }
+    }
+
+    /**
+     * Create a string hole to put in a template skeleton.
+     *
+     * @param name The hole name
+     * @return The hole
+     */
+    public static @NotNull Hole string(@NotNull String name) {
+        return new Hole(name, Type.STRING);
+    }
+
+    /**
+     * Create an integer hole to put in a template skeleton.
+     *
+     * @param name The hole name
+     * @return The hole
+     */
+    public static @NotNull Hole integer(@NotNull String name) {
+        return new Hole(name, Type.INTEGER);
+    }
+
+    /**
+     * Create a boolean hole to put in a template skeleton.
+     *
+     * @param name The hole name
+     * @return The hole
+     */
+    public static @NotNull Hole bool(@NotNull String name) {
+        return new Hole(name, Type.BOOLEAN);
+    }
+
+    /**
+     * Optional top-level string fields, then the holes of the static part in encoding order
+     */
+    private final Hole[] slots;
+    private final int fields;
+
+    /**
+     * Encoded {@code "name":} of every field
+     */
+    private final byte[][] fieldKeys;
+
+    /**
+     * Encoded default value of every field, null if the field is left out by default
+     */
+    private final byte[][] fieldDefaults;
+
+    /**
+     * Encoded static members, split at each hole
+     */
+    private final byte[][] segments;
+
+    /**
+     * Webhook limit of every slot, null for a slot without one
+     */
+    private final WebhookLimits.HoleLimit[] limits;
+
+    /**
+     * Number of characters of the static text displays
+     */
+    private final int textLength;
+
+    private final Map<String, Integer> index;
+
+    private WebhookTemplate(@NotNull Hole[] slots,
+                            int fields,
+                            byte[][] fieldKeys,
+                            byte[][] fieldDefaults,
+                            byte[][] segments,
+                            WebhookLimits.HoleLimit[] limits,
+                            int textLength) {
+        this.slots = slots;
+        this.fields = fields;
+        this.fieldKeys = fieldKeys;
+        this.fieldDefaults = fieldDefaults;
+        this.segments = segments;
+        this.limits = limits;
+        this.textLength = textLength;
+        this.index = new HashMap<>(slots.length * 2);
+
+        for(int i = 0; i < slots.length; i++)
+            if(index.putIfAbsent(slots[i].getName(), i) != null)
+                throw new IllegalArgumentException("Duplicate template hole: " + slots[i].getName());
+    }
+
+    /**
+     * Compile a message skeleton into a template.
+     *
+     * @param skeleton The built message skeleton, possibly holding {@link Hole} values
+     * @param fields Top-level fields filled per message as optional strings,
+     *               left to the skeleton value when not set
+     * @return The compiled template
+     * @throws IllegalArgumentException If a hole name is used twice, a field holds a non-string default,
+     *                                  or the skeleton exceeds a {@link WebhookLimits limit}
+     */
+    public static @NotNull WebhookTemplate compile(@NotNull WebhookData skeleton, @NotNull String... fields) {
+        Map<String, Object> members = new LinkedHashMap<>(skeleton.toMap());
+        Map<Hole, WebhookLimits.HoleLimit> holeLimits = new HashMap<>();
+        int textLength = WebhookLimits.checkSkeleton(members, holeLimits);
+        Hole[] fieldSlots = new Hole[fields.length];
+        byte[][] fieldKeys = new byte[fields.length][];
+        byte[][] fieldDefaults = new byte[fields.length][];
+
+        try {
+            for(int i = 0; i < fields.length; i++) {
+                String field = fields[i];
+                Object fallback = members.remove(field);
+                if(fallback != null && !(fallback instanceof CharSequence))
+                    throw new IllegalArgumentException("Template field " + field + " is not a string: " + fallback);
+
+                fieldSlots[i] = string(field);
+                fieldKeys[i] = encode(writer -> {
+                    writer.string(field);
+                    writer.write(':');
+                });
+                fieldDefaults[i] = fallback == null? null : encode(writer -> writer.value(fallback));
+            }
+
+            Splitter splitter = new Splitter();
+            splitter.members(members);
+            splitter.segments.add(splitter.toByteArray());
+
+            Hole[] slots = Arrays.copyOf(fieldSlots, fields.length + splitter.holes.size());
+            for(int i = 0; i < splitter.holes.size(); i++) slots[fields.length + i] = splitter.holes.get(i);
+
+            WebhookLimits.HoleLimit[] limits = new WebhookLimits.HoleLimit[slots.length];
+            for(int i = 0; i < fields.length; i++) limits[i] = switch(fields[i]) {
+                case "content" -> new WebhookLimits.HoleLimit("content", WebhookLimits.MAX_CONTENT_LENGTH, false);
+                case "username" -> new WebhookLimits.HoleLimit("username", WebhookLimits.MAX_USERNAME_LENGTH, false);
+                default -> null;
+            };
+            for(int i = fields.length; i < slots.length; i++) limits[i] = holeLimits.get(slots[i]);
+
+            return new WebhookTemplate(slots, fields.length, fieldKeys, fieldDefaults,
+                    splitter.segments.toArray(new byte[0][]), limits, textLength);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Create a builder filling a new message.
+     *
+     * @return The message builder
+     */
+    public @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get every hole of this template, the top-level fields first.
+     *
+     * @return A copy of the template holes
+     */
+    public @NotNull List<Hole> getHoles() {
+        return List.of(slots);
+    }
+
+    /**
+     * Builder filling the holes of a template.
+     */
+    public final class Builder {
+        private final Object[] values = new Object[slots.length];
+        private final boolean[] filled = new boolean[slots.length];
+
+        private Builder() {}
+
+        /**
+         * Fill a hole.
+         *
+         * @param name The hole name
+         * @param value The value, of the hole type; a null field is left out of the message
+         * @return This builder for chaining
+         * @throws IllegalArgumentException If the template has no such hole, or the value is not of the hole type
+         */
+        public @NotNull Builder set(@NotNull String name, @Nullable Object value) {
+            Integer slot = index.get(name);
+            if(slot == null) throw new IllegalArgumentException("Template has no hole named " + name);
+
+            Hole hole = slots[slot];
+            boolean valid = switch(hole.getType()) {
+                case STRING -> value == null || value instanceof CharSequence;
+                case INTEGER -> value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+                case BOOLEAN -> value instanceof Boolean;
+            };
+            if(!valid) throw new IllegalArgumentException("Template hole " + name + " expects " + hole.getType() + " but got " + value);
+
+            values[slot] = value;
+            filled[slot] = true;
+            return this;
+        }
+
+        /**
+         * Write the filled message.
+         *
+         * @return The message data, this builder can be filled again for another message
+         * @throws IllegalStateException If a hole of the skeleton tree is not filled
+         * @throws IllegalArgumentException If a hole value exceeds a {@link WebhookLimits limit}, listing every violation
+         */
+        public @NotNull WebhookData build() {
+            WebhookLimits.checkHoles(limits, values, textLength);
+            try {
+                JsonWriter writer = JsonWriter.memory();
+                boolean first = true;
+
+                for(int i = 0; i < fields; i++) {
+                    if(filled[i]? values[i] == null : fieldDefaults[i] == null) continue;
+
+                    if(!first) writer.write(',');
+                    first = false;
+
+                    writer.raw(fieldKeys[i]);
+                    if(filled[i]) writer.string((CharSequence) values[i]);
+                    else writer.raw(fieldDefaults[i]);
+                }
+
+                if(segments.length > 1 || segments[0].length > 0) {
+                    if(!first) writer.write(',');
+
+                    writer.raw(segments[0]);
+                    for(int i = fields; i < slots.length; i++) {
+                        if(!filled[i]) throw new IllegalStateException("Template hole " + slots[i].getName() + " is not filled");
+
+                        writer.value(values[i]);
+                        writer.raw(segments[i - fields + 1]);
+                    }
+                }
+
+                return new WebhookData(new HashMap<>(), writer.toByteArray());
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Encoding {
+        void accept(@NotNull JsonWriter writer) throws IOException;
+    }
+
+    private static byte @NotNull [] encode(@NotNull Encoding encoding) throws IOException {
+        JsonWriter writer = JsonWriter.memory();
+        encoding.accept(writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * In-memory writer cutting a segment at each hole
+     */
+    private static final class Splitter extends JsonWriter {
+        private final List<byte[]> segments = new ArrayList<>();
+        private final List<Hole> holes = new ArrayList<>();
+
+        private Splitter() {
+            super(null, new byte[256], true);
+        }
+
+        @Override
+        void hole(@NotNull Hole hole) {
+            segments.add(toByteArray());
+            holes.add(hole);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactMap;
 import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
 import org.jetbrains.annotations.NotNull;
 
@@ -27,6 +28,36 @@ import java.util.Map;
  */
 public abstract class ComponentV2 extends DataObject {
 
+    /**
+     * Create a component backed by a compact map of a fixed shape.
+     *
+     * <p>The value array is owned by the component, no map is copied.
+     * Built-in components use this constructor, the key-value constructors being kept for compatibility.</p>
+     *
+     * @param shape The keys of this component, {@code type} usually being the first one
+     * @param values The value of each shape key in order, null for an absent key
+     * @see CompactMap
+     */
+    protected ComponentV2(@NotNull CompactMap.Shape shape, @NotNull Object... values) {
+        super(new CompactMap(shape, values));
+    }
+
+    /**
+     * Freeze this component and every component in it, rejecting any further change.
+     *
+     * <p>A frozen component is encoded once, then its bytes are reused by every message it is sent in.
+     * Components that are not frozen are still memoized until changed, frozen ones skip that check.</p>
+     *
+     * @return This component for chaining
+     * @throws UnsupportedOperationException If this component is not backed by a {@link CompactMap}
+     */
+    public @NotNull ComponentV2 freeze() {
+        if(!(this.data instanceof CompactMap map))
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " is not a compact component");
+        map.freeze();
+        return this;
+    }
+
     /**
      * Create a component of type with 1 initial key-value pair.
      *
@@ -1,11 +1,12 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactList;
+import asia.buildtheearth.asean.discord.components.CompactMap;
 import github.scarsz.discordsrv.dependencies.jda.api.interactions.components.ActionRow;
 import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.Color;
-import java.util.ArrayList;
 
 /**
  * <a href="https://discord.com/developers/docs/components/reference#container">Container Component</a>,
@@ -13,6 +14,8 @@ import java.util.ArrayList;
  */
 public class Container extends ComponentV2 {
 
+    private static final CompactMap.Shape SHAPE = CompactMap.Shape.of("type", "id", "accent_color", "components", "spoiler");
+
     /**
      * The component array of this container
      */
@@ -26,13 +29,7 @@ public class Container extends ComponentV2 {
      * @param spoiler Whether the container should be a spoiler (or blurred out).
      */
     public Container(int componentID, int accentColor, boolean spoiler) {
-        super(
-                17,
-                componentID,
-                "accent_color", accentColor,
-                "components", new ArrayList<>(),
-                "spoiler", spoiler
-        );
+        super(SHAPE, 17, componentID, accentColor, new CompactList(), spoiler);
 
         this.components = this.getArray("components");
     }
@@ -51,7 +48,7 @@ public class Container extends ComponentV2 {
      * Create a container with auto-generated ID.
      */
     public Container() {
-        super(17, "components", new ArrayList<>());
+        super(SHAPE, 17, null, null, new CompactList(), null);
         this.components = this.getArray("components");
     }
 
@@ -61,7 +58,7 @@ public class Container extends ComponentV2 {
      * @param componentID Identifier for component
      */
     public Container(int componentID) {
-        super(17, componentID, "components", new ArrayList<>());
+        super(SHAPE, 17, componentID, null, new CompactList(), null);
         this.components = this.getArray("components");
     }
 
@@ -81,7 +78,7 @@ public class Container extends ComponentV2 {
      * @return This container for chaining
      */
     public Container addActionRow(@NotNull ActionRow component) {
-        components.add(component.toData());
+        components.add(CompactMap.copyOf(component.toData().toMap()));
         return this;
     }
 
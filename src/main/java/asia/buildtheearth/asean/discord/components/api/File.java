@@ -1,5 +1,6 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactMap;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
@@ -10,6 +11,8 @@ import java.util.Map;
  */
 public class File extends ComponentV2 {
 
+    private static final CompactMap.Shape SHAPE = CompactMap.Shape.of("type", "id", "file", "spoiler");
+
     /**
      * Create a file component with full context.
      *
@@ -18,7 +21,7 @@ public class File extends ComponentV2 {
      * @param spoiler Whether the media should be a spoiler (or blurred out)
      */
     public File(int componentID, @NotNull String attachment, boolean spoiler) {
-        super(13, componentID, "file", Map.of("url", attachment), "spoiler", spoiler);
+        super(SHAPE, 13, componentID, Map.of("url", attachment), spoiler);
     }
 
     /**
@@ -28,7 +31,7 @@ public class File extends ComponentV2 {
      * @param attachment attachment references using the {@code attachment://<filename>} syntax
      */
     public File(int componentID, @NotNull String attachment) {
-        super(13, componentID, "file", Map.of("url", attachment));
+        super(SHAPE, 13, componentID, Map.of("url", attachment), null);
     }
 
     /**
@@ -37,6 +40,6 @@ public class File extends ComponentV2 {
      * @param attachment attachment references using the {@code attachment://<filename>} syntax
      */
     public File(@NotNull String attachment) {
-        super(13, "file", Map.of("url", attachment));
+        super(SHAPE, 13, null, Map.of("url", attachment), null);
     }
 }
\ No newline at end of file
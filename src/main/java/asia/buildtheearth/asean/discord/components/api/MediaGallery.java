@@ -1,8 +1,9 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactList;
+import asia.buildtheearth.asean.discord.components.CompactMap;
 import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
 
-import java.util.ArrayList;
 import java.util.Map;
 
 /**
@@ -10,6 +11,9 @@ import java.util.Map;
  * Each item can have optional descriptions and can be marked as spoilers.
  */
 public class MediaGallery extends ComponentV2 {
+
+    private static final CompactMap.Shape SHAPE = CompactMap.Shape.of("type", "id", "items");
+
     /**
      * Array of media gallery item
      */
@@ -21,7 +25,7 @@ public class MediaGallery extends ComponentV2 {
      * @param componentID Identifier for component
      */
     public MediaGallery(int componentID) {
-        super(12, componentID, "items", new ArrayList<>());
+        super(SHAPE, 12, componentID, new CompactList());
         this.items = this.getArray("items");
     }
 
@@ -1,8 +1,9 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactList;
+import asia.buildtheearth.asean.discord.components.CompactMap;
 import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
 
-import java.util.ArrayList;
 import java.util.Map;
 
 /**
@@ -10,6 +11,8 @@ import java.util.Map;
  */
 class Section extends ComponentV2 {
 
+    private static final CompactMap.Shape SHAPE = CompactMap.Shape.of("type", "id", "components", "accessory");
+
     /**
      * Array of text components of this section
      */
@@ -22,12 +25,7 @@ class Section extends ComponentV2 {
      * @param accessory The raw accessory data to create this section with
      */
     public Section(int componentID, Map<String, Object> accessory) {
-        super(
-            9,
-            componentID,
-            "components", new ArrayList<>(),
-            "accessory", accessory
-        );
+        super(SHAPE, 9, componentID, new CompactList(), accessory);
 
         this.components = this.getArray("components");
     }
@@ -38,11 +36,7 @@ class Section extends ComponentV2 {
      * @param accessory The raw accessory data to create this section with
      */
     public Section(Map<String, Object> accessory) {
-        super(
-            9,
-            "components", new ArrayList<>(),
-            "accessory", accessory
-        );
+        super(SHAPE, 9, null, new CompactList(), accessory);
 
         this.components = this.getArray("components");
     }
@@ -1,23 +1,28 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactMap;
+
 /**
  * Vertical padding and visual division between other components.
  */
 public class Separator extends ComponentV2 {
+
+    private static final CompactMap.Shape SHAPE = CompactMap.Shape.of("type", "id", "divider", "spacing");
+
     /**
      * Create a new separator.
      *
      * @param divider Whether a visual divider should be displayed in the component.
      */
     public Separator(boolean divider) {
-        super(14, "divider", divider, "spacing", 1);
+        super(SHAPE, 14, null, divider, 1);
     }
 
     /**
      * Create a new separator with divider and default padding.
      */
     public Separator() {
-        super(14, "divider", true, "spacing", 1);
+        super(SHAPE, 14, null, true, 1);
     }
 
     /**
@@ -27,7 +32,7 @@ public class Separator extends ComponentV2 {
      * @param divider Whether a visual divider should be displayed in the component.
      */
     public Separator(int componentID, boolean divider) {
-        super(14, componentID, "divider", divider, "spacing", 1);
+        super(SHAPE, 14, componentID, divider, 1);
     }
 
     /**
@@ -38,7 +43,7 @@ public class Separator extends ComponentV2 {
      * @param expandPadding Whether to increase the size of the divider padding
      */
     public Separator(int componentID, boolean divider, boolean expandPadding) {
-        super(14, componentID, "divider", divider, "spacing", expandPadding? 2 : 1);
+        super(SHAPE, 14, componentID, divider, expandPadding? 2 : 1);
     }
 
 }
\ No newline at end of file
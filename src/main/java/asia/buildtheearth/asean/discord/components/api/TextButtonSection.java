@@ -1,5 +1,6 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactMap;
 import org.jetbrains.annotations.NotNull;
 import github.scarsz.discordsrv.dependencies.jda.api.interactions.components.Button;
 
@@ -17,7 +18,7 @@ public class TextButtonSection extends Section {
      * @param button The button object of this section
      */
     public TextButtonSection(int componentID, @NotNull Button button) {
-        super(componentID, button.toData().toMap());
+        super(componentID, CompactMap.copyOf(button.toData().toMap()));
     }
 
 
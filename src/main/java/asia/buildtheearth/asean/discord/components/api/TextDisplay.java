@@ -1,11 +1,15 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactMap;
+
 /**
  * Component that allows you to add text to your message
  * formatted with markdown and mention users and roles.
  */
 public class TextDisplay extends ComponentV2 {
 
+    private static final CompactMap.Shape SHAPE = CompactMap.Shape.of("type", "id", "content");
+
     /**
      * Create a text display with defined identifier.
      *
@@ -13,7 +17,7 @@ public class TextDisplay extends ComponentV2 {
      * @param content Text that will be displayed similar to a message
      */
     public TextDisplay(int componentID, @org.jetbrains.annotations.NotNull String content) {
-        super(10, componentID, "content", content);
+        super(SHAPE, 10, componentID, content);
     }
 
     /**
@@ -22,6 +26,6 @@ public class TextDisplay extends ComponentV2 {
      * @param content Text that will be displayed similar to a message
      */
     public TextDisplay(@org.jetbrains.annotations.NotNull String content) {
-        super(10, "content", content);
+        super(SHAPE, 10, null, content);
     }
 }
\ No newline at end of file
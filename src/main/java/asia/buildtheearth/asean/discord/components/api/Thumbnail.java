@@ -1,5 +1,6 @@
 package asia.buildtheearth.asean.discord.components.api;
 
+import asia.buildtheearth.asean.discord.components.CompactMap;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
@@ -11,6 +12,8 @@ import java.util.Map;
  */
 public class Thumbnail extends ComponentV2 {
 
+    private static final CompactMap.Shape SHAPE = CompactMap.Shape.of("type", "id", "media", "description");
+
     /**
      * Create a new thumbnail data.
      *
@@ -19,12 +22,7 @@ public class Thumbnail extends ComponentV2 {
      * @param description Alt text for the media, max 1024 characters
      */
     public Thumbnail(int componentID, @NotNull String url, @NotNull String description) {
-        super(
-            11,
-            componentID,
-            "media", Map.of("url", url),
-            "description", description
-        );
+        super(SHAPE, 11, componentID, Map.of("url", url), description);
     }
 
     /**
@@ -34,11 +32,7 @@ public class Thumbnail extends ComponentV2 {
      * @param description Alt text for the media, max 1024 characters
      */
     public Thumbnail(@NotNull String url, @NotNull String description) {
-        super(
-            11,
-            "media", Map.of("url", url),
-            "description", description
-        );
+        super(SHAPE, 11, null, Map.of("url", url), description);
     }
 
     /**
@@ -47,6 +41,6 @@ public class Thumbnail extends ComponentV2 {
      * @param url A url or attachment
      */
     public Thumbnail(@NotNull String url) {
-        super(11, "media", Map.of("url", url));
+        super(SHAPE, 11, null, Map.of("url", url), null);
     }
 }
\ No newline at end of file
@@ -0,0 +1,330 @@
+package asia.buildtheearth.asean.discord.components.buttons;
+
+import asia.buildtheearth.asean.discord.commands.interactions.InteractionEvent;
+import asia.buildtheearth.asean.discord.components.ComponentID;
+import asia.buildtheearth.asean.discord.components.PluginComponent;
+import github.scarsz.discordsrv.dependencies.jda.api.events.interaction.ButtonClickEvent;
+import github.scarsz.discordsrv.dependencies.jda.api.hooks.ListenerAdapter;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Button click listener dispatching each plugin button to its handler by the button type.
+ *
+ * <p>Handlers are indexed by type in an immutable open-addressing table built once by the {@link Builder},
+ * and looked up by hashing the type field in place, so dispatching allocates no string.
+ * Whether a handler is a {@link SimpleButtonHandler} or an {@link InteractiveButtonHandler}
+ * is resolved at registration. A click from a user other than the button owner is
+ * routed to {@link PluginButtonHandler#onInteractedBadOwner(ButtonClickEvent)}.</p>
+ *
+ * <p>Every route records its dispatch count and a latency histogram, see {@link #getMetrics()}.</p>
+ *
+ * <p>Usage:</p>
+ * <blockquote>{@snippet :
+ * ButtonRouter router = ButtonRouter.builder(plugin, provider)
+ *     .register("confirm", ButtonHandler.CONFIRM)
+ *     .register("cancel", (SimpleButtonHandler) (button, event) -> event.deferEdit().queue())
+ *     .build();
+ *
+ * ComponentDemultiplexer.register(bridge.getJDA(), plugin, router);
+ * }</blockquote>
+ *
+ * @see PluginButton
+ * @see AvailableButtonHandler
+ * @see asia.buildtheearth.asean.discord.components.ComponentDemultiplexer
+ */
+public class ButtonRouter extends ListenerAdapter {
+
+    private final Plugin plugin;
+    private final InteractionEvent interactions;
+    private final String[] types;
+    private final Route[] routes;
+    private final int mask;
+    private final List<Metrics> metrics;
+
+    private ButtonRouter(@NotNull Builder builder) {
+        this.plugin = builder.plugin;
+        this.interactions = builder.interactions;
+
+        int capacity = Integer.highestOneBit(Math.max(2, builder.routes.size() * 2 - 1)) << 1;
+        this.types = new String[capacity];
+        this.routes = new Route[capacity];
+        this.mask = capacity - 1;
+
+        List<Metrics> metrics = new ArrayList<>(builder.routes.size());
+        builder.routes.forEach((type, route) -> {
+            int i = type.hashCode() & mask;
+            while(types[i] != null) i = (i + 1) & mask;
+
+            types[i] = type;
+            routes[i] = route;
+            metrics.add(route.metrics);
+        });
+        this.metrics = Collections.unmodifiableList(metrics);
+    }
+
+    /**
+     * Create a router builder.
+     *
+     * @param plugin The plugin owning the routed buttons
+     * @param interactions The interaction context given to every {@link InteractiveButtonHandler}
+     * @return A new builder
+     */
+    public static @NotNull Builder builder(@NotNull Plugin plugin, @NotNull InteractionEvent interactions) {
+        return new Builder(plugin, interactions);
+    }
+
+    /**
+     * Dispatch a button click to the handler of its type.
+     *
+     * @param event The button click event
+     */
+    @Override
+    public void onButtonClick(@NotNull ButtonClickEvent event) {
+        PluginComponent.Result<PluginButton> result = PluginButton.of(plugin, event.getButton());
+        if(!result.isValid()) return;
+
+        PluginButton button = result.get();
+        Route route = lookup(button.getComponentID());
+
+        if(route == null) {
+            onUnknownType(button, event);
+            return;
+        }
+
+        if(event.getUser().getIdLong() != button.getUserIDLong()) {
+            route.metrics.badOwners.increment();
+            route.handler.onInteractedBadOwner(event);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            if(route.interactive) ((InteractiveButtonHandler) route.handler).onInteracted(button, event, interactions);
+            else ((SimpleButtonHandler) route.handler).onInteracted(button, event);
+            failed = false;
+        }
+        finally { route.metrics.record(System.nanoTime() - start, failed); }
+    }
+
+    /**
+     * Called when a button of this plugin has no registered type.
+     *
+     * <p>Override this method to define a response, the default implementation does nothing.</p>
+     *
+     * @param button The parsed button
+     * @param event The button click event
+     */
+    protected void onUnknownType(@NotNull PluginButton button, @NotNull ButtonClickEvent event) {}
+
+    private @Nullable Route lookup(@NotNull ComponentID id) {
+        for(int i = id.getTypeHash() & mask;; i = (i + 1) & mask) {
+            String type = types[i];
+            if(type == null) return null;
+            if(id.isType(type)) return routes[i];
+        }
+    }
+
+    /**
+     * Get the metrics of every registered type, in registration order.
+     *
+     * @return An unmodifiable list of live metrics
+     */
+    public @NotNull List<Metrics> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Builder of an immutable {@link ButtonRouter}.
+     */
+    public static final class Builder {
+        private final Plugin plugin;
+        private final InteractionEvent interactions;
+        private final Map<String, Route> routes = new LinkedHashMap<>();
+
+        private Builder(@NotNull Plugin plugin, @NotNull InteractionEvent interactions) {
+            this.plugin = plugin;
+            this.interactions = interactions;
+        }
+
+        /**
+         * Register a handler for a button type.
+         *
+         * @param type The button type, as given to
+         *             {@link asia.buildtheearth.asean.discord.providers.ComponentProvider#newComponentID(String, Long, Long)}
+         * @param handler Either a {@link SimpleButtonHandler} or an {@link InteractiveButtonHandler}
+         * @return This builder
+         * @throws IllegalArgumentException If the type is already registered, or the handler is neither kind
+         */
+        public @NotNull Builder register(@NotNull String type, @NotNull PluginButtonHandler handler) {
+            boolean interactive = handler instanceof InteractiveButtonHandler;
+            if(!interactive && !(handler instanceof SimpleButtonHandler))
+                throw new IllegalArgumentException("Button handler of type " + type + " is neither simple nor interactive");
+
+            if(routes.putIfAbsent(type, new Route(type, handler, interactive)) != null)
+                throw new IllegalArgumentException("Button type " + type + " is already registered");
+            return this;
+        }
+
+        /**
+         * Register the handler of an {@link AvailableButtonHandler} for a button type.
+         *
+         * @param type The button type
+         * @param handler The available handler, conventionally an enum constant
+         * @return This builder
+         * @throws IllegalArgumentException If the type is already registered, or the handler is missing
+         */
+        public @NotNull Builder register(@NotNull String type, @NotNull AvailableButtonHandler handler) {
+            PluginButtonHandler resolved = handler.getHandler();
+            if(resolved == null) throw new IllegalArgumentException("Button type " + type + " has no handler");
+            return register(type, resolved);
+        }
+
+        /**
+         * Build the router, the registered types cannot change afterward.
+         *
+         * @return A new router
+         */
+        public @NotNull ButtonRouter build() {
+            return new ButtonRouter(this);
+        }
+    }
+
+    /**
+     * A registered handler and its metrics
+     */
+    private static final class Route {
+        private final PluginButtonHandler handler;
+        private final boolean interactive;
+        private final Metrics metrics;
+
+        private Route(@NotNull String type, @NotNull PluginButtonHandler handler, boolean interactive) {
+            this.handler = handler;
+            this.interactive = interactive;
+            this.metrics = new Metrics(type);
+        }
+    }
+
+    /**
+     * Live dispatch metrics of a button type.
+     *
+     * <p>Latencies are recorded in a base-2 histogram: bucket {@code i} counts dispatches
+     * that took between {@code 2^i} and {@code 2^(i+1)} nanoseconds.</p>
+     */
+    public static final class Metrics {
+        private final String type;
+        private final LongAdder dispatches = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder badOwners = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder[] histogram = new LongAdder[Long.SIZE];
+
+        private Metrics(@NotNull String type) {
+            this.type = type;
+            for(int i = 0; i < histogram.length; i++) histogram[i] = new LongAdder();
+        }
+
+        private void record(long nanos, boolean failed) {
+            dispatches.increment();
+            if(failed) failures.increment();
+            totalNanos.add(nanos);
+            histogram[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))].increment();
+        }
+
+        /**
+         * Get the button type of these metrics.
+         *
+         * @return The button type
+         */
+        public @NotNull String getType() {
+            return type;
+        }
+
+        /**
+         * Get the number of dispatches to the handler.
+         *
+         * @return The dispatch count
+         */
+        public long getDispatchCount() {
+            return dispatches.sum();
+        }
+
+        /**
+         * Get the number of dispatches that threw an exception.
+         *
+         * @return The failure count
+         */
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        /**
+         * Get the number of clicks by a user other than the button owner.
+         *
+         * @return The bad owner count
+         */
+        public long getBadOwnerCount() {
+            return badOwners.sum();
+        }
+
+        /**
+         * Get the mean dispatch latency.
+         *
+         * @return The mean latency in nanoseconds, {@code 0} if never dispatched
+         */
+        public long getMeanNanos() {
+            long count = dispatches.sum();
+            return count == 0? 0 : totalNanos.sum() / count;
+        }
+
+        /**
+         * Get a snapshot of the latency histogram.
+         *
+         * @return Dispatch counts of each base-2 nanoseconds bucket
+         */
+        public long @NotNull [] getHistogram() {
+            long[] snapshot = new long[histogram.length];
+            for(int i = 0; i < histogram.length; i++) snapshot[i] = histogram[i].sum();
+            return snapshot;
+        }
+
+        /**
+         * Get an upper bound of a latency percentile.
+         *
+         * @param percentile The percentile between {@code 0} and {@code 1}, such as {@code 0.99}
+         * @return The upper bound of the bucket holding the percentile in nanoseconds, {@code 0} if never dispatched
+         */
+        public long getPercentileNanos(double percentile) {
+            long[] snapshot = getHistogram();
+            long total = 0;
+            for(long count : snapshot) total += count;
+            if(total == 0) return 0;
+
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for(int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if(seen >= rank) return i >= 62? Long.MAX_VALUE : 1L << (i + 1);
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return type + "{dispatches=" + getDispatchCount()
+                + ", failures=" + getFailureCount()
+                + ", badOwners=" + getBadOwnerCount()
+                + ", mean=" + getMeanNanos() / 1000 + "us"
+                + ", p99<=" + getPercentileNanos(0.99) / 1000 + "us}";
+        }
+    }
+}
@@ -20,6 +20,8 @@ import java.util.function.Function;
  * <p>Then, provide a {@link Handler} that resolves the method to invoke using a {@link java.util.function.BiConsumer},
  * where the first parameter is the forward-able event data {@code E}, and the second is the command payload {@code V}.</p>
  *
+ * <p>The command handler runs on the {@link InteractionEvent#getExecutor() interaction executor} if any.</p>
+ *
  * @param <T> the type of the originating command (extends {@link CommandData})
  * @param <V> the type of the interaction payload to forward (extends {@link Interaction})
  * @param <E> the type of data extracted from the button click event to forward
@@ -132,8 +134,9 @@ public class ForwardEventButton<T extends CommandData, V extends Interaction, E>
                              @NotNull InteractionEvent interactions) {
         if(this.response != null) this.response.onInteracted(button, event);
 
-        this.resolver
+        // The response is acknowledged on the event thread, only the command handler may block
+        interactions.execute(this.command, event.getIdLong(), () -> this.resolver
                 .apply(interactions.fromClass(this.command))
-                .accept(forwarder.apply(event), interactions.getAs(this.interaction, button.getIDLong()));
+                .accept(forwarder.apply(event), interactions.getAs(this.interaction, button.getIDLong())));
     }
 }
\ No newline at end of file
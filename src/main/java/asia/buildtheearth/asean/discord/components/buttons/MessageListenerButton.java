@@ -13,7 +13,8 @@ import java.util.function.Function;
 /**
  * A button handler to retrieve user's latest message.
  *
- * <p>This handler listens for the user's most recent message and retrieve its data to forward as a new button handler.</p>
+ * <p>This handler listens for the user's most recent message and retrieve its data to forward as a new button handler.
+ * The forwarded handler runs on the {@link InteractionEvent#getExecutor() interaction executor} if any.</p>
  *
  * @see InteractiveButtonHandler
  */
@@ -68,7 +69,8 @@ public class MessageListenerButton implements InteractiveButtonHandler {
         // Resolve the message data and forward it to sender
         lastMsg.resolve().queue(message -> {
             if(this.onMessageReceived(interaction, message))
-                this.sender.apply(message).onInteracted(button, event, interactions);
+                interactions.execute(getClass(), event.getIdLong(),
+                    () -> this.sender.apply(message).onInteracted(button, event, interactions));
         }, failed -> this.onMessageRetrievingFailed(interaction, failed));
     }
 
@@ -1,7 +1,10 @@
 package asia.buildtheearth.asean.discord.components.buttons;
 
+import asia.buildtheearth.asean.discord.components.ComponentID;
 import asia.buildtheearth.asean.discord.components.PluginComponent;
 import github.scarsz.discordsrv.dependencies.jda.api.interactions.components.Button;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Represents a Discord button component tied to a plugin context.
@@ -20,4 +23,26 @@ public class PluginButton extends PluginComponent<Button> {
     public PluginButton(org.bukkit.plugin.Plugin plugin, Button component) throws IllegalArgumentException {
         super(plugin, component);
     }
+
+    /**
+     * Constructs a new {@link PluginButton} from an already validated ID.
+     *
+     * @param component The JDA {@link Button} of this plugin component.
+     * @param parsed    The validated ID of the button.
+     * @see PluginComponent#validate(org.bukkit.plugin.Plugin, github.scarsz.discordsrv.dependencies.jda.api.interactions.components.Component)
+     */
+    public PluginButton(@NotNull Button component, @NotNull ComponentID parsed) {
+        super(component, parsed);
+    }
+
+    /**
+     * Parse a button as a {@link PluginButton} without any exception.
+     *
+     * @param plugin    The plugin that owns this component.
+     * @param component The JDA {@link Button} to be parsed to a plugin component.
+     * @return The result holding the parsed button if valid
+     */
+    public static @NotNull Result<PluginButton> of(@NotNull org.bukkit.plugin.Plugin plugin, @Nullable Button component) {
+        return PluginComponent.of(plugin, component, PluginButton::new);
+    }
 }
\ No newline at end of file
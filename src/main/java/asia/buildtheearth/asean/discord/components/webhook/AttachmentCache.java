@@ -0,0 +1,360 @@
+package asia.buildtheearth.asean.discord.components.webhook;
+
+import asia.buildtheearth.asean.discord.components.AttachmentSource;
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import github.scarsz.discordsrv.dependencies.okhttp3.HttpUrl;
+import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed cache of uploaded attachments, reusing their discord CDN URL instead of uploading them again.
+ *
+ * <p>An attachment is keyed by the SHA-256 hash of its content. A cached attachment resolves to its CDN URL;
+ * otherwise it is added to the message under a name carrying its key, and {@link #record(DataObject)}
+ * learns the CDN URL from the sent message. CDN URLs are signed with an expiry time, an entry is
+ * dropped {@link #EXPIRY_MARGIN} before its URL expires.</p>
+ *
+ * <p>The resolved URL fits the media URL of a {@link asia.buildtheearth.asean.discord.components.api.Thumbnail Thumbnail}
+ * or a {@link asia.buildtheearth.asean.discord.components.api.MediaGallery MediaGallery} item.
+ * A {@link asia.buildtheearth.asean.discord.components.api.File File} component only accepts
+ * {@code attachment://} references, its file is always uploaded.</p>
+ *
+ * <p>The cache is bounded by its number of entries, not by bytes. An entry never holds the attachment content,
+ * only its key and CDN URL, a few hundred bytes. The cache holds at most its capacity of entries,
+ * evicting the least recently used one, and is saved to disk on {@link #save()} and {@link #close()}
+ * in the order of use, so a reloaded cache evicts the same entries first.</p>
+ *
+ * <blockquote>{@snippet :
+ * AttachmentCache cache = AttachmentCache.open(plugin.getDataFolder().toPath().resolve("attachments.cache"), 1024);
+ *
+ * WebhookData data = new WebhookDataBuilder().forceComponentV2().build();
+ * String logo = cache.attach(data, "logo.png", PNG, logoBytes);
+ * // ... a Thumbnail of the logo URL in the message components
+ *
+ * dispatcher.send(webhookUrl, data).thenAccept(cache::record);
+ * }</blockquote>
+ */
+public class AttachmentCache implements Closeable {
+
+    /**
+     * Time before its CDN URL expires that an entry is dropped, so a resolved URL never expires in flight.
+     */
+    public static final Duration EXPIRY_MARGIN = Duration.ofHours(1);
+
+    /**
+     * Lifetime of a CDN URL without any expiry time.
+     */
+    public static final Duration DEFAULT_LIFETIME = Duration.ofHours(24);
+
+    /**
+     * URL prefix of an attachment uploaded with the message
+     */
+    private static final String ATTACHMENT_PREFIX = "attachment://";
+
+    /**
+     * Length of a content key, 128 bits of the content hash in base64url
+     */
+    private static final int KEY_LENGTH = 22;
+
+    private static final int HASH_CHUNK = 64 * 1024;
+
+    /**
+     * A known CDN URL and the wall-clock time it is used until, in epoch milliseconds
+     */
+    private record Entry(@NotNull String url, long expiresAt) {}
+
+    private final Path path;
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private boolean modified;
+
+    private AttachmentCache(@NotNull Path path, int capacity) {
+        this.path = path;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AttachmentCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Open a cache, loading its live entries if the file exists.
+     *
+     * @param path The cache file
+     * @param capacity The maximum number of entries, each holding a CDN URL and not the attachment content
+     * @return The opened cache
+     * @throws IOException If the file exists but cannot be read
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public static @NotNull AttachmentCache open(@NotNull Path path, int capacity) throws IOException {
+        if(capacity <= 0) throw new IllegalArgumentException("Attachment cache capacity must be positive: " + capacity);
+
+        AttachmentCache cache = new AttachmentCache(path, capacity);
+        cache.load();
+        return cache;
+    }
+
+    private void load() throws IOException {
+        long now = System.currentTimeMillis();
+
+        // Line layout: key, expiry time and URL separated by a space, least recently used first
+        try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ", 3);
+                if(fields.length != 3 || fields[0].length() != KEY_LENGTH) continue;
+
+                try {
+                    long expiresAt = Long.parseLong(fields[1]);
+                    if(expiresAt > now) entries.put(fields[0], new Entry(fields[2], expiresAt));
+                }
+                catch (NumberFormatException ignored) {}
+            }
+        }
+        catch (NoSuchFileException ignored) {}
+    }
+
+    /**
+     * Resolve an attachment of a byte array.
+     *
+     * @param data The message to upload the attachment with if it is not cached
+     * @param name The attachment file name, only its extension is kept
+     * @param type The attachment media type
+     * @param content The attachment content
+     * @return The CDN URL of the attachment, or its {@code attachment://} reference if it is uploaded with the message
+     */
+    public @NotNull String attach(@NotNull WebhookData data, @NotNull String name, @NotNull MediaType type, byte @NotNull [] content) {
+        return attach(data, name, type, ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Resolve an attachment of a byte buffer, heap or direct, from its position to its limit.
+     *
+     * @param data The message to upload the attachment with if it is not cached
+     * @param name The attachment file name, only its extension is kept
+     * @param type The attachment media type
+     * @param content The attachment content, must not be modified until the message is sent
+     * @return The CDN URL of the attachment, or its {@code attachment://} reference if it is uploaded with the message
+     */
+    public @NotNull String attach(@NotNull WebhookData data, @NotNull String name, @NotNull MediaType type, @NotNull ByteBuffer content) {
+        MessageDigest digest = newDigest();
+        digest.update(content.duplicate());
+
+        String key = toKey(digest);
+        String cached = lookup(key);
+        if(cached != null) return cached;
+
+        String upload = key + extension(name);
+        data.addAttachment(AttachmentSource.of(upload, type, content));
+        return ATTACHMENT_PREFIX + upload;
+    }
+
+    /**
+     * Resolve an attachment of a file on disk, hashing its content.
+     *
+     * @param data The message to upload the attachment with if it is not cached
+     * @param file The attachment file
+     * @return The CDN URL of the attachment, or its {@code attachment://} reference if it is uploaded with the message
+     * @throws IOException If the file cannot be read
+     */
+    public @NotNull String attach(@NotNull WebhookData data, @NotNull Path file) throws IOException {
+        MessageDigest digest = newDigest();
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_CHUNK);
+            while(channel.read(buffer) >= 0) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+        }
+
+        String key = toKey(digest);
+        String cached = lookup(key);
+        if(cached != null) return cached;
+
+        String upload = key + extension(String.valueOf(file.getFileName()));
+        data.addAttachment(AttachmentSource.of(upload, file));
+        return ATTACHMENT_PREFIX + upload;
+    }
+
+    /**
+     * Learn the CDN URL of every attachment uploaded through this cache in a sent message.
+     *
+     * @param message The message object returned by discord
+     */
+    public void record(@Nullable DataObject message) {
+        if(message == null || !message.hasKey("attachments") || message.isNull("attachments")) return;
+
+        DataArray attachments = message.getArray("attachments");
+        long now = System.currentTimeMillis();
+
+        for(int i = 0; i < attachments.length(); i++) {
+            DataObject attachment = attachments.getObject(i);
+            String name = attachment.getString("filename", "");
+            String url = attachment.getString("url", null);
+
+            if(url == null || name.length() < KEY_LENGTH || !isKey(name)) continue;
+            if(name.length() > KEY_LENGTH && name.charAt(KEY_LENGTH) != '.') continue;
+
+            long expiresAt = expiresAt(url, now) - EXPIRY_MARGIN.toMillis();
+            if(expiresAt <= now) continue;
+
+            synchronized(this) {
+                entries.put(name.substring(0, KEY_LENGTH), new Entry(url, expiresAt));
+                modified = true;
+            }
+        }
+    }
+
+    private synchronized @Nullable String lookup(@NotNull String key) {
+        Entry entry = entries.get(key);
+
+        if(entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+            // Moved to the most recently used end
+            hits.increment();
+            modified = true;
+            return entry.url();
+        }
+
+        if(entry != null) {
+            entries.remove(key);
+            modified = true;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Get the expiry time of a CDN URL from its {@code ex} parameter, in hexadecimal epoch seconds.
+     *
+     * @param url The CDN URL
+     * @param now The current time in epoch milliseconds
+     * @return The expiry time in epoch milliseconds
+     */
+    private static long expiresAt(@NotNull String url, long now) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        String expiry = parsed == null? null : parsed.queryParameter("ex");
+        if(expiry == null) return now + DEFAULT_LIFETIME.toMillis();
+
+        try { return Long.parseLong(expiry, 16) * 1000; }
+        catch (NumberFormatException ex) { return now; }
+    }
+
+    private static @NotNull MessageDigest newDigest() {
+        try { return MessageDigest.getInstance("SHA-256"); }
+        catch (NoSuchAlgorithmException ex) { throw new IllegalStateException("SHA-256 is not available", ex); }
+    }
+
+    private static @NotNull String toKey(@NotNull MessageDigest digest) {
+        byte[] hash = digest.digest();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, KEY_LENGTH);
+    }
+
+    private static boolean isKey(@NotNull String name) {
+        for(int i = 0; i < KEY_LENGTH; i++) {
+            char c = name.charAt(i);
+            if(!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) return false;
+        }
+        return true;
+    }
+
+    private static @NotNull String extension(@NotNull String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0? "" : name.substring(dot);
+    }
+
+    /**
+     * Get the number of attachments resolved to a cached CDN URL.
+     *
+     * @return The cache hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of attachments uploaded with their message.
+     *
+     * @return The cache miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of cached attachments, including expired ones not yet dropped.
+     *
+     * @return The cache size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write every live entry into a new file and atomically replace the cache file with it.
+     *
+     * @throws IOException If the cache file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if(!modified) return;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if(parent != null) Files.createDirectories(parent);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+
+        try(BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for(Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if(entry.getValue().expiresAt() <= now) continue;
+
+                writer.write(entry.getKey());
+                writer.write(' ');
+                writer.write(Long.toString(entry.getValue().expiresAt()));
+                writer.write(' ');
+                writer.write(entry.getValue().url());
+                writer.newLine();
+            }
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        modified = false;
+    }
+
+    /**
+     * Save this cache to disk.
+     *
+     * @throws IOException If the cache file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        save();
+    }
+}
@@ -0,0 +1,180 @@
+package asia.buildtheearth.asean.discord.components.webhook;
+
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import github.scarsz.discordsrv.dependencies.okhttp3.HttpUrl;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Ordered webhook delivery per discord channel, parallel across channels.
+ *
+ * <p>Each channel is a lightweight actor: a mailbox of delivery steps, run one at a time on a shared pool.
+ * A step starts only once the previous step of its channel has completed, so messages of a channel
+ * arrive in submission order even when they go through different webhooks, while unrelated channels
+ * never wait on each other. An idle channel holds no thread and is dropped from memory.</p>
+ *
+ * <blockquote>{@snippet :
+ * ChannelSequencer sequencer = new ChannelSequencer(dispatcher);
+ *
+ * // Always arrive in this order
+ * sequencer.send(channel.getIdLong(), webhookUrl, joinMessage);
+ * sequencer.send(channel.getIdLong(), otherWebhookUrl, chatMessage);
+ * }</blockquote>
+ *
+ * @see WebhookDispatcher
+ */
+public class ChannelSequencer {
+
+    private final WebhookDispatcher dispatcher;
+    private final Executor pool;
+    /**
+     * Mailbox of every active channel, only read or written inside a {@code compute} of its key.
+     * The head step of a mailbox is the running one.
+     */
+    private final ConcurrentHashMap<Long, ArrayDeque<Step<?>>> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Create a sequencer running its channel actors on the common pool.
+     *
+     * @param dispatcher The dispatcher sending every message
+     */
+    public ChannelSequencer(@NotNull WebhookDispatcher dispatcher) {
+        this(dispatcher, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a sequencer running its channel actors on a shared pool.
+     *
+     * @param dispatcher The dispatcher sending every message
+     * @param pool The pool running each delivery step, never blocked by this sequencer
+     */
+    public ChannelSequencer(@NotNull WebhookDispatcher dispatcher, @NotNull Executor pool) {
+        this.dispatcher = dispatcher;
+        this.pool = pool;
+    }
+
+    /**
+     * Send a user visible webhook message after every message previously sent to the channel.
+     *
+     * @param channelID The channel the webhook posts to, or the thread ID if posting to a thread
+     * @param webhookUrl The webhook execute URL
+     * @param data The webhook message
+     * @return A future of the sent message object
+     */
+    public @NotNull CompletableFuture<DataObject> send(long channelID, @NotNull HttpUrl webhookUrl, @NotNull WebhookData data) {
+        return send(channelID, webhookUrl, data, DispatchLane.VISIBLE);
+    }
+
+    /**
+     * Send a webhook message after every message previously sent to the channel.
+     *
+     * <p>A failed message does not hold back the next messages of its channel.</p>
+     *
+     * @param channelID The channel the webhook posts to, or the thread ID if posting to a thread
+     * @param webhookUrl The webhook execute URL
+     * @param data The webhook message
+     * @param lane The priority lane of this message
+     * @return A future of the sent message object
+     */
+    public @NotNull CompletableFuture<DataObject> send(long channelID,
+                                                       @NotNull HttpUrl webhookUrl,
+                                                       @NotNull WebhookData data,
+                                                       @NotNull DispatchLane lane) {
+        return submit(channelID, () -> dispatcher.send(webhookUrl, data, lane));
+    }
+
+    /**
+     * Run an asynchronous step after every step previously submitted to the channel has completed.
+     *
+     * @param channelID The channel to order the step in
+     * @param step The step to start, returning its completion
+     * @return A future of the step result
+     * @param <T> The step result type
+     */
+    public <T> @NotNull CompletableFuture<T> submit(long channelID, @NotNull Supplier<? extends CompletionStage<T>> step) {
+        Step<T> queued = new Step<>(channelID, step);
+        boolean[] start = new boolean[1];
+
+        channels.compute(channelID, (id, mailbox) -> {
+            if(mailbox == null) mailbox = new ArrayDeque<>();
+            mailbox.addLast(queued);
+            start[0] = mailbox.size() == 1;
+            return mailbox;
+        });
+
+        if(start[0]) pool.execute(queued::run);
+        return queued.result;
+    }
+
+    /**
+     * Get the number of channels with a pending step.
+     *
+     * @return The active channel count
+     */
+    public int getActiveChannelCount() {
+        return channels.size();
+    }
+
+    /**
+     * Get the number of steps of a channel not yet completed, including the running one.
+     *
+     * @param channelID The channel
+     * @return The channel queue depth
+     */
+    public int getQueueDepth(long channelID) {
+        int[] depth = new int[1];
+        channels.computeIfPresent(channelID, (id, mailbox) -> {
+            depth[0] = mailbox.size();
+            return mailbox;
+        });
+        return depth[0];
+    }
+
+    /**
+     * A step of a channel and its result
+     */
+    private final class Step<T> {
+        private final long channelID;
+        private final Supplier<? extends CompletionStage<T>> step;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Step(long channelID, @NotNull Supplier<? extends CompletionStage<T>> step) {
+            this.channelID = channelID;
+            this.step = step;
+        }
+
+        private void run() {
+            CompletionStage<T> stage;
+            try { stage = step.get(); }
+            catch (Throwable ex) { stage = CompletableFuture.failedFuture(ex); }
+
+            stage.whenComplete((value, error) -> {
+                if(error != null) result.completeExceptionally(error);
+                else result.complete(value);
+                next();
+            });
+        }
+
+        /**
+         * Pop this step and start the next one of the channel, or drop the idle channel
+         */
+        private void next() {
+            Step<?>[] next = new Step<?>[1];
+            channels.computeIfPresent(channelID, (id, mailbox) -> {
+                mailbox.pollFirst();
+                next[0] = mailbox.peekFirst();
+                return next[0] == null? null : mailbox;
+            });
+
+            if(next[0] != null) pool.execute(next[0]::run);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package asia.buildtheearth.asean.discord.components.webhook;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+
+/**
+ * Priority lanes of the {@link WebhookDispatcher}, from the most to the least urgent.
+ *
+ * <p>A message of a lower lane is sent only when no message of a higher lane is ready,
+ * unless it has waited longer than the {@link #getStarvationDelay() starvation delay} of its lane,
+ * in which case it takes every other request slot so that bulk traffic never starves.</p>
+ */
+public enum DispatchLane {
+    /**
+     * Interaction follow-ups and edits sent through the webhook of an interaction,
+     * which a user is actively waiting for.
+     * This lane always keeps one request slot for itself.
+     */
+    INTERACTION(Duration.ZERO),
+
+    /**
+     * User visible webhook messages, such as relayed chat.
+     */
+    VISIBLE(Duration.ofSeconds(2)),
+
+    /**
+     * Bulk and background traffic, such as announcements and progress broadcasts.
+     */
+    BULK(Duration.ofSeconds(10));
+
+    private final Duration starvationDelay;
+    private final long starvationNanos;
+
+    DispatchLane(@NotNull Duration starvationDelay) {
+        this.starvationDelay = starvationDelay;
+        this.starvationNanos = starvationDelay.toNanos();
+    }
+
+    /**
+     * Get how long a message of this lane may wait behind higher lanes before it is sent first.
+     *
+     * @return The starvation delay, {@link Duration#ZERO} for the highest lane
+     */
+    public @NotNull Duration getStarvationDelay() {
+        return starvationDelay;
+    }
+
+    /**
+     * Get the starvation delay in nanoseconds.
+     *
+     * @return The starvation delay in nanoseconds
+     */
+    long getStarvationNanos() {
+        return starvationNanos;
+    }
+}
@@ -0,0 +1,143 @@
+package asia.buildtheearth.asean.discord.components.webhook;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live latency statistics of a {@link DispatchLane}.
+ *
+ * <p>The queue latency is the time from queueing a message to sending its request,
+ * recorded in a base-2 histogram: bucket {@code i} counts messages
+ * that waited between {@code 2^i} and {@code 2^(i+1)} nanoseconds.
+ * The response latency is the time from sending the request to its response.</p>
+ *
+ * @see WebhookDispatcher#getLaneMetrics(DispatchLane)
+ */
+public final class LaneMetrics {
+    private final DispatchLane lane;
+    final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder promoted = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder responseNanos = new LongAdder();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] histogram = new LongAdder[Long.SIZE];
+
+    LaneMetrics(@NotNull DispatchLane lane) {
+        this.lane = lane;
+        for(int i = 0; i < histogram.length; i++) histogram[i] = new LongAdder();
+    }
+
+    void recordSent(long waited, boolean starved) {
+        sent.increment();
+        if(starved) promoted.increment();
+        queueNanos.add(waited);
+        maxQueueNanos.accumulate(waited);
+        histogram[63 - Long.numberOfLeadingZeros(Math.max(1, waited))].increment();
+    }
+
+    void recordResponse(long nanos) {
+        responses.increment();
+        responseNanos.add(nanos);
+    }
+
+    /**
+     * Get the lane of these metrics.
+     *
+     * @return The dispatch lane
+     */
+    public @NotNull DispatchLane getLane() {
+        return lane;
+    }
+
+    /**
+     * Get the number of messages of this lane waiting to be sent.
+     *
+     * @return The lane queue depth
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Get the number of requests sent from this lane, including retried attempts.
+     *
+     * @return The sent request count
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * Get the number of messages sent ahead of higher lanes because they waited past the starvation delay.
+     *
+     * @return The promoted message count
+     */
+    public long getPromotedCount() {
+        return promoted.sum();
+    }
+
+    /**
+     * Get the mean queue latency.
+     *
+     * @return The mean time a message waited before being sent in nanoseconds, {@code 0} if none was sent
+     */
+    public long getMeanQueueNanos() {
+        long count = sent.sum();
+        return count == 0? 0 : queueNanos.sum() / count;
+    }
+
+    /**
+     * Get the maximum queue latency.
+     *
+     * @return The longest time a message waited before being sent in nanoseconds
+     */
+    public long getMaxQueueNanos() {
+        return maxQueueNanos.get();
+    }
+
+    /**
+     * Get an upper bound of a queue latency percentile.
+     *
+     * @param percentile The percentile between {@code 0} and {@code 1}, such as {@code 0.99}
+     * @return The upper bound of the bucket holding the percentile in nanoseconds, {@code 0} if none was sent
+     */
+    public long getPercentileQueueNanos(double percentile) {
+        long[] snapshot = new long[histogram.length];
+        long total = 0;
+        for(int i = 0; i < histogram.length; i++) total += snapshot[i] = histogram[i].sum();
+        if(total == 0) return 0;
+
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for(int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if(seen >= rank) return i >= 62? Long.MAX_VALUE : 1L << (i + 1);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the mean response latency.
+     *
+     * @return The mean time from request to response in nanoseconds, {@code 0} if none returned
+     */
+    public long getMeanResponseNanos() {
+        long count = responses.sum();
+        return count == 0? 0 : responseNanos.sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        return lane + "{queued=" + getQueueDepth()
+            + ", sent=" + getSentCount()
+            + ", promoted=" + getPromotedCount()
+            + ", meanQueue=" + getMeanQueueNanos() / 1000 + "us"
+            + ", p99Queue<=" + getPercentileQueueNanos(0.99) / 1000 + "us"
+            + ", meanResponse=" + getMeanResponseNanos() / 1000 + "us}";
+    }
+}
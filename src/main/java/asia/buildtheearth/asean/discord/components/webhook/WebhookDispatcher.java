@@ -0,0 +1,719 @@
+package asia.buildtheearth.asean.discord.components.webhook;
+
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import asia.buildtheearth.asean.discord.components.WebhookLimits;
+import github.scarsz.discordsrv.dependencies.jda.api.JDA;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import github.scarsz.discordsrv.dependencies.okhttp3.Call;
+import github.scarsz.discordsrv.dependencies.okhttp3.Callback;
+import github.scarsz.discordsrv.dependencies.okhttp3.Dispatcher;
+import github.scarsz.discordsrv.dependencies.okhttp3.HttpUrl;
+import github.scarsz.discordsrv.dependencies.okhttp3.OkHttpClient;
+import github.scarsz.discordsrv.dependencies.okhttp3.Request;
+import github.scarsz.discordsrv.dependencies.okhttp3.Response;
+import github.scarsz.discordsrv.dependencies.okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limit aware queue of outbound webhook messages.
+ *
+ * <p>Every {@link WebhookData} is queued in the bucket of its webhook route, and each bucket sends
+ * one request at a time. The {@code X-RateLimit-*} headers of every response tell how many requests
+ * the bucket has left and when it resets, so an exhausted bucket waits exactly until its reset
+ * instead of running into a {@code 429}. A {@code 429} still received is retried after its
+ * {@code Retry-After}, at the head of its bucket so that the message order is kept.</p>
+ *
+ * <p>Messages are queued in a {@link DispatchLane}: the dispatcher keeps a bounded number of requests
+ * in flight, and every free slot goes to the most urgent ready message, so that interaction follow-ups
+ * are not stuck behind a broadcast. The last slot is reserved to {@link DispatchLane#INTERACTION},
+ * and a message waiting past the starvation delay of its lane takes every other slot until it catches up.</p>
+ *
+ * <p>Bucket state is only touched by the dispatcher thread, which never blocks:
+ * requests are sent asynchronously through the HTTP client of DiscordSRV. An {@link OkHttpClient}
+ * allowing fewer requests per host than the dispatcher keeps in flight is derived with its own call
+ * dispatcher, sharing the same connection pool, so that no request slot waits inside OkHttp.</p>
+ *
+ * <blockquote>{@snippet :
+ * WebhookDispatcher dispatcher = new WebhookDispatcher(bridge.getJDA());
+ *
+ * dispatcher.send(webhookUrl, new WebhookDataBuilder().setContent("Hello, Discord!").build())
+ *     .thenAccept(message -> plugin.getLogger().info("Sent " + message.getString("id")));
+ *
+ * // Event broadcast, never delays the messages above
+ * dispatcher.send(announcementUrl, announcement, DispatchLane.BULK);
+ *
+ * // On disable
+ * dispatcher.close();
+ * }</blockquote>
+ */
+public class WebhookDispatcher implements AutoCloseable {
+
+    /**
+     * Maximum number of times a message is retried after a {@code 429} response.
+     */
+    public static final int MAX_RETRIES = 5;
+
+    /**
+     * Default maximum number of requests in flight at once, across every bucket.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    /**
+     * Fallback wait of a {@code 429} response without any rate limit header.
+     */
+    private static final long DEFAULT_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final DispatchLane[] LANES = DispatchLane.values();
+
+    private final Call.Factory http;
+    private final @Nullable Dispatcher calls;
+    private final int maxInFlight;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LaneMetrics[] lanes = new LaneMetrics[LANES.length];
+
+    /** Buckets ready to send, by the lane of their next message, dispatcher thread only */
+    private final ArrayDeque<Bucket>[] ready;
+
+    /** Head message of each ready lane, reused by {@link #pump()} */
+    private final Message[] heads = new Message[LANES.length];
+
+    /** Global rate limit reset, in {@link System#nanoTime()}, dispatcher thread only */
+    private long globalResetAt = System.nanoTime();
+    private @Nullable ScheduledFuture<?> globalWakeup;
+
+    /** Whether the last slot went to a starved lane */
+    private boolean promoted;
+    private volatile int inFlight;
+    private volatile boolean closed;
+
+    /**
+     * Create a dispatcher sending through the HTTP client of DiscordSRV JDA.
+     *
+     * @param jda The DiscordSRV JDA instance
+     */
+    public WebhookDispatcher(@NotNull JDA jda) {
+        this(jda.getHttpClient(), DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Create a dispatcher sending through an HTTP client,
+     * with at most {@link #DEFAULT_MAX_IN_FLIGHT} requests in flight.
+     *
+     * @param http The HTTP client
+     */
+    public WebhookDispatcher(@NotNull Call.Factory http) {
+        this(http, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Create a dispatcher sending through an HTTP client.
+     *
+     * @param http The HTTP client. An {@link OkHttpClient} limiting the requests per host
+     *             below the maximum in flight is replaced by a client derived from it
+     * @param maxInFlight The maximum number of requests in flight at once, across every bucket
+     * @throws IllegalArgumentException If the maximum is not positive
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public WebhookDispatcher(@NotNull Call.Factory http, int maxInFlight) {
+        if(maxInFlight <= 0) throw new IllegalArgumentException("Maximum requests in flight must be positive");
+
+        // OkHttp allows 5 requests per host by default, every webhook shares the discord host
+        if(http instanceof OkHttpClient client && client.dispatcher().getMaxRequestsPerHost() < maxInFlight) {
+            Dispatcher calls = new Dispatcher();
+            calls.setMaxRequestsPerHost(maxInFlight);
+            calls.setMaxRequests(Math.max(maxInFlight, calls.getMaxRequests()));
+
+            this.calls = calls;
+            this.http = client.newBuilder().dispatcher(calls).build();
+        }
+        else {
+            this.calls = null;
+            this.http = http;
+        }
+
+        this.maxInFlight = maxInFlight;
+        this.ready = new ArrayDeque[LANES.length];
+        for(DispatchLane lane : LANES) {
+            this.ready[lane.ordinal()] = new ArrayDeque<>();
+            this.lanes[lane.ordinal()] = new LaneMetrics(lane);
+        }
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "webhook-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Queue a user visible webhook message.
+     *
+     * @param webhookUrl The webhook execute URL, as given by discord, optionally with a {@code thread_id}
+     * @param data The webhook message
+     * @return A future of the sent message object
+     * @throws IllegalArgumentException If the URL is malformed
+     * @see #send(HttpUrl, WebhookData, DispatchLane)
+     */
+    public @NotNull CompletableFuture<DataObject> send(@NotNull String webhookUrl, @NotNull WebhookData data) {
+        return send(webhookUrl, data, DispatchLane.VISIBLE);
+    }
+
+    /**
+     * Queue a webhook message.
+     *
+     * @param webhookUrl The webhook execute URL, as given by discord, optionally with a {@code thread_id}
+     * @param data The webhook message
+     * @param lane The priority lane of this message
+     * @return A future of the sent message object
+     * @throws IllegalArgumentException If the URL is malformed
+     * @see #send(HttpUrl, WebhookData, DispatchLane)
+     */
+    public @NotNull CompletableFuture<DataObject> send(@NotNull String webhookUrl,
+                                                       @NotNull WebhookData data,
+                                                       @NotNull DispatchLane lane) {
+        HttpUrl url = HttpUrl.parse(webhookUrl);
+        if(url == null) throw new IllegalArgumentException("Malformed webhook URL");
+        return send(url, data, lane);
+    }
+
+    /**
+     * Queue a user visible webhook message.
+     *
+     * @param webhookUrl The webhook execute URL, as given by discord, optionally with a {@code thread_id}
+     * @param data The webhook message
+     * @return A future of the sent message object
+     * @see #send(HttpUrl, WebhookData, DispatchLane)
+     */
+    public @NotNull CompletableFuture<DataObject> send(@NotNull HttpUrl webhookUrl, @NotNull WebhookData data) {
+        return send(webhookUrl, data, DispatchLane.VISIBLE);
+    }
+
+    /**
+     * Queue a webhook message.
+     *
+     * <p>The request body is prepared only when the message is sent, once per attempt,
+     * so that file attachments are opened just in time.</p>
+     *
+     * @param webhookUrl The webhook execute URL, as given by discord, optionally with a {@code thread_id}
+     * @param data The webhook message
+     * @param lane The priority lane of this message
+     * @return A future of the sent message object, failed with an {@link IOException}
+     *         if discord rejected it or the request failed, or with an {@link IllegalArgumentException}
+     *         without being queued if it exceeds a limit checked by {@link WebhookLimits}
+     * @throws IllegalStateException If this dispatcher is closed, a future failed with a
+     *                               {@link CancellationException} is returned instead if it closes meanwhile
+     */
+    public @NotNull CompletableFuture<DataObject> send(@NotNull HttpUrl webhookUrl,
+                                                       @NotNull WebhookData data,
+                                                       @NotNull DispatchLane lane) {
+        if(closed) throw new IllegalStateException("Webhook dispatcher is closed");
+
+        // Fail before any upload rather than on a 400 response
+        try {
+            WebhookLimits.check(data);
+        }
+        catch (IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        Message message = new Message(webhookUrl.newBuilder().setQueryParameter("wait", "true").build(), data, lane);
+        String route = webhookUrl.encodedPath();
+
+        queued.incrementAndGet();
+        lanes[lane.ordinal()].queued.incrementAndGet();
+        try {
+            scheduler.execute(() -> buckets.computeIfAbsent(route, Bucket::new).offer(message));
+        }
+        catch (RejectedExecutionException ex) {
+            // Closed since the check above
+            queued.decrementAndGet();
+            lanes[lane.ordinal()].queued.decrementAndGet();
+            return CompletableFuture.failedFuture(new CancellationException("Webhook dispatcher is closed"));
+        }
+        return message.result;
+    }
+
+    /**
+     * Get the number of messages waiting to be sent, in every bucket.
+     *
+     * @return The total queue depth
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Get the number of requests currently in flight.
+     *
+     * @return The in-flight request count
+     */
+    public int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * Get the number of requests sent.
+     *
+     * @return The sent request count, including retried attempts
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * Get the number of {@code 429} responses received.
+     *
+     * @return The rate limited response count
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * Get the live latency statistics of a lane.
+     *
+     * @param lane The dispatch lane
+     * @return The metrics of this lane
+     */
+    public @NotNull LaneMetrics getLaneMetrics(@NotNull DispatchLane lane) {
+        return lanes[lane.ordinal()];
+    }
+
+    /**
+     * Get a snapshot of every active bucket.
+     *
+     * @return The metrics of each bucket with queued messages or a pending rate limit
+     */
+    public @NotNull List<BucketMetrics> getBuckets() {
+        List<BucketMetrics> metrics = new ArrayList<>(buckets.size());
+        long now = System.nanoTime();
+        for(Bucket bucket : buckets.values()) metrics.add(bucket.snapshot(now));
+        return metrics;
+    }
+
+    /**
+     * Stop sending, every queued message fails with a {@link CancellationException}.
+     * Requests in flight still complete, or fail the same way if rate limited.
+     */
+    @Override
+    public void close() {
+        if(closed) return;
+        closed = true;
+
+        scheduler.execute(() -> buckets.values().forEach(Bucket::cancel));
+        scheduler.shutdown();
+
+        // Never more calls than its request limit, so the ones in flight are already running
+        if(calls != null) calls.executorService().shutdown();
+    }
+
+    /**
+     * Run a task on the dispatcher thread, or on the calling thread once closed
+     * so that the requests in flight still complete.
+     */
+    private void post(@NotNull Runnable task) {
+        try { scheduler.execute(task); }
+        catch (RejectedExecutionException ex) { task.run(); }
+    }
+
+    /**
+     * Hand every free request slot to the most urgent ready bucket.
+     */
+    private void pump() {
+        while(inFlight < maxInFlight && !closed) {
+            long now = System.nanoTime();
+
+            if(globalResetAt - now > 0) {
+                if(globalWakeup == null) globalWakeup = scheduler.schedule(() -> {
+                    globalWakeup = null;
+                    pump();
+                }, globalResetAt - now, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            for(int i = 0; i < LANES.length; i++) {
+                Bucket bucket = ready[i].peekFirst();
+                heads[i] = bucket == null? null : bucket.head(now);
+            }
+
+            int lane = pick(heads, now);
+            if(lane < 0) return;
+
+            // A starved lane takes every other slot, the urgent lanes keep the rest
+            int urgent = 0;
+            while(heads[urgent] == null) urgent++;
+            if(lane != urgent && promoted) lane = urgent;
+            promoted = lane != urgent;
+
+            // The last slot is kept for interactions
+            if(lane != DispatchLane.INTERACTION.ordinal() && maxInFlight > 1 && inFlight + 1 >= maxInFlight) {
+                if(heads[DispatchLane.INTERACTION.ordinal()] == null) return;
+                lane = DispatchLane.INTERACTION.ordinal();
+            }
+
+            Bucket bucket = ready[lane].pollFirst();
+            bucket.readyLane = -1;
+            bucket.sendNext(now);
+        }
+    }
+
+    /**
+     * Pick the lane to send from: the most overdue lane past its starvation delay,
+     * or else the most urgent lane with a message.
+     *
+     * @param heads The next message of each lane, {@code null} if none
+     * @return The lane ordinal, {@code -1} if every lane is empty
+     */
+    private static int pick(@Nullable Message @NotNull [] heads, long now) {
+        int chosen = -1;
+        long overdue = 0;
+        for(int i = 1; i < heads.length; i++) {
+            if(heads[i] == null) continue;
+            long late = now - heads[i].queuedAt - LANES[i].getStarvationNanos();
+            if(late > overdue) {
+                overdue = late;
+                chosen = i;
+            }
+        }
+        if(chosen >= 0) return chosen;
+
+        for(int i = 0; i < heads.length; i++) if(heads[i] != null) return i;
+        return -1;
+    }
+
+    /**
+     * Snapshot of a rate limit bucket.
+     *
+     * @param route The webhook route path of this bucket
+     * @param bucket The discord bucket hash, {@code null} until the first response
+     * @param queued The number of messages waiting in this bucket
+     * @param remaining The number of requests left before the reset
+     * @param resetInMillis The time until the bucket resets, {@code 0} if not exhausted
+     * @param rateLimited The number of {@code 429} responses of this bucket
+     */
+    public record BucketMetrics(@NotNull String route,
+                                @Nullable String bucket,
+                                int queued,
+                                int remaining,
+                                long resetInMillis,
+                                long rateLimited) {}
+
+    /**
+     * A queued webhook message
+     */
+    private static final class Message {
+        private final HttpUrl url;
+        private final WebhookData data;
+        private final DispatchLane lane;
+        private final CompletableFuture<DataObject> result = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+        private long sentAt;
+        private int retries;
+
+        private Message(@NotNull HttpUrl url, @NotNull WebhookData data, @NotNull DispatchLane lane) {
+            this.url = url;
+            this.data = data;
+            this.lane = lane;
+        }
+    }
+
+    /**
+     * Rate limit state read from a response, parsed off the dispatcher thread
+     */
+    private record Outcome(int code,
+                           @Nullable String bucket,
+                           int limit,
+                           int remaining,
+                           long resetAfterNanos,
+                           long retryAfterNanos,
+                           boolean global,
+                           byte @Nullable [] body) {
+
+        private static @NotNull Outcome of(@NotNull Response response) throws IOException {
+            ResponseBody body = response.body();
+            return new Outcome(
+                response.code(),
+                response.header("X-RateLimit-Bucket"),
+                parseInt(response.header("X-RateLimit-Limit"), -1),
+                parseInt(response.header("X-RateLimit-Remaining"), -1),
+                parseSeconds(response.header("X-RateLimit-Reset-After")),
+                parseSeconds(response.header("Retry-After")),
+                response.header("X-RateLimit-Global") != null,
+                body == null? null : body.bytes()
+            );
+        }
+
+        private static int parseInt(@Nullable String value, int fallback) {
+            if(value == null) return fallback;
+            try { return Integer.parseInt(value.trim()); }
+            catch (NumberFormatException ex) { return fallback; }
+        }
+
+        private static long parseSeconds(@Nullable String value) {
+            if(value == null) return -1;
+            try { return (long) (Double.parseDouble(value.trim()) * 1_000_000_000L); }
+            catch (NumberFormatException ex) { return -1; }
+        }
+    }
+
+    /**
+     * Queues of a webhook route by lane, confined to the dispatcher thread
+     */
+    private final class Bucket {
+        private final String route;
+        private final ArrayDeque<Message>[] queues;
+        private final Message[] heads = new Message[LANES.length];
+        private final AtomicInteger depth = new AtomicInteger();
+        private volatile @Nullable String hash;
+        private volatile int limit = 1, remaining = 1;
+        private volatile long resetAt = System.nanoTime();
+        private volatile long rateLimited;
+        private boolean inFlight;
+        private int readyLane = -1;
+        private @Nullable ScheduledFuture<?> wakeup;
+
+        /**
+         * Whether the wakeup only removes this bucket once it reset, rather than sends
+         */
+        private boolean idle;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Bucket(@NotNull String route) {
+            this.route = route;
+            this.queues = new ArrayDeque[LANES.length];
+            for(int i = 0; i < LANES.length; i++) queues[i] = new ArrayDeque<>();
+        }
+
+        private void offer(@NotNull Message message) {
+            queues[message.lane.ordinal()].addLast(message);
+            depth.incrementAndGet();
+
+            if(idle) {
+                wakeup.cancel(false);
+                wakeup = null;
+                idle = false;
+            }
+
+            // Move up to the ready queue of a more urgent lane
+            if(readyLane > message.lane.ordinal()) {
+                ready[readyLane].remove(this);
+                readyLane = -1;
+            }
+            schedule();
+        }
+
+        /**
+         * Get the next message of this bucket, by the same lane priority as the dispatcher
+         */
+        private @Nullable Message head(long now) {
+            for(int i = 0; i < LANES.length; i++) heads[i] = queues[i].peekFirst();
+            int lane = pick(heads, now);
+            return lane < 0? null : heads[lane];
+        }
+
+        /**
+         * Enter the ready queue if the bucket allows a request, or wake up just in time when it does
+         */
+        private void schedule() {
+            if(inFlight || wakeup != null || readyLane >= 0 || closed) return;
+
+            long now = System.nanoTime();
+            Message head = head(now);
+
+            // An empty bucket keeps its rate limit until its reset, then it is removed
+            if(head == null) {
+                long reset = resetAt - now;
+                if(reset <= 0) buckets.remove(route, this);
+                else {
+                    idle = true;
+                    wakeup = scheduler.schedule(() -> {
+                        wakeup = null;
+                        idle = false;
+                        schedule();
+                    }, reset, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+
+            long wait = remaining > 0? 0 : resetAt - now;
+            if(wait > 0) {
+                wakeup = scheduler.schedule(() -> {
+                    wakeup = null;
+                    schedule();
+                }, wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            readyLane = head.lane.ordinal();
+            ready[readyLane].addLast(this);
+            pump();
+        }
+
+        private void sendNext(long now) {
+            Message message = head(now);
+            if(message == null) return;
+
+            queues[message.lane.ordinal()].remove(message);
+            depth.decrementAndGet();
+            queued.decrementAndGet();
+            lanes[message.lane.ordinal()].queued.decrementAndGet();
+            lanes[message.lane.ordinal()].recordSent(now - message.queuedAt, isPromoted(message, now));
+
+            // The reset has passed, the bucket is full again
+            if(remaining <= 0) remaining = limit;
+
+            remaining--;
+            inFlight = true;
+            WebhookDispatcher.this.inFlight++;
+            message.sentAt = now;
+            send(message);
+        }
+
+        /**
+         * Whether the message waited past its starvation delay and went ahead of a more urgent one
+         */
+        private boolean isPromoted(@NotNull Message message, long now) {
+            if(now - message.queuedAt <= message.lane.getStarvationNanos()) return false;
+
+            for(int i = 0; i < message.lane.ordinal(); i++)
+                if(!ready[i].isEmpty() || !queues[i].isEmpty()) return true;
+            return false;
+        }
+
+        private void send(@NotNull Message message) {
+            Request request;
+            try {
+                request = new Request.Builder().url(message.url).post(message.data.prepareRequestBody()).build();
+            }
+            catch (RuntimeException ex) {
+                message.result.completeExceptionally(ex);
+                onDone();
+                return;
+            }
+
+            sent.increment();
+            http.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException error) {
+                    post(() -> onResult(message, null, error));
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    Outcome outcome;
+                    try(response) { outcome = Outcome.of(response); }
+                    catch (IOException ex) {
+                        onFailure(call, ex);
+                        return;
+                    }
+                    post(() -> onResult(message, outcome, null));
+                }
+            });
+        }
+
+        private void onResult(@NotNull Message message, @Nullable Outcome outcome, @Nullable IOException error) {
+            long now = System.nanoTime();
+            lanes[message.lane.ordinal()].recordResponse(now - message.sentAt);
+
+            if(outcome == null) {
+                message.result.completeExceptionally(error);
+                onDone();
+                return;
+            }
+
+            if(outcome.bucket() != null) hash = outcome.bucket();
+            if(outcome.limit() > 0) limit = outcome.limit();
+            if(outcome.remaining() >= 0) remaining = outcome.remaining();
+            if(outcome.resetAfterNanos() >= 0) resetAt = now + outcome.resetAfterNanos();
+
+            if(outcome.code() == 429) {
+                rateLimited++;
+                WebhookDispatcher.this.rateLimited.increment();
+
+                long retryAfter = outcome.retryAfterNanos() >= 0? outcome.retryAfterNanos()
+                    : outcome.resetAfterNanos() >= 0? outcome.resetAfterNanos() : DEFAULT_RETRY_NANOS;
+
+                if(outcome.global()) globalResetAt = now + retryAfter;
+                else {
+                    remaining = 0;
+                    resetAt = now + retryAfter;
+                }
+
+                // Queued messages are already cancelled, a retry would never be sent
+                if(closed)
+                    message.result.completeExceptionally(new CancellationException("Webhook dispatcher is closed"));
+                else if(++message.retries > MAX_RETRIES)
+                    message.result.completeExceptionally(new IOException("Webhook message is still rate limited after " + MAX_RETRIES + " retries"));
+                else {
+                    queues[message.lane.ordinal()].addFirst(message);
+                    depth.incrementAndGet();
+                    queued.incrementAndGet();
+                    lanes[message.lane.ordinal()].queued.incrementAndGet();
+                }
+            }
+            else if(outcome.code() >= 200 && outcome.code() < 300) {
+                byte[] body = outcome.body();
+                try { message.result.complete(body == null || body.length == 0? DataObject.empty() : DataObject.fromJson(body)); }
+                catch (RuntimeException ex) { message.result.complete(DataObject.empty()); }
+            }
+            else {
+                String body = outcome.body() == null? "" : new String(outcome.body(), StandardCharsets.UTF_8);
+                message.result.completeExceptionally(new IOException("Webhook request failed with HTTP " + outcome.code() + ": " + body));
+            }
+
+            onDone();
+        }
+
+        /**
+         * Release the request slot of this bucket
+         */
+        private void onDone() {
+            inFlight = false;
+            WebhookDispatcher.this.inFlight--;
+            schedule();
+            pump();
+        }
+
+        private void cancel() {
+            if(wakeup != null) wakeup.cancel(false);
+
+            for(ArrayDeque<Message> queue : queues) {
+                Message message;
+                while((message = queue.pollFirst()) != null) {
+                    depth.decrementAndGet();
+                    queued.decrementAndGet();
+                    lanes[message.lane.ordinal()].queued.decrementAndGet();
+                    message.result.completeExceptionally(new CancellationException("Webhook dispatcher is closed"));
+                }
+            }
+        }
+
+        private @NotNull BucketMetrics snapshot(long now) {
+            long resetIn = remaining > 0? 0 : Math.max(0, TimeUnit.NANOSECONDS.toMillis(resetAt - now));
+            return new BucketMetrics(route, hash, depth.get(), remaining, resetIn, rateLimited);
+        }
+    }
+}
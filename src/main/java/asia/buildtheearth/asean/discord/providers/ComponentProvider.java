@@ -1,8 +1,12 @@
 package asia.buildtheearth.asean.discord.providers;
 
+import asia.buildtheearth.asean.discord.components.CompactID;
+import asia.buildtheearth.asean.discord.components.PayloadOverflow;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.function.Consumer;
+
 /**
  * Plugin owned component provider class.
  * Use this interface to create each component ID.
@@ -10,6 +14,7 @@ import org.jetbrains.annotations.NotNull;
  * @see #getPlugin() 
  * @see #newComponentID(String, Long, Long) 
  * @see #newComponentID(String, Long, Long, Object) 
+ * @see #newCompactID(String, long, long, Consumer)
  */
 public interface ComponentProvider {
 
@@ -21,6 +26,33 @@ public interface ComponentProvider {
      */
     org.bukkit.plugin.Plugin getPlugin();
 
+    /**
+     * Whether payloads that make the component ID exceed 100 characters are moved
+     * to the local {@link PayloadOverflow} store instead of failing.
+     *
+     * <p>Overflow payloads are resolved transparently by
+     * {@link asia.buildtheearth.asean.discord.components.PluginComponent#getPayload()},
+     * but only by this server and until they expire after {@link PayloadOverflow#TIME_TO_LIVE}.
+     * Disabled by default.</p>
+     *
+     * @return True to enable the overflow mode
+     */
+    default boolean isPayloadOverflow() {
+        return false;
+    }
+
+    /**
+     * Maximum number of overflow payloads this plugin keeps at once, the oldest being overwritten first.
+     * Size it to the overflowing components created within {@link PayloadOverflow#TIME_TO_LIVE},
+     * live payloads overwritten are counted by {@link PayloadOverflow#getOverwrites()}.
+     * Read once, when this plugin stores its first overflow payload.
+     *
+     * @return The overflow store capacity, {@link PayloadOverflow#DEFAULT_CAPACITY} by default
+     */
+    default int getPayloadOverflowCapacity() {
+        return PayloadOverflow.DEFAULT_CAPACITY;
+    }
+
     /**
      * Resolve this component ID returning a new component ID string
      *
@@ -101,9 +133,44 @@ public interface ComponentProvider {
                 payloadValue                 // Optional payloads
         );
 
+        // Move the payload to the overflow store, leaving a short token in its place
+        if((componentID.length() > 100 && this.isPayloadOverflow()) || PayloadOverflow.isToken(payloadValue))
+            componentID = componentID.substring(0, componentID.length() - payloadValue.length())
+                    + PayloadOverflow.of(this.getPlugin().getName(), this.getPayloadOverflowCapacity()).store(payloadValue);
+
         if(componentID.length() > 100)
             throw new IllegalArgumentException("Created component's custom_id has length greater than 100 characters! (" + componentID + ")");
 
         return componentID;
     }
-}
\ No newline at end of file
+
+    /**
+     * Create a {@link CompactID compact} component ID without payload.
+     *
+     * @param type The component signature
+     * @param id The snowflake signature of this component
+     * @param user The only allowed user to use this component
+     * @return A new compact component custom_id as String
+     */
+    default @NotNull String newCompactID(@NotNull String type, long id, long user) {
+        return CompactID.encode(this.getPlugin().getName(), type, id, user, null);
+    }
+
+    /**
+     * Create a {@link CompactID compact} component ID with typed payload fields.
+     *
+     * <p>The snowflakes are encoded in 22 characters and the payload fields are packed,
+     * leaving far more room than {@link #newComponentID(String, Long, Long, Object)}.</p>
+     *
+     * @param type The component signature
+     * @param id The snowflake signature of this component
+     * @param user The only allowed user to use this component
+     * @param payload Writer of the payload fields, read back in the same order
+     *                by {@link asia.buildtheearth.asean.discord.components.PluginComponent#getCompactPayload()}
+     * @return A new compact component custom_id as String
+     * @throws IllegalArgumentException If the created custom_id exceeds 100 characters
+     */
+    default @NotNull String newCompactID(@NotNull String type, long id, long user, @NotNull Consumer<CompactID.Writer> payload) {
+        return CompactID.encode(this.getPlugin().getName(), type, id, user, payload);
+    }
+}
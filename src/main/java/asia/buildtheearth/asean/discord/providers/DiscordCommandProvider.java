@@ -1,9 +1,17 @@
 package asia.buildtheearth.asean.discord.providers;
 
+import asia.buildtheearth.asean.discord.commands.AdaptiveReply;
+import asia.buildtheearth.asean.discord.commands.AdaptiveSlashCommand;
 import asia.buildtheearth.asean.discord.commands.SlashCommand;
 import asia.buildtheearth.asean.discord.commands.events.CommandEvent;
 import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
 import asia.buildtheearth.asean.discord.commands.interactions.InteractionEvent;
+import asia.buildtheearth.asean.discord.commands.interactions.InteractionExecutor;
+import asia.buildtheearth.asean.discord.commands.interactions.store.InteractionCache;
+import asia.buildtheearth.asean.discord.commands.interactions.store.InteractionJournal;
+import asia.buildtheearth.asean.discord.commands.interactions.store.InteractionStore;
+import asia.buildtheearth.asean.discord.commands.interactions.store.InteractionWeigher;
+import asia.buildtheearth.asean.discord.commands.interactions.store.RemovalCause;
 import github.scarsz.discordsrv.api.commands.PluginSlashCommand;
 import github.scarsz.discordsrv.api.commands.SlashCommandProvider;
 import github.scarsz.discordsrv.dependencies.jda.api.entities.ChannelType;
@@ -11,16 +19,20 @@ import github.scarsz.discordsrv.dependencies.jda.api.events.interaction.SlashCom
 import github.scarsz.discordsrv.dependencies.jda.api.interactions.commands.CommandInteraction;
 import github.scarsz.discordsrv.dependencies.jda.api.interactions.commands.build.CommandData;
 import github.scarsz.discordsrv.dependencies.jda.api.requests.restaction.interactions.ReplyAction;
-import github.scarsz.discordsrv.util.SchedulerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.logging.Level;
 
 /**
  * Provider/Manager for discord slash command interactions.
@@ -28,11 +40,19 @@ import java.util.function.Supplier;
  *
  * @see #register(String, CommandData...) Register slash commands
  * @see #fromClass(Class) Get the registered slash command
- * @see #putPayload(Long, Interaction) Track a slash command event w/ payload
- * @see #getAs(Class, Long) Get the tracked slash command interaction
+ * @see #putPayload(long, Interaction) Track a slash command event w/ payload
+ * @see #getAs(Class, long) Get the tracked slash command interaction
  */
 public abstract class DiscordCommandProvider implements SlashCommandProvider, InteractionEvent, CommandEvent {
 
+    /**
+     * Default time to live of every interaction, matching the 15 minutes
+     * lifetime of a discord interaction token.
+     *
+     * @see #getInteractionTimeout(Class)
+     */
+    public static final Duration DEFAULT_INTERACTION_TIMEOUT = Duration.ofMinutes(15);
+
     /**
      * Internal slash command object management.
      * Stores all available {@link PluginSlashCommand}
@@ -49,16 +69,72 @@ public abstract class DiscordCommandProvider implements SlashCommandProvider, In
     /**
      * The runtime interactions from user activated slash command events.
      * Provide {@link Interaction} for each retrospective interaction.
+     *
+     * <p>Written from JDA event threads and expired from the store own thread,
+     * an {@link InteractionCache} unless given a different {@link InteractionStore}.</p>
+     */
+    private final InteractionStore interactions;
+
+    /**
+     * Optional persistence of the runtime interactions.
+     *
+     * @see #attachJournal(InteractionJournal)
+     */
+    private volatile @Nullable InteractionJournal journal;
+
+    /**
+     * Optional virtual thread execution of command triggers.
+     *
+     * @see #setExecutor(InteractionExecutor)
+     */
+    private volatile @Nullable InteractionExecutor executor;
+
+    /**
+     * Acknowledgement paths taken by each {@link AdaptiveSlashCommand}, by command data class.
      */
-    private final Map<Long, Interaction> interactions;
+    private final Map<Class<? extends CommandData>, AdaptiveReply.Statistics> acknowledgements = new ConcurrentHashMap<>();
 
     /**
      * Construct plugin base slash command provider
+     * with no bound on the number of tracked interactions.
      */
     public DiscordCommandProvider() {
+        this(InteractionCache.UNBOUNDED, InteractionWeigher.SINGLETON);
+    }
+
+    /**
+     * Construct plugin base slash command provider with bounded interactions.
+     *
+     * <p>Once the total weight of tracked interactions exceeds the maximum,
+     * the least valuable interactions are evicted and reported through
+     * {@link #onInteractionTimeout(java.util.List, RemovalCause)} as {@link RemovalCause#EVICTED}.</p>
+     *
+     * @param maximumWeight The maximum total weight of tracked interactions
+     * @param weigher The weigher of each interaction,
+     *                {@link InteractionWeigher#SINGLETON} to bound by interaction count
+     */
+    public DiscordCommandProvider(long maximumWeight, @NotNull InteractionWeigher weigher) {
+        this.commandSet = new HashSet<>();
+        this.registered = new HashMap<>();
+        this.interactions = new InteractionCache(getClass().getSimpleName() + "-interaction-expirer", maximumWeight, weigher);
+        this.interactions.setRemovalListener(this::onRemoval);
+    }
+
+    /**
+     * Construct plugin base slash command provider with a custom interaction storage,
+     * such as a {@link asia.buildtheearth.asean.discord.commands.interactions.store.SharedInteractionStore
+     * SharedInteractionStore} to share interactions between the servers of a network.
+     *
+     * <p>The store receives the removal listener of this provider,
+     * close it on plugin disable if it holds any resource.</p>
+     *
+     * @param store The storage of the runtime interactions
+     */
+    public DiscordCommandProvider(@NotNull InteractionStore store) {
         this.commandSet = new HashSet<>();
         this.registered = new HashMap<>();
-        this.interactions = new HashMap<>();
+        this.interactions = store;
+        this.interactions.setRemovalListener(this::onRemoval);
     }
 
     /**
@@ -138,13 +214,22 @@ public abstract class DiscordCommandProvider implements SlashCommandProvider, In
                         @NotNull Supplier<@Nullable T> payload) {
 
         if(isUnknownChannel(event)) return;
-        else event.deferReply(ephemeral).queue();
+
+        SlashCommand<T> command = resolver.apply(this.fromClass(type));
+
+        // Adaptive commands get a budget to reply directly, the others are deferred right away
+        AdaptiveSlashCommand<T> adaptive = command instanceof AdaptiveSlashCommand<T> cast? cast : null;
+        AdaptiveReply reply = adaptive == null? null
+            : AdaptiveReply.start(event, ephemeral, getAcknowledgeBudget(type), getAcknowledgeStatistics(type));
+
+        if(reply == null) event.deferReply(ephemeral).queue();
 
         T interaction = payload.get();
 
         if(interaction != null) this.putPayload(event.getIdLong(), interaction);
 
-        resolver.apply(this.fromClass(type)).trigger(event.getHook(), interaction);
+        if(reply != null) execute(type, event.getIdLong(), () -> adaptive.trigger(reply, interaction));
+        else execute(type, event.getIdLong(), () -> command.trigger(event.getHook(), interaction));
     }
 
     /**
@@ -164,6 +249,15 @@ public abstract class DiscordCommandProvider implements SlashCommandProvider, In
      */
     @Override
     public final <T extends Interaction> @Nullable T getAs(@NotNull Class<T> interaction, Long eventID) {
+        if(eventID == null) return null;
+        return getAs(interaction, eventID.longValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final <T extends Interaction> @Nullable T getAs(@NotNull Class<T> interaction, long eventID) {
         Interaction payload = getPayload(eventID);
 
         if(payload == null) return null;
@@ -188,6 +282,12 @@ public abstract class DiscordCommandProvider implements SlashCommandProvider, In
     @Override
     public final void clearInteractions() {
         interactions.clear();
+
+        InteractionJournal journal = this.journal;
+        if(journal != null) {
+            try { journal.clear(); }
+            catch (IOException ex) { onJournalFailure(ex); }
+        }
     }
 
     /**
@@ -195,7 +295,21 @@ public abstract class DiscordCommandProvider implements SlashCommandProvider, In
      */
     @Override
     public final void removeInteraction(Long eventID) {
+        if(eventID != null) removeInteraction(eventID.longValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final void removeInteraction(long eventID) {
         interactions.remove(eventID);
+
+        InteractionJournal journal = this.journal;
+        if(journal != null) {
+            try { journal.remove(eventID); }
+            catch (IOException ex) { onJournalFailure(ex); }
+        }
     }
 
     /**
@@ -203,6 +317,15 @@ public abstract class DiscordCommandProvider implements SlashCommandProvider, In
      */
     @Override
     public final Interaction getPayload(Long eventID) {
+        if(eventID == null) return null;
+        return getPayload(eventID.longValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final Interaction getPayload(long eventID) {
         return interactions.get(eventID);
     }
 
@@ -211,13 +334,157 @@ public abstract class DiscordCommandProvider implements SlashCommandProvider, In
      */
     @Override
     public final <T extends Interaction> void putPayload(Long eventID, T payload) {
-        interactions.put(eventID, payload);
+        if(eventID == null) throw new IllegalArgumentException("Interaction event ID must not be null");
+        putPayload(eventID.longValue(), payload);
+    }
 
-        // Payload is guaranteed to be expired in 15 minutes (15min * 60000ms / 50tick = 18000)
-        SchedulerUtil.runTaskLaterAsynchronously(this.getPlugin(), () -> {
-            if(interactions.remove(eventID) != null)
-                onInteractionTimeout(payload.getClass());
-        }, 18000);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final <T extends Interaction> void putPayload(long eventID, T payload) {
+        long ttl = getInteractionTimeout(payload.getClass()).toMillis();
+        interactions.put(eventID, payload, ttl);
+
+        InteractionJournal journal = this.journal;
+        if(journal != null) {
+            try { journal.put(eventID, payload, System.currentTimeMillis() + ttl); }
+            catch (IOException ex) { onJournalFailure(ex); }
+        }
+    }
+
+    /**
+     * Run every command trigger, and every button handler forwarding to a command,
+     * on a virtual thread of an {@link InteractionExecutor} instead of the JDA event thread.
+     *
+     * <p>Triggers are capped per command data class, and interrupted once their interaction expires.
+     * Close the executor on plugin disable.</p>
+     *
+     * @param executor The executor to run handlers on, or {@code null} to run them inline again
+     */
+    public final void setExecutor(@Nullable InteractionExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final @Nullable InteractionExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Persist the runtime interactions into a journal so that they survive a restart or reload.
+     *
+     * <p>Every live interaction of the journal is restored with its remaining time to live,
+     * then every interaction registered afterward is appended to it.
+     * Only interaction types with a codec given to the journal are persisted.</p>
+     *
+     * <p>Call {@link #detachJournal()} on plugin disable instead of {@link #clearInteractions()},
+     * which would clear the journal too.</p>
+     *
+     * <blockquote>{@snippet :
+     * provider.attachJournal(InteractionJournal.open(
+     *     plugin.getDataFolder().toPath().resolve("interactions.journal"),
+     *     InteractionCodec.BASE
+     * ));
+     * }</blockquote>
+     *
+     * @param journal The opened journal to restore from and persist to
+     */
+    public final void attachJournal(@NotNull InteractionJournal journal) {
+        long now = System.currentTimeMillis();
+        journal.replay((eventID, payload, expiresAt) -> interactions.put(eventID, payload, expiresAt - now));
+        this.journal = journal;
+    }
+
+    /**
+     * Stop persisting interactions and close the attached journal, if any.
+     * The interactions in memory are kept.
+     *
+     * <p>An interaction registered concurrently may still reach the closed journal,
+     * its write is rejected and reported to {@link #onJournalFailure(IOException)}.</p>
+     *
+     * @throws IOException If the journal failed to flush
+     */
+    public final void detachJournal() throws IOException {
+        InteractionJournal journal = this.journal;
+        this.journal = null;
+        if(journal != null) journal.close();
+    }
+
+    /**
+     * Called when the attached journal failed to persist an interaction.
+     * The interaction is still registered in memory.
+     *
+     * <p>The default implementation logs a warning to the plugin logger.</p>
+     *
+     * @param error The journal I/O error
+     */
+    protected void onJournalFailure(@NotNull IOException error) {
+        getPlugin().getLogger().log(Level.WARNING, "Failed to persist slash command interaction", error);
+    }
+
+    /**
+     * Remove every interaction of a removal batch from the attached journal and maintain it, then report the batch.
+     *
+     * <p>Evicted interactions are removed too, they would otherwise be restored on the next start
+     * as their records did not expire yet.</p>
+     *
+     * @param removed The removed interactions
+     * @param cause Why these interactions are removed
+     */
+    private void onRemoval(@NotNull List<Interaction> removed, @NotNull RemovalCause cause) {
+        InteractionJournal journal = this.journal;
+        if(journal != null) {
+            try {
+                // An event registered again since its removal is still live
+                for(Interaction interaction : removed)
+                    if(!interactions.contains(interaction.eventID)) journal.remove(interaction.eventID);
+                journal.maintain(interactions::contains);
+            }
+            catch (IOException ex) { onJournalFailure(ex); }
+        }
+
+        onInteractionTimeout(removed, cause);
+    }
+
+    /**
+     * Get the time to live of an interaction type.
+     *
+     * <p>Override this method to give specific interactions a different lifetime,
+     * defaults to {@link #DEFAULT_INTERACTION_TIMEOUT} for every type.</p>
+     *
+     * @param interaction The interaction class being registered
+     * @return The duration until the interaction times out
+     */
+    protected @NotNull Duration getInteractionTimeout(@NotNull Class<? extends Interaction> interaction) {
+        return DEFAULT_INTERACTION_TIMEOUT;
+    }
+
+    /**
+     * Get the time an {@link AdaptiveSlashCommand} has to reply directly before being deferred automatically.
+     *
+     * <p>Override this method to give specific commands a different budget,
+     * defaults to {@link AdaptiveReply#DEFAULT_BUDGET} for every command.
+     * Discord requires an acknowledgement within 3 seconds.</p>
+     *
+     * @param command The command data class being triggered
+     * @return The direct reply budget
+     */
+    protected @NotNull Duration getAcknowledgeBudget(@NotNull Class<? extends CommandData> command) {
+        return AdaptiveReply.DEFAULT_BUDGET;
+    }
+
+    /**
+     * Get how often an {@link AdaptiveSlashCommand} replied directly or was deferred by the watchdog.
+     *
+     * @param command The command data class
+     * @return The live acknowledgement statistics of this command
+     */
+    public final @NotNull AdaptiveReply.Statistics getAcknowledgeStatistics(@NotNull Class<? extends CommandData> command) {
+        return acknowledgements.computeIfAbsent(command, key -> new AdaptiveReply.Statistics());
     }
 
     /**
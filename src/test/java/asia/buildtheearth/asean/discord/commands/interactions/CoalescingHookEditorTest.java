@@ -0,0 +1,98 @@
+package asia.buildtheearth.asean.discord.commands.interactions;
+
+import github.scarsz.discordsrv.dependencies.jda.api.interactions.InteractionHook;
+import github.scarsz.discordsrv.dependencies.jda.api.requests.RestAction;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingHookEditorTest {
+
+    private static final InteractionHook HOOK = (InteractionHook) Proxy.newProxyInstance(
+        InteractionHook.class.getClassLoader(), new Class<?>[] { InteractionHook.class },
+        (proxy, method, args) -> { throw new UnsupportedOperationException(method.getName()); });
+
+    /**
+     * Queued edits, answered manually by the test
+     */
+    private final List<Consumer<Throwable>> queued = new ArrayList<>();
+    private final List<String> applied = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    private Function<InteractionHook, RestAction<?>> edit(String content) {
+        return hook -> (RestAction<?>) Proxy.newProxyInstance(RestAction.class.getClassLoader(), new Class<?>[] { RestAction.class },
+            (proxy, method, args) -> {
+                if(!method.getName().equals("queue") || args == null || args.length != 2)
+                    throw new UnsupportedOperationException(method.getName());
+
+                Consumer<Object> success = (Consumer<Object>) args[0];
+                Consumer<Throwable> failure = (Consumer<Throwable>) args[1];
+                queued.add(error -> {
+                    if(error != null) failure.accept(error);
+                    else {
+                        applied.add(content);
+                        success.accept(null);
+                    }
+                });
+                return null;
+            });
+    }
+
+    private void answer(Throwable error) {
+        queued.remove(0).accept(error);
+    }
+
+    @Test
+    void onlyTheNewestPendingEditIsSent() throws Exception {
+        CoalescingHookEditor editor = new CoalescingHookEditor(HOOK);
+
+        for(int i = 0; i < 100; i++) assertTrue(editor.edit(edit("step " + i)));
+        assertEquals(1, queued.size());
+
+        answer(null);
+        CompletableFuture<Void> completion = editor.complete(edit("done"));
+        assertFalse(editor.edit(edit("ignored")));
+
+        answer(null);
+        answer(null);
+        assertTrue(queued.isEmpty());
+
+        completion.get();
+        assertEquals(List.of("step 0", "step 99", "done"), applied);
+        assertEquals(3, editor.getSentCount());
+        assertEquals(98, editor.getCoalescedCount());
+    }
+
+    @Test
+    void failedFinalEditFailsTheCompletion() {
+        CoalescingHookEditor editor = new CoalescingHookEditor(HOOK);
+        CompletableFuture<Void> completion = editor.complete(edit("done"));
+
+        answer(new IllegalStateException("Unknown webhook"));
+        ExecutionException ex = assertThrows(ExecutionException.class, completion::get);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+
+    @Test
+    void editThrowingBeforeQueuedDoesNotStallTheEditor() throws Exception {
+        CoalescingHookEditor editor = new CoalescingHookEditor(HOOK);
+
+        assertTrue(editor.edit(hook -> { throw new IllegalArgumentException("Content too long"); }));
+        assertTrue(editor.edit(edit("after")));
+        assertEquals(1, queued.size());
+        answer(null);
+
+        CompletableFuture<Void> completion = editor.complete(hook -> { throw new IllegalArgumentException("Content too long"); });
+        ExecutionException ex = assertThrows(ExecutionException.class, completion::get);
+        assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        assertEquals(List.of("after"), applied);
+    }
+}
@@ -0,0 +1,70 @@
+package asia.buildtheearth.asean.discord.commands.interactions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InteractionExecutorTest {
+
+    private static final Logger LOGGER = Logger.getLogger(InteractionExecutorTest.class.getName());
+
+    private static void await(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while(!condition.getAsBoolean()) {
+            if(System.nanoTime() > deadline) fail("Condition not met within " + timeoutMillis + "ms");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Snowflake of an interaction created now
+     */
+    private static long interactionID() {
+        return (System.currentTimeMillis() - 1420070400000L) << 22;
+    }
+
+    @Test
+    void closedExecutorRejectsTasks() {
+        InteractionExecutor executor = new InteractionExecutor("closed", 1, LOGGER);
+        executor.close();
+
+        assertThrows(IllegalStateException.class, () -> executor.execute(InteractionExecutorTest.class, interactionID(), () -> {}));
+        assertEquals(0, executor.getPendingCount());
+    }
+
+    @Test
+    void executeRacingCloseOnlyThrowsIllegalState() throws InterruptedException {
+        for(int round = 0; round < 200; round++) {
+            InteractionExecutor executor = new InteractionExecutor("racing", 4, LOGGER);
+            AtomicReference<Throwable> unexpected = new AtomicReference<>();
+            CountDownLatch started = new CountDownLatch(1);
+
+            Thread submitter = new Thread(() -> {
+                started.countDown();
+                try {
+                    while(true) executor.execute(InteractionExecutorTest.class, interactionID(), () -> {
+                        try { Thread.sleep(60_000); }
+                        catch (InterruptedException ignored) {}
+                    });
+                }
+                catch (IllegalStateException expected) {}
+                catch (Throwable ex) { unexpected.set(ex); }
+            });
+            submitter.start();
+
+            started.await();
+            executor.close();
+            submitter.join(5000);
+
+            assertNull(unexpected.get(), () -> "Round failed with " + unexpected.get());
+            // Every task started before the close is interrupted by it
+            await(() -> executor.getPendingCount() == 0, 5000);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+
+    private static final int THREADS = 16;
+    private static final int KEYS_PER_THREAD = 20_000;
+
+    /**
+     * Snowflake-like keys, clustered in their low bits like real IDs
+     */
+    private static long key(int thread, int i) {
+        return (1_300_000_000_000_000_000L + ((long) i << 22)) | thread;
+    }
+
+    private static void run(int threads, Callable<Void> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for(int t = 0; t < threads; t++) futures.add(pool.submit(task));
+            for(Future<Void> future : futures) future.get(60, TimeUnit.SECONDS);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void basicOperations() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(1);
+
+        assertNull(map.put(42, "a"));
+        assertEquals("a", map.put(42, "b"));
+        assertEquals("b", map.putIfAbsent(42, "c"));
+        assertEquals("b", map.get(42));
+
+        // The reserved empty key is mapped outside the table
+        assertNull(map.put(0, "zero"));
+        assertEquals("zero", map.get(0));
+        assertEquals(2, map.size());
+
+        assertFalse(map.remove(42, new String("b")));
+        assertTrue(map.remove(42, map.get(42)));
+        assertEquals("zero", map.remove(0));
+        assertTrue(map.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    void concurrentWritersLoseNothing() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(4);
+        AtomicInteger ids = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+
+        run(THREADS, () -> {
+            int thread = ids.getAndIncrement();
+            start.await();
+
+            for(int i = 0; i < KEYS_PER_THREAD; i++) {
+                long key = key(thread, i);
+                assertNull(map.put(key, key));
+                assertEquals(key, map.get(key));
+            }
+            // Remove every odd key, some while other threads are still growing their segments
+            for(int i = 1; i < KEYS_PER_THREAD; i += 2) {
+                long key = key(thread, i);
+                assertEquals(key, map.remove(key));
+            }
+            for(int i = 0; i < KEYS_PER_THREAD; i++) {
+                long key = key(thread, i);
+                if(i % 2 == 0) assertEquals(key, map.get(key));
+                else assertNull(map.get(key));
+            }
+            return null;
+        });
+
+        assertEquals(THREADS * KEYS_PER_THREAD / 2, map.size());
+
+        AtomicInteger counted = new AtomicInteger();
+        map.forEach((key, value) -> {
+            assertEquals(key, value);
+            counted.incrementAndGet();
+        });
+        assertEquals(THREADS * KEYS_PER_THREAD / 2, counted.get());
+    }
+
+    @Test
+    void contendedKeysHaveExactlyOneWinner() throws Exception {
+        ConcurrentLongMap<Integer> map = new ConcurrentLongMap<>(2);
+        AtomicInteger ids = new AtomicInteger();
+        AtomicInteger inserted = new AtomicInteger();
+        AtomicInteger removed = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+
+        run(THREADS, () -> {
+            Integer thread = ids.getAndIncrement();
+            start.await();
+
+            // Every thread races on the same keys
+            for(int i = 0; i < KEYS_PER_THREAD; i++) {
+                if(map.putIfAbsent(key(0, i), thread) == null) inserted.incrementAndGet();
+            }
+            start.await();
+            for(int i = 0; i < KEYS_PER_THREAD; i++) {
+                Integer owner = map.get(key(0, i));
+                if(owner != null && map.remove(key(0, i), owner)) removed.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertEquals(KEYS_PER_THREAD, inserted.get());
+        assertEquals(KEYS_PER_THREAD, removed.get());
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void readersNeverSeeTornValues() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>(1);
+        AtomicInteger ids = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+
+        run(THREADS, () -> {
+            int thread = ids.getAndIncrement();
+            start.await();
+
+            if(thread % 2 == 0) {
+                // Writers grow and shrink the single segment
+                for(int i = 0; i < KEYS_PER_THREAD; i++) map.put(key(thread, i), key(thread, i));
+                for(int i = 0; i < KEYS_PER_THREAD; i++) map.remove(key(thread, i));
+            }
+            else for(int round = 0; round < 4; round++) {
+                // Readers only ever see a key mapped to itself, or absent
+                for(int i = 0; i < KEYS_PER_THREAD; i++) {
+                    long key = key(thread - 1, i);
+                    Long value = map.get(key);
+                    if(value != null) assertEquals(key, value);
+                }
+            }
+            return null;
+        });
+
+        assertTrue(map.isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    private static final Consumer<LongConsumer> NO_RESIDENTS = keys -> {};
+
+    @Test
+    void countsUpToFifteen() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16, NO_RESIDENTS);
+
+        for(int i = 0; i < 20; i++) sketch.increment(42);
+        assertEquals(15, sketch.frequency(42));
+        assertEquals(0, sketch.frequency(43));
+    }
+
+    @Test
+    void growingKeepsResidentFrequencies() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16, NO_RESIDENTS);
+
+        for(long key = 1; key <= 16; key++)
+            for(int i = 0; i < key % 8; i++) sketch.increment(key);
+
+        int[] before = new int[17];
+        for(int key = 1; key <= 16; key++) before[key] = sketch.frequency(key);
+
+        for(int capacity = 32; capacity <= 1 << 16; capacity <<= 1) {
+            sketch.ensureCapacity(capacity, keys -> { for(long key = 1; key <= 16; key++) keys.accept(key); });
+            for(int key = 1; key <= 16; key++) assertTrue(sketch.frequency(key) >= before[key], "key " + key + " at " + capacity);
+        }
+
+        // The grown table holds no trace of the small table collisions
+        for(int key = 1; key <= 16; key++) assertEquals(key % 8, sketch.frequency(key));
+        int unseen = 0;
+        for(long key = 1_000; key < 2_000; key++) unseen += sketch.frequency(key);
+        assertEquals(0, unseen);
+    }
+
+    @Test
+    void agingHalvesCounters() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16, NO_RESIDENTS);
+
+        for(int i = 0; i < 8; i++) sketch.increment(-1);
+        // The sample size of a 16 slots table is 160 increments
+        for(int i = 0; i < 10; i++)
+            for(long key = 1; key <= 16; key++) sketch.increment(key);
+
+        assertEquals(4, sketch.frequency(-1));
+    }
+}
@@ -0,0 +1,98 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InteractionCacheTest {
+
+    private static void await(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while(!condition.getAsBoolean()) {
+            if(System.nanoTime() > deadline) fail("Condition not met within " + timeoutMillis + "ms");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void subTickTimeToLiveExpiresExactlyOnce() throws Exception {
+        InteractionCache cache = new InteractionCache("test-expirer");
+        Set<Long> expired = ConcurrentHashMap.newKeySet();
+        AtomicInteger notified = new AtomicInteger();
+        cache.setRemovalListener((interactions, cause) -> {
+            assertEquals(RemovalCause.EXPIRED, cause);
+            for(Interaction interaction : interactions) {
+                expired.add(interaction.eventID);
+                notified.incrementAndGet();
+            }
+        });
+
+        // Spread across several wheel ticks, so that some land right on a tick
+        int count = 3000;
+        for(int i = 1; i <= count; i++) {
+            cache.put(i, new Interaction(0, i), i % 2);
+            if(i % 500 == 0) Thread.sleep(250);
+        }
+
+        await(() -> cache.size() == 0, 5000);
+        await(() -> notified.get() == count, 1000);
+        assertEquals(count, expired.size());
+    }
+
+    @Test
+    void removedInteractionNeverExpires() throws Exception {
+        InteractionCache cache = new InteractionCache("test-expirer");
+        AtomicInteger notified = new AtomicInteger();
+        cache.setRemovalListener((interactions, cause) -> notified.addAndGet(interactions.size()));
+
+        cache.put(1, new Interaction(7, 1), 0);
+        cache.put(2, new Interaction(7, 2), 0);
+        assertEquals(7, cache.remove(1).userID);
+
+        await(() -> cache.size() == 0, 5000);
+        assertEquals(1, notified.get());
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void replacedInteractionOnlyExpiresOnce() throws Exception {
+        InteractionCache cache = new InteractionCache("test-expirer");
+        Set<Long> owners = ConcurrentHashMap.newKeySet();
+        cache.setRemovalListener((interactions, cause) -> interactions.forEach(interaction -> owners.add(interaction.userID)));
+
+        cache.put(1, new Interaction(1, 1), 0);
+        cache.put(1, new Interaction(2, 1), 0);
+        assertEquals(2, cache.get(1).userID);
+
+        await(() -> cache.size() == 0, 5000);
+        Thread.sleep(100);
+        assertEquals(Set.of(2L), owners);
+    }
+
+    @Test
+    void frequentInteractionsSurviveAOneHitFlood() {
+        InteractionCache cache = new InteractionCache("test-expirer", 200, InteractionWeigher.SINGLETON);
+        long ttl = TimeUnit.MINUTES.toMillis(1);
+
+        // Accessed while the cache is still filling and its sketch growing
+        for(long key = 1; key <= 200; key++) {
+            cache.put(key, new Interaction(0, key), ttl);
+            for(int i = 0; i < 5; i++) assertNotNull(cache.get(key));
+        }
+        for(long key = 1_000; key < 1_500; key++) cache.put(key, new Interaction(0, key), ttl);
+
+        int survived = 0;
+        for(long key = 1; key <= 200; key++) if(cache.contains(key)) survived++;
+
+        assertTrue(survived >= 195, survived + " of 200 frequent interactions survived");
+        assertTrue(cache.weightedSize() <= 200);
+        assertEquals(500, cache.evictionCount());
+    }
+}
@@ -0,0 +1,151 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InteractionJournalTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private static Map<Long, Interaction> replay(InteractionJournal journal) {
+        Map<Long, Interaction> replayed = new HashMap<>();
+        journal.replay((eventID, payload, expiresAt) -> assertNull(replayed.put(eventID, payload)));
+        return replayed;
+    }
+
+    @Test
+    void replaysLatestLiveRecordsAfterReopen() throws IOException {
+        Path path = directory.resolve("interactions.journal");
+        long now = System.currentTimeMillis();
+
+        try(InteractionJournal journal = InteractionJournal.open(path, InteractionCodec.BASE)) {
+            journal.put(1, new Interaction(10, 1), now + HOUR);
+            journal.put(2, new Interaction(20, 2), now + HOUR);
+            journal.put(2, new Interaction(21, 2), now + HOUR);
+            journal.put(3, new Interaction(30, 3), now + HOUR);
+            journal.put(4, new Interaction(40, 4), now - 1);
+            journal.remove(3);
+        }
+
+        try(InteractionJournal journal = InteractionJournal.open(path, InteractionCodec.BASE)) {
+            Map<Long, Interaction> replayed = replay(journal);
+
+            assertEquals(2, replayed.size());
+            assertEquals(10, replayed.get(1L).userID);
+            assertEquals(21, replayed.get(2L).userID);
+            assertEquals(2, replayed.get(2L).eventID);
+        }
+    }
+
+    @Test
+    void tornRecordEndsTheJournal() throws IOException {
+        Path path = directory.resolve("interactions.journal");
+
+        try(InteractionJournal journal = InteractionJournal.open(path, InteractionCodec.BASE)) {
+            journal.put(1, new Interaction(10, 1), System.currentTimeMillis() + HOUR);
+        }
+
+        // A record length pointing past the end of the file, as left by a crash mid-write
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(8).putInt(1 << 20).putInt(7).flip());
+        }
+
+        try(InteractionJournal journal = InteractionJournal.open(path, InteractionCodec.BASE)) {
+            assertEquals(10, replay(journal).get(1L).userID);
+
+            journal.put(2, new Interaction(20, 2), System.currentTimeMillis() + HOUR);
+            assertEquals(2, replay(journal).size());
+        }
+    }
+
+    @Test
+    void compactionKeepsEveryLiveRecord() throws IOException {
+        Path path = directory.resolve("interactions.journal");
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        long before;
+
+        try(InteractionJournal journal = InteractionJournal.open(path, InteractionCodec.BASE)) {
+            for(int round = 0; round < 20; round++)
+                for(long eventID = 1; eventID <= 1_000; eventID++) journal.put(eventID, new Interaction(round, eventID), expiresAt);
+            for(long eventID = 1; eventID <= 1_000; eventID += 2) journal.remove(eventID);
+
+            before = Files.size(path);
+            journal.compact();
+            assertFalse(Files.exists(path.resolveSibling(path.getFileName() + ".compact")));
+
+            // Still writable once the compacted file is mapped
+            journal.put(1, new Interaction(99, 1), expiresAt);
+
+            Map<Long, Interaction> replayed = replay(journal);
+            assertEquals(501, replayed.size());
+            assertEquals(99, replayed.get(1L).userID);
+            for(long eventID = 2; eventID <= 1_000; eventID += 2) assertEquals(19, replayed.get(eventID).userID);
+        }
+        assertTrue(Files.size(path) < before, "compacted to " + Files.size(path) + " of " + before + " bytes");
+
+        try(InteractionJournal journal = InteractionJournal.open(path, InteractionCodec.BASE)) {
+            assertEquals(501, replay(journal).size());
+        }
+    }
+
+    @Test
+    void writesAfterCloseAreRejected() throws IOException {
+        Path path = directory.resolve("interactions.journal");
+        long expiresAt = System.currentTimeMillis() + HOUR;
+
+        InteractionJournal journal = InteractionJournal.open(path, InteractionCodec.BASE);
+        journal.put(1, new Interaction(10, 1), expiresAt);
+        journal.close();
+        journal.close();
+
+        assertThrows(IOException.class, () -> journal.put(2, new Interaction(20, 2), expiresAt));
+        assertThrows(IOException.class, () -> journal.remove(1));
+        assertThrows(IOException.class, journal::clear);
+        assertThrows(IOException.class, () -> journal.maintain(eventID -> true));
+        assertThrows(IllegalStateException.class, () -> replay(journal));
+
+        try(InteractionJournal reopened = InteractionJournal.open(path, InteractionCodec.BASE)) {
+            assertEquals(10, replay(reopened).get(1L).userID);
+        }
+    }
+
+    @Test
+    void undecodableRecordIsSkipped() throws IOException {
+        Path path = directory.resolve("interactions.journal");
+        long expiresAt = System.currentTimeMillis() + HOUR;
+        InteractionCodec<Interaction> picky = InteractionCodec.of("interaction", Interaction.class,
+            (interaction, buffer) -> buffer.putLong(interaction.userID).putLong(interaction.eventID),
+            buffer -> {
+                long userID = buffer.getLong();
+                if(userID == 13) throw new IllegalArgumentException("Unlucky interaction");
+                return new Interaction(userID, buffer.getLong());
+            }
+        );
+
+        try(InteractionJournal journal = InteractionJournal.open(path, picky)) {
+            for(long eventID = 1; eventID <= 20; eventID++) journal.put(eventID, new Interaction(eventID, eventID), expiresAt);
+        }
+
+        try(InteractionJournal journal = InteractionJournal.open(path, picky)) {
+            Map<Long, Interaction> replayed = replay(journal);
+            assertEquals(19, replayed.size());
+            assertFalse(replayed.containsKey(13L));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package asia.buildtheearth.asean.discord.commands.interactions.store;
+
+import asia.buildtheearth.asean.discord.commands.interactions.Interaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedInteractionStoreTest {
+
+    private static final long TTL = TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private UnixDomainSocketAddress address;
+    private SharedInteractionServer server;
+    private SharedInteractionStore first, second;
+
+    private static void await(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while(!condition.getAsBoolean()) {
+            if(System.nanoTime() > deadline) fail("Condition not met within " + timeoutMillis + "ms");
+            Thread.sleep(10);
+        }
+    }
+
+    @BeforeEach
+    void start() throws Exception {
+        address = UnixDomainSocketAddress.of(directory.resolve("interactions.sock"));
+        server = SharedInteractionServer.start(address);
+        first = new SharedInteractionStore("first", address, InteractionCodec.BASE);
+        second = new SharedInteractionStore("second", address, InteractionCodec.BASE);
+        await(() -> first.isConnected() && second.isConnected(), 5000);
+    }
+
+    @AfterEach
+    void stop() {
+        first.close();
+        second.close();
+        server.close();
+    }
+
+    @Test
+    void interactionsAreSharedAndInvalidated() throws Exception {
+        first.put(1, new Interaction(10, 1), TTL);
+        await(() -> second.get(1) != null, 2000);
+
+        // Fetched once, then served from the near-cache
+        assertTrue(second.contains(1));
+        assertEquals(10, second.get(1).userID);
+        assertEquals(0, second.size());
+
+        first.put(1, new Interaction(11, 1), TTL);
+        await(() -> second.get(1) != null && second.get(1).userID == 11, 2000);
+
+        first.remove(1);
+        await(() -> !second.contains(1) && second.get(1) == null, 2000);
+        await(() -> server.size() == 0, 2000);
+    }
+
+    @Test
+    void absentInteractionIsLookedUpAgain() throws Exception {
+        assertNull(second.get(2));
+
+        first.put(2, new Interaction(20, 2), TTL);
+        await(() -> second.get(2) != null, 2000);
+        assertEquals(20, second.get(2).userID);
+    }
+
+    @Test
+    void localInteractionsAreResharedAfterRestart() throws Exception {
+        first.put(3, new Interaction(30, 3), TTL);
+        await(() -> server.size() == 1, 2000);
+
+        server.close();
+        await(() -> !first.isConnected() && !second.isConnected(), 2000);
+
+        // Stays readable locally while disconnected
+        assertEquals(30, first.get(3).userID);
+        assertNull(second.get(3));
+
+        server = SharedInteractionServer.start(address);
+        await(() -> first.isConnected() && second.isConnected(), 10_000);
+        await(() -> second.get(3) != null, 2000);
+        assertEquals(30, second.get(3).userID);
+    }
+
+    @Test
+    void closedStoreKeepsItsLocalInteractions() {
+        first.close();
+        first.put(4, new Interaction(40, 4), TTL);
+
+        assertFalse(first.isConnected());
+        assertEquals(40, first.get(4).userID);
+        assertEquals(1, first.size());
+    }
+
+    @Test
+    void getOnlyWaitsForTheSharedServerWhenBlocking() throws Exception {
+        UnixDomainSocketAddress silent = UnixDomainSocketAddress.of(directory.resolve("silent.sock"));
+
+        try(ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(silent);
+            SharedInteractionStore store = new SharedInteractionStore("silent", silent, 1000, 100, InteractionCodec.BASE);
+
+            SocketChannel accepted = server.accept();
+            try {
+                await(store::isConnected, 5000);
+
+                long start = System.nanoTime();
+                assertNull(store.get(5));
+                assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500), "get waited for an unanswered lookup");
+
+                store.setBlockingLookups(true);
+                start = System.nanoTime();
+                assertNull(store.get(5));
+                assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1000), "get did not wait for its read timeout");
+            }
+            finally {
+                accepted.close();
+                store.close();
+            }
+        }
+    }
+
+    @Test
+    void staleConnectionLeavesNewerLookupsPending() throws Exception {
+        UnixDomainSocketAddress silent = UnixDomainSocketAddress.of(directory.resolve("silent.sock"));
+
+        try(ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(silent);
+            SharedInteractionStore store = new SharedInteractionStore("silent", silent, 60_000, 100, InteractionCodec.BASE);
+
+            SocketChannel accepted = server.accept();
+            try {
+                await(store::isConnected, 5000);
+                CompletableFuture<Interaction> lookup = store.lookup(6);
+
+                // Once its frame is received, the request is registered on this connection
+                ByteBuffer header = ByteBuffer.allocate(5);
+                while(header.hasRemaining()) accepted.read(header);
+                assertEquals(StoreProtocol.GET, header.get(4));
+
+                // The reader of an older connection exiting late
+                store.disconnect(SocketChannel.open(StandardProtocolFamily.UNIX));
+                assertFalse(lookup.isDone());
+                assertTrue(store.isConnected());
+
+                // Losing its own connection fails it fast
+                accepted.close();
+                assertNull(lookup.get(5, TimeUnit.SECONDS));
+            }
+            finally {
+                accepted.close();
+                store.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
+import github.scarsz.discordsrv.dependencies.okhttp3.RequestBody;
+import github.scarsz.discordsrv.dependencies.okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentSourceTest {
+
+    private static final MediaType PNG = MediaType.get("image/png");
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for(int i = 0; i < length; i++) content[i] = (byte) (i * 31);
+        return content;
+    }
+
+    private static byte[] written(AttachmentSource source) throws IOException {
+        RequestBody body = source.toRequestBody();
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        assertEquals(body.contentLength(), sink.size());
+        return sink.readByteArray();
+    }
+
+    @Test
+    void directBufferPositionIsPreservedAcrossRetries() throws IOException {
+        byte[] content = content(64);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length).put(content);
+        buffer.position(10).limit(50);
+
+        AttachmentSource source = AttachmentSource.of("head.png", PNG, buffer);
+        byte[] expected = Arrays.copyOfRange(content, 10, 50);
+
+        for(int i = 0; i < 3; i++) {
+            assertArrayEquals(expected, written(source));
+            assertEquals(10, buffer.position());
+            assertEquals(50, buffer.limit());
+        }
+
+        // Moving the caller buffer afterward does not move the attachment
+        buffer.position(40);
+        assertArrayEquals(expected, written(source));
+    }
+
+    @Test
+    void byteArrayIsWrittenOnEveryRetry() throws IOException {
+        byte[] content = content(1000);
+        AttachmentSource source = AttachmentSource.of("head.png", PNG, content);
+
+        assertEquals("head.png", source.getName());
+        assertEquals(PNG, source.toRequestBody().contentType());
+        assertArrayEquals(content, written(source));
+        assertArrayEquals(content, written(source));
+    }
+
+    @Test
+    void streamIsOpenedAndClosedOnEveryWrite() throws IOException {
+        byte[] content = content(20_000);
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+
+        AttachmentSource source = AttachmentSource.of("region.png", PNG, content.length, () -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(content) {
+                @Override
+                public void close() {
+                    closed.incrementAndGet();
+                }
+            };
+        });
+
+        assertEquals(0, opened.get());
+        assertArrayEquals(content, written(source));
+        assertArrayEquals(content, written(source));
+        assertEquals(2, opened.get());
+        assertEquals(2, closed.get());
+    }
+
+    @Test
+    void shortStreamFailsTheRequest() {
+        AtomicInteger closed = new AtomicInteger();
+        AttachmentSource source = AttachmentSource.of("region.png", PNG, 100, () -> new ByteArrayInputStream(content(60)) {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        });
+
+        assertThrows(EOFException.class, () -> source.toRequestBody().writeTo(new Buffer()));
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void invalidSourcesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> AttachmentSource.of("region.png", PNG, -1, () -> new ByteArrayInputStream(new byte[0])));
+        assertThrows(IllegalArgumentException.class, () -> AttachmentSource.of(" ", PNG, new byte[1]));
+    }
+}
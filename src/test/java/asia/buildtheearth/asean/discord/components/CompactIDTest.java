@@ -0,0 +1,134 @@
+package asia.buildtheearth.asean.discord.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactIDTest {
+
+    private enum Status { ON_GOING, REVIEW, FINISHED }
+
+    private static final long ID = 1_300_000_000_000_000_001L, USER = 489_145_632_907_968_512L;
+
+    @Test
+    void payloadFieldsRoundTrip() {
+        String raw = CompactID.encode("bte", "plot", ID, USER, payload -> payload
+            .putInt(0).putInt(-1).putInt(Integer.MAX_VALUE).putInt(Integer.MIN_VALUE)
+            .putLong(Long.MIN_VALUE).putLong(-42)
+            .putEnum(Status.FINISHED)
+            .putBoolean(true).putBoolean(false)
+            .putString("").putString("KL ✓")
+        );
+        assertTrue(raw.length() <= CompactID.MAX_LENGTH, raw);
+
+        ComponentID parsed = ComponentID.parse(raw);
+        assertNotNull(parsed);
+        assertTrue(parsed.isCompact());
+        assertTrue(parsed.isPlugin("bte"));
+        assertTrue(parsed.isType("plot"));
+        assertEquals(ID, parsed.getIDLong());
+        assertEquals(USER, parsed.getUserIDLong());
+        assertEquals(Long.toUnsignedString(ID), parsed.getID());
+
+        CompactID.Reader payload = parsed.getCompactPayload();
+        assertEquals(0, payload.getInt());
+        assertEquals(-1, payload.getInt());
+        assertEquals(Integer.MAX_VALUE, payload.getInt());
+        assertEquals(Integer.MIN_VALUE, payload.getInt());
+        assertEquals(Long.MIN_VALUE, payload.getLong());
+        assertEquals(-42, payload.getLong());
+        assertEquals(Status.FINISHED, payload.getEnum(Status.class));
+        assertTrue(payload.getBoolean());
+        assertFalse(payload.getBoolean());
+        assertEquals("", payload.getString());
+        assertEquals("KL ✓", payload.getString());
+        assertFalse(payload.hasRemaining());
+    }
+
+    @Test
+    void everyPayloadLengthRoundTrips() {
+        // Each extra byte shifts the base64url padding, covering every bit alignment
+        for(int length = 0; length < 40; length++) {
+            String value = "x".repeat(length);
+            String raw = CompactID.encode("bte", "t", ID, USER, payload -> payload.putString(value));
+
+            ComponentID parsed = ComponentID.parse(raw);
+            assertNotNull(parsed, raw);
+
+            CompactID.Reader payload = parsed.getCompactPayload();
+            assertEquals(value, payload.getString());
+            assertFalse(payload.hasRemaining(), raw);
+        }
+    }
+
+    @Test
+    void emptyPayloadAndLegacyIDs() {
+        String raw = CompactID.encode("bte", "plot", ID, USER, null);
+        assertEquals("bte/plot/".length() + CompactID.MARKER.length() + 2 * CompactID.SNOWFLAKE_LENGTH, raw.length());
+
+        ComponentID parsed = ComponentID.parse(raw);
+        assertNotNull(parsed);
+        assertFalse(parsed.hasPayload());
+        assertFalse(parsed.getCompactPayload().hasRemaining());
+
+        ComponentID legacy = ComponentID.parse("bte/plot/" + ID + "/" + USER + "/payload");
+        assertNotNull(legacy);
+        assertFalse(legacy.isCompact());
+        assertEquals("payload", legacy.getPayload());
+        assertThrows(IllegalStateException.class, legacy::getCompactPayload);
+    }
+
+    @Test
+    void mismatchedFieldsAndLimitsAreRejected() {
+        String raw = CompactID.encode("bte", "plot", ID, USER, payload -> payload.putInt(7));
+        CompactID.Reader payload = ComponentID.parse(raw).getCompactPayload();
+
+        assertThrows(IllegalStateException.class, payload::getString);
+        assertThrows(IllegalArgumentException.class, () -> CompactID.encode("bte", "pl-ot", ID, USER, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> CompactID.encode("bte", "plot", ID, USER, writer -> writer.putString("x".repeat(100))));
+
+        // Not base64url, or a snowflake above 64 bits
+        assertNull(ComponentID.parse("bte/plot/~1" + "A".repeat(21) + "!"));
+        assertNull(ComponentID.parse("bte/plot/~1" + "_".repeat(22)));
+    }
+
+    @Test
+    void stringLongerThanThePayloadIsRejected() {
+        String header = CompactID.encode("bte", "plot", ID, USER, null);
+
+        // A string field claiming more bytes than encoded after it, or more than an int can hold
+        for(long length : new long[] { 3, 1L << 31, 1L << 60 }) {
+            ByteArrayOutputStream field = new ByteArrayOutputStream();
+            long value = length << 3 | 3;
+            while((value & ~0x7fL) != 0) {
+                field.write((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            field.write((int) value);
+            field.writeBytes(new byte[] { 'a', 'b' });
+
+            ComponentID parsed = ComponentID.parse(header + Base64.getUrlEncoder().withoutPadding().encodeToString(field.toByteArray()));
+            assertNotNull(parsed);
+            assertThrows(IllegalStateException.class, parsed.getCompactPayload()::getString, "length " + length);
+        }
+    }
+
+    @Test
+    void nestedEncodingUsesItsOwnWriter() {
+        String raw = CompactID.encode("bte", "outer", ID, USER, payload -> {
+            payload.putInt(1);
+            String inner = CompactID.encode("bte", "inner", USER, ID, nested -> nested.putInt(2));
+            payload.putString(inner.substring(inner.length() - 2));
+            payload.putInt(3);
+        });
+
+        CompactID.Reader payload = ComponentID.parse(raw).getCompactPayload();
+        assertEquals(1, payload.getInt());
+        payload.getString();
+        assertEquals(3, payload.getInt());
+    }
+}
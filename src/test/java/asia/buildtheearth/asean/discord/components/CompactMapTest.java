@@ -0,0 +1,166 @@
+package asia.buildtheearth.asean.discord.components;
+
+import asia.buildtheearth.asean.discord.components.api.Container;
+import asia.buildtheearth.asean.discord.components.api.TextButtonSection;
+import asia.buildtheearth.asean.discord.components.api.TextDisplay;
+import github.scarsz.discordsrv.dependencies.jda.api.interactions.components.Button;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactMapTest {
+
+    /**
+     * Encode a map in a new session, as a request body would
+     *
+     * @return The bytes the map memoized, null if it was encoded in place
+     */
+    private static byte[] encode(CompactMap map) throws IOException {
+        long session = JsonWriter.session();
+        JsonWriter.counting(session).value(map);
+        return map.encoded(session);
+    }
+
+    private static String json(CompactMap map) throws IOException {
+        JsonWriter writer = JsonWriter.memory();
+        writer.value(map);
+        return new String(writer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Button data as JDA builds it, hash maps all the way down
+     */
+    private static Map<String, Object> buttonData() {
+        Map<String, Object> emoji = new HashMap<>(Map.of("name", "ticket"));
+        Map<String, Object> button = new HashMap<>(Map.of("type", 2, "style", 1, "label", "Open", "custom_id", "plugin:open"));
+        button.put("emoji", emoji);
+        button.put("url", null);
+        return button;
+    }
+
+    private static Button button(Map<String, Object> data) {
+        return (Button) Proxy.newProxyInstance(Button.class.getClassLoader(), new Class<?>[] { Button.class }, (proxy, method, args) -> {
+            if(method.getName().equals("toData")) {
+                DataObject object = DataObject.empty();
+                data.forEach(object::put);
+                return object;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    @Test
+    void hashMapsAreNeverMemoized() throws IOException {
+        CompactMap section = new CompactMap(CompactMap.Shape.of("type", "accessory"), 9, buttonData());
+
+        for(int i = 0; i < 3; i++) assertNull(encode(section));
+    }
+
+    @Test
+    void copyKeepsEveryValueAndIsMemoized() throws IOException {
+        Map<String, Object> data = buttonData();
+        data.put("options", new ArrayList<>(List.of(Map.of("value", "a"), Map.of("value", "b"))));
+        CompactMap copy = CompactMap.copyOf(data);
+
+        assertEquals(data, copy);
+        assertTrue(copy.containsKey("url"));
+        assertInstanceOf(CompactMap.class, copy.get("emoji"));
+        assertInstanceOf(CompactList.class, copy.get("options"));
+
+        // Encoded in place first, then memoized once left unchanged
+        assertNull(encode(copy));
+        byte[] encoded = encode(copy);
+        assertNotNull(encoded);
+        assertSame(encoded, encode(copy));
+        assertEquals(json(CompactMap.copyOf(data)), new String(encoded, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void changeBelowACopyDirtiesIt() throws IOException {
+        CompactMap copy = CompactMap.copyOf(buttonData());
+        encode(copy);
+        byte[] before = encode(copy);
+        assertNotNull(before);
+
+        ((CompactMap) copy.get("emoji")).put("name", "closed");
+        assertNull(encode(copy));
+
+        byte[] after = encode(copy);
+        assertNotNull(after);
+        assertTrue(new String(after, StandardCharsets.UTF_8).contains("\"closed\""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void changeInANestedListDirtiesEveryMapAbove() throws IOException {
+        Map<String, Object> data = new HashMap<>(Map.of("type", 1));
+        data.put("rows", List.of(new ArrayList<>(List.of(new HashMap<>(Map.of("label", "a"))))));
+        CompactMap root = CompactMap.copyOf(Map.of("message", data));
+
+        encode(root);
+        assertNotNull(encode(root));
+
+        CompactMap message = (CompactMap) root.get("message");
+        List<Object> row = (List<Object>) ((List<?>) message.get("rows")).get(0);
+        row.add(Map.of("label", "b"));
+        assertNull(encode(root));
+        assertTrue(new String(encode(root), StandardCharsets.UTF_8).contains("\"b\""));
+
+        ((CompactMap) row.get(0)).put("label", "c");
+        assertNull(encode(root));
+        assertTrue(new String(encode(root), StandardCharsets.UTF_8).contains("\"c\""));
+    }
+
+    @Test
+    void mapSharedByTwoParentsIsEncodedEveryTime() throws IOException {
+        CompactMap child = CompactMap.copyOf(Map.of("label", "a"));
+        CompactMap first = new CompactMap(CompactMap.Shape.of("child"), child);
+
+        encode(first);
+        assertNotNull(encode(first));
+
+        // The second parent cannot be notified along with the first one
+        CompactMap second = new CompactMap(CompactMap.Shape.of("child"), child);
+        for(int i = 0; i < 2; i++) {
+            assertNull(encode(first));
+            assertNull(encode(second));
+        }
+
+        child.put("label", "b");
+        assertEquals("{\"child\":{\"label\":\"b\"}}", json(first));
+        assertEquals(json(first), json(second));
+
+        // Still memoized on its own
+        encode(child);
+        assertNotNull(encode(child));
+    }
+
+    @Test
+    void buttonSectionInAContainerIsMemoized() throws IOException {
+        Container container = new Container(1);
+        container.addComponent(new TextButtonSection(2, button(buttonData())).addTextDisplay(new TextDisplay("Ticket")));
+        CompactMap map = (CompactMap) container.toMap();
+
+        encode(map);
+        byte[] encoded = encode(map);
+        assertNotNull(encoded);
+        assertSame(encoded, encode(map));
+
+        // A component added later dirties the container, not the memoized section
+        container.addComponent(new TextDisplay("Closed"));
+        assertNull(encode(map));
+
+        CompactMap section = (CompactMap) ((List<?>) map.get("components")).get(0);
+        assertInstanceOf(CompactMap.class, section.get("accessory"));
+        assertNotNull(encode(section));
+    }
+}
@@ -0,0 +1,89 @@
+package asia.buildtheearth.asean.discord.components;
+
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation benchmark of a rendered message, compact components against
+ * the same tree built from {@link java.util.HashMap}-backed components as before.
+ *
+ * <p>Counted with the per-thread allocation counter of the JVM after a warm-up,
+ * so the JIT has done its escape analysis on both sides.
+ * Depending on the JIT and the garbage collector, it is left out of the default test run
+ * and run with {@code mvn test -P benchmark}.</p>
+ *
+ * @see ComponentEquivalenceTest
+ */
+@Tag("benchmark")
+class ComponentAllocationBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int MESSAGES = 10_000;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    static void allocationCounter() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported(), "Per-thread allocation counter is not available");
+
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static long encode(WebhookData message) {
+        try {
+            return new JsonRequestBody(message.toMap()).contentLength();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static long bytesToBuild(Supplier<WebhookData> message) {
+        for(int i = 0; i < WARMUP; i++) message.get();
+
+        long start = threads.getCurrentThreadAllocatedBytes();
+        for(int i = 0; i < MESSAGES; i++) message.get();
+        return (threads.getCurrentThreadAllocatedBytes() - start) / MESSAGES;
+    }
+
+    private static long bytesToEncode(Supplier<WebhookData> message) {
+        for(int i = 0; i < WARMUP; i++) encode(message.get());
+
+        long allocated = 0;
+        for(int i = 0; i < MESSAGES; i++) {
+            WebhookData data = message.get();
+            long start = threads.getCurrentThreadAllocatedBytes();
+            encode(data);
+            allocated += threads.getCurrentThreadAllocatedBytes() - start;
+        }
+        return allocated / MESSAGES;
+    }
+
+    @Test
+    void compactMessageAllocatesLessThanHalfToBuild() {
+        long legacy = bytesToBuild(ComponentEquivalenceTest::legacyMessage);
+        long compact = bytesToBuild(ComponentEquivalenceTest::compactMessage);
+
+        assertTrue(compact * 2 <= legacy, "built with " + compact + " bytes against " + legacy + " bytes");
+    }
+
+    @Test
+    void compactMessageAllocatesSeveralTimesLessToEncode() {
+        long legacy = bytesToEncode(ComponentEquivalenceTest::legacyMessage);
+        long compact = bytesToEncode(ComponentEquivalenceTest::compactMessage);
+
+        assertTrue(compact * 4 <= legacy, "encoded with " + compact + " bytes against " + legacy + " bytes");
+    }
+}
@@ -0,0 +1,77 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.jda.api.JDA;
+import github.scarsz.discordsrv.dependencies.jda.api.hooks.EventListener;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentDemultiplexerTest {
+
+    private static final EventListener LISTENER = event -> {};
+
+    /**
+     * A JDA instance only keeping track of its registered listeners
+     */
+    private static JDA jda(List<Object> registered) {
+        return (JDA) Proxy.newProxyInstance(JDA.class.getClassLoader(), new Class<?>[] { JDA.class }, (proxy, method, args) ->
+            switch (method.getName()) {
+                case "getRegisteredListeners" -> List.copyOf(registered);
+                case "addEventListener" -> registered.addAll(Arrays.asList((Object[]) args[0]));
+                case "removeEventListener" -> registered.removeAll(Arrays.asList((Object[]) args[0]));
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static Plugin plugin(String name) {
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[] { Plugin.class }, (proxy, method, args) -> {
+            if(method.getName().equals("getName")) return name;
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    @Test
+    void lastUnregisterRemovesTheSharedListener() {
+        List<Object> registered = new CopyOnWriteArrayList<>();
+        JDA jda = jda(registered);
+
+        ComponentDemultiplexer.register(jda, plugin("First"), LISTENER);
+        ComponentDemultiplexer.register(jda, plugin("Second"), LISTENER);
+        assertEquals(1, registered.size());
+        Object shared = registered.get(0);
+
+        ComponentDemultiplexer.unregister(jda, plugin("First"));
+        assertEquals(List.of(shared), registered);
+
+        ComponentDemultiplexer.unregister(jda, plugin("Second"));
+        assertTrue(registered.isEmpty());
+
+        // A new registrant creates its own instance
+        ComponentDemultiplexer.register(jda, plugin("Third"), LISTENER);
+        assertEquals(1, registered.size());
+        assertNotSame(shared, registered.get(0));
+    }
+
+    @Test
+    void unregisterWithoutRegistrationIsIgnored() {
+        List<Object> registered = new CopyOnWriteArrayList<>();
+        ComponentDemultiplexer.unregister(jda(registered), plugin("First"));
+        assertTrue(registered.isEmpty());
+    }
+
+    @Test
+    void pluginNameMustPrefixComponentIDs() {
+        List<Object> registered = new CopyOnWriteArrayList<>();
+        assertThrows(IllegalArgumentException.class,
+            () -> ComponentDemultiplexer.register(jda(registered), plugin("My Plugin"), LISTENER));
+        assertTrue(registered.isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package asia.buildtheearth.asean.discord.components;
+
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import asia.buildtheearth.asean.discord.components.api.ComponentV2;
+import asia.buildtheearth.asean.discord.components.api.Container;
+import asia.buildtheearth.asean.discord.components.api.Separator;
+import asia.buildtheearth.asean.discord.components.api.TextDisplay;
+import asia.buildtheearth.asean.discord.components.api.Thumbnail;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Equivalence of a rendered message, compact components against
+ * the same tree built from {@link java.util.HashMap}-backed components as before.
+ *
+ * @see ComponentAllocationBenchmark
+ */
+class ComponentEquivalenceTest {
+
+    /**
+     * A container of 20 text displays, 20 separators and a thumbnail
+     */
+    static WebhookData compactMessage() {
+        Container container = new Container(1, 0x3498db, false);
+        for(int i = 0; i < 20; i++) {
+            container.addComponent(new TextDisplay("Line of relayed chat"));
+            container.addComponent(new Separator(true));
+        }
+        container.addComponent(new Thumbnail("https://example.com/avatar.png", "avatar"));
+
+        return new WebhookDataBuilder().setComponentsV2(List.of(container)).forceComponentV2().build();
+    }
+
+    /**
+     * The same message as {@link #compactMessage()} from the key-value constructors
+     */
+    static WebhookData legacyMessage() {
+        Legacy container = new Legacy(17, 1, "accent_color", 0x3498db, "components", new ArrayList<>(), "spoiler", false);
+        DataArray components = container.getArray("components");
+        for(int i = 0; i < 20; i++) {
+            components.add(new Legacy(10, "content", "Line of relayed chat"));
+            components.add(new Legacy(14, "divider", true, "spacing", 1));
+        }
+        components.add(new Legacy(11, "media", Map.of("url", "https://example.com/avatar.png"), "description", "avatar"));
+
+        return new WebhookDataBuilder().setComponentsV2(List.of(container)).forceComponentV2().build();
+    }
+
+    private static String encode(Map<String, Object> message) throws IOException {
+        JsonWriter writer = JsonWriter.memory();
+        writer.object(message);
+        return new String(writer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy a tree into linked maps, its keys ordered as in another tree of the same members
+     */
+    private static Object ordered(Object value, Object order) {
+        if(value instanceof Map<?, ?> map && order instanceof Map<?, ?> keys) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for(Map.Entry<?, ?> entry : keys.entrySet()) copy.put(entry.getKey(), ordered(map.get(entry.getKey()), entry.getValue()));
+            return copy;
+        }
+        if(value instanceof List<?> list && order instanceof List<?> elements) {
+            List<Object> copy = new ArrayList<>();
+            for(int i = 0; i < list.size(); i++) copy.add(ordered(list.get(i), elements.get(i)));
+            return copy;
+        }
+        return value;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bothTreesEncodeTheSameBytes() throws IOException {
+        Map<String, Object> legacy = legacyMessage().toMap();
+        Map<String, Object> compact = compactMessage().toMap();
+        assertEquals(legacy, compact);
+
+        // Hash maps iterate in their own order, compact maps in the order of their shape
+        assertEquals(encode((Map<String, Object>) ordered(legacy, compact)), encode(compact));
+    }
+
+    /**
+     * Component backed by a {@link java.util.HashMap} copied from a {@link Map#of}
+     */
+    private static final class Legacy extends ComponentV2 {
+        private Legacy(int type, String k1, Object v1) {
+            super(type, k1, v1);
+        }
+
+        private Legacy(int type, String k1, Object v1, String k2, Object v2) {
+            super(type, k1, v1, k2, v2);
+        }
+
+        private Legacy(int type, int id, String k1, Object v1, String k2, Object v2, String k3, Object v3) {
+            super(type, id, k1, v1, k2, v2, k3, v3);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package asia.buildtheearth.asean.discord.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentIDTest {
+
+    private static final long ID = 1_300_000_000_000_000_001L, USER = 489_145_632_907_968_512L;
+
+    /**
+     * Groups matched by {@link IDPattern#COMPONENT_PATTERN}, the parser used before {@link ComponentID}
+     *
+     * @return The matched groups, {@code null} if the ID does not match
+     */
+    private static EnumMap<IDPattern, String> regex(String raw) {
+        Matcher matcher = IDPattern.COMPONENT_PATTERN.matcher(raw);
+        if(!matcher.matches()) return null;
+
+        EnumMap<IDPattern, String> groups = new EnumMap<>(IDPattern.class);
+        for(IDPattern group : IDPattern.values()) {
+            String value = matcher.group(group.name().toLowerCase());
+            if(value != null) groups.put(group, value);
+        }
+        return groups;
+    }
+
+    private static void assertSameAsRegex(String raw) {
+        assertEquals(regex(raw), IDPattern.parseCustomID(raw), () -> "custom_id " + raw.replace("\n", "\\n"));
+    }
+
+    @Test
+    void parsesLikeTheRegex() {
+        String[] table = {
+            // Valid, with and without payload
+            "bte/plot/123/456",
+            "bte/plot/123/456/payload",
+            "bte/plot/" + Long.toUnsignedString(ID) + "/" + Long.toUnsignedString(USER) + "/42",
+            "bte/plot/abc/def/not snowflakes",
+            "bte/plot/18446744073709551616/1/over 64 bits",
+            "bte/plot/1/2/ünïcode ✓",
+            "bte/plot/1/2/with/slashes",
+            "b_1/T_2/0/0",
+            // Trailing slashes, only one is left out of the payload
+            "bte/plot/123/456/",
+            "bte/plot/123/456//",
+            "bte/plot/123/456/payload/",
+            "bte/plot/123/456/payload//",
+            "bte/plot/123/456/a/b/",
+            // Malformed
+            "",
+            "/",
+            "bte",
+            "bte/plot",
+            "bte/plot/123",
+            "bte/plot/123/",
+            "bte//123/456",
+            "/plot/123/456",
+            "bte/plot//456",
+            "bte/pl-ot/123/456",
+            "bté/plot/123/456",
+            "bte/plot/123/45 6",
+            "bte/plot/123/456x/",
+            "bte/plot/123/456\n",
+            "bte/plot/123/456/line\nbreak",
+            "bte/plot/123/456/line\rbreak",
+            "bte/plot/123/456/\u0085",
+            "bte/plot/123/456/\u2028",
+            "bte/plot/123/456/\u2029",
+            // Malformed compact IDs are rejected by both
+            "bte/plot/~",
+            "bte/plot/~1",
+            "bte/plot/~1" + "A".repeat(21) + "!",
+            "bte/plot/~1" + "_".repeat(22),
+            "bte/plot/~2" + "A".repeat(22),
+        };
+
+        for(String raw : table) assertSameAsRegex(raw);
+    }
+
+    @Test
+    void parsesRandomIDsLikeTheRegex() {
+        // Characters of every branch of the parser
+        char[] alphabet = { 'a', 'Z', '0', '9', '_', '/', '/', '/', '~', '-', ' ', '\n', '\u2028', 'é' };
+        Random random = new Random(6);
+
+        for(int i = 0; i < 200_000; i++) {
+            char[] raw = new char[random.nextInt(14)];
+            for(int j = 0; j < raw.length; j++) raw[j] = alphabet[random.nextInt(alphabet.length)];
+            assertSameAsRegex(new String(raw));
+        }
+    }
+
+    @Test
+    void compactIDsAreOnlyParsedByComponentID() {
+        String raw = CompactID.encode("bte", "plot", ID, USER, payload -> payload.putInt(7));
+        assertNull(regex(raw));
+
+        EnumMap<IDPattern, String> parsed = IDPattern.parseCustomID(raw);
+        assertNotNull(parsed);
+        assertEquals("bte", parsed.get(IDPattern.PLUGIN));
+        assertEquals("plot", parsed.get(IDPattern.TYPE));
+        assertEquals(Long.toUnsignedString(ID), parsed.get(IDPattern.ID));
+        assertEquals(Long.toUnsignedString(USER), parsed.get(IDPattern.USER));
+        assertEquals(raw.substring("bte/plot/".length() + CompactID.MARKER.length() + 2 * CompactID.SNOWFLAKE_LENGTH),
+                parsed.get(IDPattern.PAYLOAD));
+    }
+}
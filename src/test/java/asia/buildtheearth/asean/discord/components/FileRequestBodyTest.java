@@ -0,0 +1,79 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileRequestBodyTest {
+
+    @TempDir
+    Path folder;
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] written(FileRequestBody body) throws IOException {
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        return sink.readByteArray();
+    }
+
+    @Test
+    void fileIsStreamedWholeOnEveryWrite() throws IOException {
+        byte[] content = content(200_000);
+        Path file = Files.write(folder.resolve("render.bin"), content);
+        FileRequestBody body = FileRequestBody.of(file, FileRequestBody.OCTET_STREAM);
+
+        assertEquals(content.length, body.contentLength());
+        assertArrayEquals(content, written(body));
+
+        // A retried request reads the file again
+        assertArrayEquals(content, written(body));
+    }
+
+    @Test
+    void fileChangingSizeFailsTheRequest() throws IOException {
+        byte[] content = content(1024);
+        Path file = Files.write(folder.resolve("render.bin"), content);
+        FileRequestBody body = FileRequestBody.of(file, FileRequestBody.OCTET_STREAM);
+
+        Files.write(file, new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+        Buffer grown = new Buffer();
+        IOException error = assertThrows(IOException.class, () -> body.writeTo(grown));
+        assertTrue(error.getMessage().contains("changed size from 1024 to 1027 bytes"), error.getMessage());
+        assertEquals(0, grown.size());
+
+        Files.write(file, Arrays.copyOf(content, 512));
+        assertThrows(IOException.class, () -> body.writeTo(new Buffer()));
+
+        // Back to its size, the body is sent again
+        Files.write(file, content);
+        assertArrayEquals(content, written(body));
+    }
+
+    @Test
+    void mediaTypeIsDetectedFromTheLeadingBytes() throws IOException {
+        // Without an extension, so the platform type table is never consulted
+        byte[] png = Arrays.copyOf(new byte[] { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A }, 64);
+        byte[] webp = Arrays.copyOf(new byte[] { 'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P' }, 64);
+
+        assertEquals("image/png", FileRequestBody.of(Files.write(folder.resolve("render"), png)).contentType().toString());
+        assertEquals("image/webp", FileRequestBody.of(Files.write(folder.resolve("preview"), webp)).contentType().toString());
+        assertEquals(FileRequestBody.OCTET_STREAM, FileRequestBody.of(Files.write(folder.resolve("blob"), content(64))).contentType());
+
+        // Shorter than any signature
+        assertEquals(FileRequestBody.OCTET_STREAM, FileRequestBody.of(Files.write(folder.resolve("tiny"), new byte[] { 'G' })).contentType());
+    }
+}
@@ -0,0 +1,94 @@
+package asia.buildtheearth.asean.discord.components;
+
+import asia.buildtheearth.asean.discord.components.api.TextDisplay;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import github.scarsz.discordsrv.dependencies.okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonRequestBodyTest {
+
+    private static String written(JsonRequestBody body) throws IOException {
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        assertEquals(body.contentLength(), sink.size());
+        return sink.readUtf8();
+    }
+
+    private static String inner(DataObject object) {
+        String json = object.toString();
+        return json.substring(1, json.length() - 1);
+    }
+
+    private static DataObject text() {
+        return DataObject.empty()
+            .put("quote", "say \"hi\" \\ there/")
+            .put("controls", "\n\r\t\b\f\u0000\u001f\u007f")
+            .put("unicode", "é ✓ 日本")
+            .put("surrogates", "emoji 😀 𝄞");
+    }
+
+    /**
+     * A tree of every value type, built through the JDA data API
+     */
+    private static DataObject tree() {
+        DataArray list = DataArray.empty()
+            .add(1)
+            .add("two")
+            .add(text())
+            .add(DataArray.empty().add(true).add(DataArray.empty()));
+
+        return DataObject.empty()
+            .put("int", 42)
+            .put("long", Long.MAX_VALUE)
+            .put("negative", Integer.MIN_VALUE)
+            .put("double", 0.1)
+            .put("float", 0.1f)
+            .put("exponent", 1e21)
+            .put("small", 1.0E-7)
+            .put("decimal", new BigDecimal("12345678901234567890.5"))
+            .put("integer", BigInteger.TEN.pow(30))
+            .put("bool", false)
+            .put("null", null)
+            .put("empty", DataObject.empty())
+            .put("list", list)
+            .put("text", text())
+            .put("component", new TextDisplay("Text ✓"));
+    }
+
+    @Test
+    void streamedJsonMatchesDataObject() throws IOException {
+        DataObject tree = tree();
+        assertEquals(tree.toString(), written(new JsonRequestBody(tree.toMap())));
+    }
+
+    @Test
+    void encodedMembersAreJoinedWithData() throws IOException {
+        DataObject first = text();
+        DataObject second = DataObject.empty().put("content", "after").put("list", DataArray.empty().add(1));
+
+        JsonWriter writer = JsonWriter.memory();
+        writer.members(first.toMap());
+        byte[] encoded = writer.toByteArray();
+
+        assertEquals("{" + inner(first) + "," + inner(second) + "}", written(new JsonRequestBody(encoded, second.toMap())));
+        assertEquals(first.toString(), written(new JsonRequestBody(encoded, Map.of())));
+        assertEquals(second.toString(), written(new JsonRequestBody(new byte[0], second.toMap())));
+        assertEquals("{}", written(new JsonRequestBody(Map.of())));
+    }
+
+    @Test
+    void nonFiniteNumbersAreRejected() {
+        for(Number number : new Number[] { Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Float.NaN, Float.POSITIVE_INFINITY }) {
+            JsonRequestBody body = new JsonRequestBody(Map.of("number", number));
+            assertThrows(IllegalArgumentException.class, body::contentLength, number::toString);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package asia.buildtheearth.asean.discord.components;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadOverflowTest {
+
+    @Test
+    void oldestPayloadIsOverwrittenAndCounted() {
+        PayloadOverflow overflow = new PayloadOverflow(3, 60_000);
+
+        List<String> tokens = new ArrayList<>();
+        for(int i = 0; i < 5; i++) tokens.add(overflow.store("payload-" + i));
+
+        assertNull(overflow.resolve(tokens.get(0)));
+        assertNull(overflow.resolve(tokens.get(1)));
+        for(int i = 2; i < 5; i++) assertEquals("payload-" + i, overflow.resolve(tokens.get(i)));
+
+        assertEquals(2, overflow.getOverwrites());
+    }
+
+    @Test
+    void expiredPayloadIsNotResolvedNorCountedWhenOverwritten() throws InterruptedException {
+        PayloadOverflow overflow = new PayloadOverflow(1, 20);
+
+        String expired = overflow.store("expired");
+        Thread.sleep(50);
+        assertNull(overflow.resolve(expired));
+
+        String live = overflow.store("live");
+        assertEquals("live", overflow.resolve(live));
+        assertEquals(0, overflow.getOverwrites());
+    }
+
+    @Test
+    void tokenOfAnotherStoreIsRejected() {
+        PayloadOverflow first = new PayloadOverflow(8, 60_000);
+        PayloadOverflow second = new PayloadOverflow(8, 60_000);
+
+        String token = first.store("first");
+        second.store("second");
+
+        assertNull(second.resolve(token));
+        assertNull(first.resolve(PayloadOverflow.MARKER + "~~~~~~~~~~~~~~~"));
+    }
+
+    @Test
+    void eachPluginHasItsOwnStore() {
+        PayloadOverflow overflow = PayloadOverflow.of("overflow-test", 16);
+
+        assertSame(overflow, PayloadOverflow.of("overflow-test", 32));
+        assertSame(overflow, PayloadOverflow.find("overflow-test"));
+        assertEquals(16, overflow.getCapacity());
+        assertNull(PayloadOverflow.find("overflow-test-unknown"));
+        assertThrows(IllegalArgumentException.class, () -> PayloadOverflow.of("overflow-test-empty", 0));
+    }
+}
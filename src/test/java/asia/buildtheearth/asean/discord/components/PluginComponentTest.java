@@ -0,0 +1,95 @@
+package asia.buildtheearth.asean.discord.components;
+
+import github.scarsz.discordsrv.dependencies.jda.api.interactions.components.Component;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PluginComponentTest {
+
+    private static Plugin plugin(String name) {
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[] { Plugin.class }, (proxy, method, args) -> {
+            if(method.getName().equals("getName")) return name;
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    /**
+     * A component counting every read of its {@code custom_id}
+     */
+    private static Component component(String id, AtomicInteger reads) {
+        return (Component) Proxy.newProxyInstance(Component.class.getClassLoader(), new Class<?>[] { Component.class }, (proxy, method, args) -> {
+            if(method.getName().equals("getId")) {
+                reads.incrementAndGet();
+                return id;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static PluginComponent.Reason reason(Plugin plugin, String id) {
+        return PluginComponent.validate(plugin, component(id, new AtomicInteger())).getReason();
+    }
+
+    @Test
+    void pluginsAreMatchedByTheirWholeName() {
+        Plugin relay = plugin("Relay");
+        Plugin extra = plugin("RelayExtra");
+
+        // Alternating plugins, as two plugins sharing this library do
+        for(int i = 0; i < 2; i++) {
+            assertEquals(PluginComponent.Reason.VALID, reason(relay, "Relay/open/123/456"));
+            assertEquals(PluginComponent.Reason.FOREIGN_PLUGIN, reason(relay, "RelayExtra/open/123/456"));
+            assertEquals(PluginComponent.Reason.VALID, reason(extra, "RelayExtra/open/123/456"));
+            assertEquals(PluginComponent.Reason.FOREIGN_PLUGIN, reason(extra, "Relay/open/123/456"));
+        }
+
+        assertEquals(PluginComponent.Reason.FOREIGN_PLUGIN, reason(relay, "Relay"));
+        assertEquals(PluginComponent.Reason.FOREIGN_PLUGIN, reason(relay, "Relay-open/123/456"));
+        assertEquals(PluginComponent.Reason.MALFORMED_ID, reason(relay, "Relay/"));
+    }
+
+    @Test
+    void getOptHandsTheValidatedIDToTheConstructor() {
+        Plugin relay = plugin("Relay");
+        AtomicInteger reads = new AtomicInteger();
+        Component component = component("Relay/open/123/456/ticket", reads);
+
+        Optional<PluginComponent<Component>> parsed = PluginComponent.getOpt(relay, component, PluginComponent<Component>::new);
+        assertTrue(parsed.isPresent());
+        assertEquals("ticket", parsed.get().getPayload());
+        assertEquals(1, reads.get());
+
+        // Outside getOpt the constructor validates on its own
+        assertEquals("open", new PluginComponent<>(relay, component).getType());
+        assertEquals(2, reads.get());
+        assertThrows(IllegalArgumentException.class, () -> new PluginComponent<>(plugin("Other"), component));
+    }
+
+    @Test
+    void unusedValidationIsNotReused() {
+        Plugin relay = plugin("Relay");
+        AtomicInteger reads = new AtomicInteger();
+        Component component = component("Relay/open/123/456", reads);
+
+        assertEquals(Optional.empty(), PluginComponent.getOpt(relay, component, (plugin, ignored) -> {
+            throw new IllegalArgumentException("rejected by the subclass");
+        }));
+        assertEquals(1, reads.get());
+
+        new PluginComponent<>(relay, component);
+        assertEquals(2, reads.get());
+
+        AtomicInteger constructed = new AtomicInteger();
+        assertEquals(Optional.empty(), PluginComponent.getOpt(relay, component("Other/open/123/456", reads), (plugin, foreign) -> {
+            constructed.incrementAndGet();
+            return new PluginComponent<>(plugin, foreign);
+        }));
+        assertEquals(0, constructed.get());
+    }
+}
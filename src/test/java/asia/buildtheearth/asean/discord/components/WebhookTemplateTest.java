@@ -0,0 +1,197 @@
+package asia.buildtheearth.asean.discord.components;
+
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import asia.buildtheearth.asean.discord.components.api.TextDisplay;
+import github.scarsz.discordsrv.dependencies.okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookTemplateTest {
+
+    private static final String[] FIELDS = { "content", "username", "avatar_url" };
+
+    private static String json(WebhookData data) throws IOException {
+        Buffer sink = new Buffer();
+        data.payload().writeTo(sink);
+        return sink.readUtf8();
+    }
+
+    /**
+     * Encode a builder message in the member order of a template: its set fields first, then the skeleton members
+     */
+    private static String json(WebhookData message, WebhookData skeleton, String... fields) throws IOException {
+        Map<String, Object> members = message.toMap();
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        for(String field : fields) if(members.get(field) != null) ordered.put(field, members.get(field));
+        for(String key : skeleton.toMap().keySet()) if(members.containsKey(key)) ordered.putIfAbsent(key, members.get(key));
+        assertEquals(members.keySet(), ordered.keySet());
+
+        JsonWriter writer = JsonWriter.memory();
+        writer.value(ordered);
+        return new String(writer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static WebhookDataBuilder relay() {
+        return new WebhookDataBuilder().setContent("Default").setUsername("Relay").suppressMentions();
+    }
+
+    private static TextDisplay display(String hole) {
+        TextDisplay display = new TextDisplay("");
+        display.put("content", WebhookTemplate.string(hole));
+        return display;
+    }
+
+    private static WebhookDataBuilder ticket(TextDisplay first, TextDisplay middle, TextDisplay last) {
+        return new WebhookDataBuilder()
+                .setThreadName("Thread")
+                .setComponentsV2(List.of(first, new TextDisplay("Opened by"), middle, new TextDisplay("Status"), last))
+                .forceComponentV2();
+    }
+
+    @Test
+    void filledFieldsMatchTheBuilderMessage() throws IOException {
+        WebhookData skeleton = relay().build();
+        WebhookTemplate template = WebhookTemplate.compile(skeleton, FIELDS);
+
+        // Skeleton values by default, a field without one is left out
+        assertEquals(json(relay().build(), skeleton, FIELDS), json(template.builder().build()));
+
+        assertEquals(json(relay().setContent("Say \"hi\"\n\u2028 ✓").setUsername("Steve").setWebhookAvatarUrl("https://example.com/a.png").build(), skeleton, FIELDS),
+                json(template.builder()
+                        .set("content", "Say \"hi\"\n\u2028 ✓")
+                        .set("username", "Steve")
+                        .set("avatar_url", "https://example.com/a.png")
+                        .build()));
+
+        // A null field is left out even with a default
+        assertEquals(json(relay().setContent(null).setUsername(null).build(), skeleton, FIELDS),
+                json(template.builder().set("content", null).set("username", null).build()));
+    }
+
+    @Test
+    void holesAtEveryPositionMatchTheBuilderMessage() throws IOException {
+        WebhookData skeleton = ticket(display("first"), display("middle"), display("last")).build();
+        skeleton.put("thread_name", WebhookTemplate.string("thread"));
+        WebhookTemplate template = WebhookTemplate.compile(skeleton, "content");
+
+        WebhookData message = ticket(new TextDisplay("Ticket #1"), new TextDisplay("Steve"), new TextDisplay("Open"))
+                .setThreadName("Ticket \"1\"")
+                .build();
+        WebhookTemplate.Builder builder = template.builder()
+                .set("thread", "Ticket \"1\"")
+                .set("first", "Ticket #1")
+                .set("middle", "Steve")
+                .set("last", "Open");
+
+        assertEquals(json(message, skeleton, "content"), json(builder.build()));
+
+        // Filled again for another message
+        WebhookData next = ticket(new TextDisplay("Ticket #2"), new TextDisplay("Alex"), new TextDisplay("Closed"))
+                .setContent("Closed by Alex")
+                .setThreadName("Ticket 2")
+                .build();
+        builder.set("content", "Closed by Alex").set("thread", "Ticket 2").set("first", "Ticket #2").set("middle", "Alex").set("last", "Closed");
+
+        assertEquals(json(next, skeleton, "content"), json(builder.build()));
+    }
+
+    @Test
+    void unfilledHoleIsRejectedOnBuild() {
+        WebhookData skeleton = ticket(display("first"), display("middle"), display("last")).build();
+        WebhookTemplate template = WebhookTemplate.compile(skeleton, "content");
+
+        // Fields are optional, skeleton holes are not
+        WebhookTemplate.Builder builder = template.builder().set("first", "Ticket #1").set("middle", "Steve");
+        assertThrows(IllegalStateException.class, builder::build);
+
+        assertNotNull(builder.set("last", "Open").build());
+        assertThrows(IllegalStateException.class, () -> template.builder().set("middle", "Steve").set("last", "Open").build());
+    }
+
+    @Test
+    void usernameFieldIsLimitedOnBuild() {
+        WebhookTemplate template = WebhookTemplate.compile(relay().build(), FIELDS);
+
+        assertNotNull(template.builder().set("username", "u".repeat(WebhookLimits.MAX_USERNAME_LENGTH)).build());
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> template.builder().set("username", "u".repeat(WebhookLimits.MAX_USERNAME_LENGTH + 1)).build());
+        assertTrue(error.getMessage().contains("username: is 81 characters long, the limit is 80"), error.getMessage());
+
+        // A static username is checked with the skeleton
+        WebhookData skeleton = relay().setUsername("u".repeat(WebhookLimits.MAX_USERNAME_LENGTH + 1)).build();
+        assertEquals(1, WebhookLimits.validate(skeleton).size());
+        assertThrows(IllegalArgumentException.class, () -> WebhookTemplate.compile(skeleton));
+        assertThrows(IllegalArgumentException.class, () -> WebhookTemplate.compile(skeleton, FIELDS));
+    }
+
+    @Test
+    void contentFieldIsLimitedOnBuild() {
+        WebhookTemplate template = WebhookTemplate.compile(new WebhookDataBuilder().build(), "content", "username");
+        WebhookTemplate.Builder builder = template.builder().set("username", "x".repeat(WebhookLimits.MAX_USERNAME_LENGTH));
+
+        assertNotNull(builder.set("content", "a".repeat(WebhookLimits.MAX_CONTENT_LENGTH)).build());
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> builder.set("content", "a".repeat(WebhookLimits.MAX_CONTENT_LENGTH + 1)).build());
+        assertTrue(error.getMessage().contains("content: is 2001 characters long, the limit is 2000"), error.getMessage());
+    }
+
+    @Test
+    void customIDHoleIsLimitedOnBuild() {
+        Map<String, Object> button = new HashMap<>(Map.of("type", 2, "style", 1, "label", "Open"));
+        button.put("custom_id", WebhookTemplate.string("id"));
+
+        WebhookData skeleton = new WebhookDataBuilder().forceComponentV2().build();
+        skeleton.put("components", List.of(Map.of(
+                "type", 9,
+                "components", List.of(new TextDisplay("Ticket")),
+                "accessory", button
+        )));
+        WebhookTemplate template = WebhookTemplate.compile(skeleton);
+
+        assertNotNull(template.builder().set("id", "i".repeat(WebhookLimits.MAX_CUSTOM_ID_LENGTH)).build());
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> template.builder().set("id", "i".repeat(WebhookLimits.MAX_CUSTOM_ID_LENGTH + 1)).build());
+        assertTrue(error.getMessage().contains("components[0].accessory.custom_id: is 101 characters long"), error.getMessage());
+    }
+
+    @Test
+    void textDisplayHolesCountWithTheStaticText() {
+        TextDisplay body = new TextDisplay("");
+        body.put("content", WebhookTemplate.string("body"));
+
+        WebhookTemplate template = WebhookTemplate.compile(new WebhookDataBuilder()
+                .setComponentsV2(List.of(new TextDisplay("h".repeat(3000)), body))
+                .forceComponentV2()
+                .build());
+
+        // The static text is counted afresh on every build of the same builder
+        WebhookTemplate.Builder builder = template.builder().set("body", "b".repeat(1000));
+        assertNotNull(builder.build());
+        assertNotNull(builder.build());
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> builder.set("body", "b".repeat(1001)).build());
+        assertTrue(error.getMessage().contains("components[1].content: brings the text displays to 4001 characters"), error.getMessage());
+    }
+
+    @Test
+    void oversizedSkeletonIsRejectedOnCompile() {
+        WebhookData skeleton = new WebhookDataBuilder()
+                .setContent("a".repeat(WebhookLimits.MAX_CONTENT_LENGTH + 1))
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> WebhookTemplate.compile(skeleton));
+        assertThrows(IllegalArgumentException.class, () -> WebhookTemplate.compile(skeleton, "content"));
+    }
+}
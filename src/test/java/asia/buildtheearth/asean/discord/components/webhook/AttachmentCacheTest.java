@@ -0,0 +1,152 @@
+package asia.buildtheearth.asean.discord.components.webhook;
+
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder;
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataArray;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentCacheTest {
+
+    private static final MediaType PNG = MediaType.get("image/png");
+    private static final String PREFIX = "attachment://";
+
+    @TempDir
+    Path folder;
+
+    private static byte[] content(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A signed CDN URL expiring after the given time
+     */
+    private static String cdn(String name, Duration lifetime) {
+        long expiry = (System.currentTimeMillis() + lifetime.toMillis()) / 1000;
+        return "https://cdn.discordapp.com/attachments/1/2/" + name + "?ex=" + Long.toHexString(expiry) + "&is=0&hm=0";
+    }
+
+    /**
+     * The message discord returns for uploaded attachments
+     */
+    private static DataObject sent(String... uploads) {
+        DataArray attachments = DataArray.empty();
+        for(String upload : uploads) {
+            String name = upload.substring(PREFIX.length());
+            attachments.add(DataObject.empty().put("filename", name).put("url", cdn(name, Duration.ofDays(1))));
+        }
+        return DataObject.empty().put("id", "1").put("attachments", attachments);
+    }
+
+    /**
+     * Resolve and record an attachment, as sending it would
+     */
+    private static String upload(AttachmentCache cache, String text) {
+        String upload = cache.attach(new WebhookDataBuilder().build(), "logo.png", PNG, content(text));
+        assertTrue(upload.startsWith(PREFIX), upload);
+        cache.record(sent(upload));
+        return upload;
+    }
+
+    @Test
+    void recordedAttachmentResolvesToItsUrl() throws IOException {
+        AttachmentCache cache = AttachmentCache.open(folder.resolve("attachments.cache"), 16);
+        WebhookData data = new WebhookDataBuilder().build();
+
+        String upload = cache.attach(data, "logo.png", PNG, content("logo"));
+        assertTrue(upload.startsWith(PREFIX) && upload.endsWith(".png"), upload);
+        assertEquals(1, cache.getMissCount());
+
+        // Not yet sent, uploaded again
+        assertEquals(upload, cache.attach(data, "other.png", PNG, content("logo")));
+
+        cache.record(sent(upload));
+        String url = cache.attach(new WebhookDataBuilder().build(), "logo.png", PNG, content("logo"));
+        assertTrue(url.startsWith("https://cdn.discordapp.com/"), url);
+        assertEquals(1, cache.getHitCount());
+
+        // Keyed by content only
+        Path file = Files.write(folder.resolve("logo.webp"), content("logo"));
+        assertEquals(url, cache.attach(new WebhookDataBuilder().build(), file));
+        assertTrue(cache.attach(new WebhookDataBuilder().build(), "logo.png", PNG, content("other")).startsWith(PREFIX));
+    }
+
+    @Test
+    void savedCacheIsReloaded() throws IOException {
+        Path path = folder.resolve("cache").resolve("attachments.cache");
+        String url;
+
+        try(AttachmentCache cache = AttachmentCache.open(path, 16)) {
+            upload(cache, "logo");
+            upload(cache, "banner");
+            url = cache.attach(new WebhookDataBuilder().build(), "logo.png", PNG, content("logo"));
+        }
+
+        AttachmentCache reloaded = AttachmentCache.open(path, 16);
+        assertEquals(2, reloaded.size());
+        assertEquals(url, reloaded.attach(new WebhookDataBuilder().build(), "logo.png", PNG, content("logo")));
+        assertFalse(reloaded.attach(new WebhookDataBuilder().build(), "banner.png", PNG, content("banner")).startsWith(PREFIX));
+    }
+
+    @Test
+    void hitOrderIsSavedForEviction() throws IOException {
+        Path path = folder.resolve("attachments.cache");
+
+        AttachmentCache cache = AttachmentCache.open(path, 2);
+        upload(cache, "first");
+        upload(cache, "second");
+        cache.save();
+
+        // Hit after the save, only the order changed
+        assertFalse(cache.attach(new WebhookDataBuilder().build(), "first.png", PNG, content("first")).startsWith(PREFIX));
+        cache.save();
+
+        AttachmentCache reloaded = AttachmentCache.open(path, 2);
+        upload(reloaded, "third");
+        assertEquals(2, reloaded.size());
+        assertFalse(reloaded.attach(new WebhookDataBuilder().build(), "first.png", PNG, content("first")).startsWith(PREFIX));
+        assertTrue(reloaded.attach(new WebhookDataBuilder().build(), "second.png", PNG, content("second")).startsWith(PREFIX));
+    }
+
+    @Test
+    void unusableAttachmentsAreNotRecorded() throws IOException {
+        AttachmentCache cache = AttachmentCache.open(folder.resolve("attachments.cache"), 16);
+        String upload = cache.attach(new WebhookDataBuilder().build(), "logo.png", PNG, content("logo"));
+        String name = upload.substring(PREFIX.length());
+
+        // Expiring within the margin, or not uploaded through the cache
+        DataArray attachments = DataArray.empty()
+                .add(DataObject.empty().put("filename", name).put("url", cdn(name, AttachmentCache.EXPIRY_MARGIN.minusMinutes(1))))
+                .add(DataObject.empty().put("filename", "logo.png").put("url", cdn("logo.png", Duration.ofDays(1))))
+                .add(DataObject.empty().put("filename", name.replace('.', '_')).put("url", cdn(name, Duration.ofDays(1))));
+        cache.record(DataObject.empty().put("attachments", attachments));
+        cache.record(null);
+
+        assertEquals(0, cache.size());
+        assertEquals(upload, cache.attach(new WebhookDataBuilder().build(), "logo.png", PNG, content("logo")));
+    }
+
+    @Test
+    void expiredEntriesAreNotReloaded() throws IOException {
+        Path path = folder.resolve("attachments.cache");
+        String key = "A".repeat(22);
+        long now = System.currentTimeMillis();
+
+        Files.write(path, (key + ' ' + (now - 1000) + " https://cdn.discordapp.com/a.png\n"
+                + "B".repeat(22) + ' ' + (now + 60_000) + " https://cdn.discordapp.com/b.png\n"
+                + "malformed line\n").getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(1, AttachmentCache.open(path, 16).size());
+        assertThrows(IllegalArgumentException.class, () -> AttachmentCache.open(path, 0));
+    }
+}
@@ -0,0 +1,195 @@
+package asia.buildtheearth.asean.discord.components.webhook;
+
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder;
+import asia.buildtheearth.asean.discord.components.WebhookDataBuilder.WebhookData;
+import github.scarsz.discordsrv.dependencies.jda.api.utils.data.DataObject;
+import github.scarsz.discordsrv.dependencies.okhttp3.Call;
+import github.scarsz.discordsrv.dependencies.okhttp3.Callback;
+import github.scarsz.discordsrv.dependencies.okhttp3.MediaType;
+import github.scarsz.discordsrv.dependencies.okhttp3.Protocol;
+import github.scarsz.discordsrv.dependencies.okhttp3.Request;
+import github.scarsz.discordsrv.dependencies.okhttp3.Response;
+import github.scarsz.discordsrv.dependencies.okhttp3.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookDispatcherTest {
+
+    private static final String WEBHOOK = "https://discord.com/api/webhooks/1/token";
+
+    /**
+     * Discord as seen by the dispatcher: every enqueued call waits here to be answered by the test
+     */
+    private final BlockingQueue<Exchange> server = new LinkedBlockingQueue<>();
+    private final Call.Factory http = request -> (Call) Proxy.newProxyInstance(
+        Call.class.getClassLoader(), new Class<?>[] { Call.class }, (proxy, method, args) -> switch (method.getName()) {
+            case "enqueue" -> server.add(new Exchange(request, (Call) proxy, (Callback) args[0]));
+            case "request" -> request;
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+    private WebhookDispatcher dispatcher;
+
+    private record Exchange(Request request, Call call, Callback callback) {
+        private void respond(int code, String body, String... headers) throws Exception {
+            Response.Builder response = new Response.Builder()
+                .request(request).protocol(Protocol.HTTP_1_1).code(code).message("")
+                .body(ResponseBody.create(MediaType.parse("application/json"), body.getBytes(StandardCharsets.UTF_8)));
+            for(int i = 0; i < headers.length; i += 2) response.header(headers[i], headers[i + 1]);
+            callback.onResponse(call, response.build());
+        }
+    }
+
+    private static WebhookData message(String content) {
+        return new WebhookDataBuilder().setContent(content).build();
+    }
+
+    private Exchange next() throws InterruptedException {
+        Exchange exchange = server.poll(5, TimeUnit.SECONDS);
+        assertNotNull(exchange, "No request was sent");
+        return exchange;
+    }
+
+    @AfterEach
+    void close() {
+        if(dispatcher != null) dispatcher.close();
+    }
+
+    @Test
+    void rateLimitedMessageIsRetriedBeforeTheNextOne() throws Exception {
+        dispatcher = new WebhookDispatcher(http);
+        CompletableFuture<DataObject> first = dispatcher.send(WEBHOOK, message("first"));
+        CompletableFuture<DataObject> second = dispatcher.send(WEBHOOK, message("second"));
+
+        Exchange exchange = next();
+        assertEquals("true", exchange.request().url().queryParameter("wait"));
+        exchange.respond(429, "{}", "Retry-After", "0.05", "X-RateLimit-Bucket", "abc");
+
+        next().respond(200, "{\"id\":\"1\"}");
+        assertEquals("1", first.get(5, TimeUnit.SECONDS).getString("id"));
+        assertFalse(second.isDone());
+
+        next().respond(200, "{\"id\":\"2\"}");
+        assertEquals("2", second.get(5, TimeUnit.SECONDS).getString("id"));
+
+        assertEquals(1, dispatcher.getRateLimitedCount());
+        assertEquals(3, dispatcher.getSentCount());
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    void exhaustedBucketWaitsForItsReset() throws Exception {
+        dispatcher = new WebhookDispatcher(http);
+        dispatcher.send(WEBHOOK, message("first"));
+        CompletableFuture<DataObject> second = dispatcher.send(WEBHOOK, message("second"));
+
+        long start = System.nanoTime();
+        next().respond(200, "{}", "X-RateLimit-Limit", "5", "X-RateLimit-Remaining", "0", "X-RateLimit-Reset-After", "0.3");
+
+        next().respond(200, "{}");
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250), "Sent before the bucket reset");
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(0, dispatcher.getRateLimitedCount());
+    }
+
+    @Test
+    void emptyBucketIsRemovedOnceItResets() throws Exception {
+        dispatcher = new WebhookDispatcher(http);
+        dispatcher.send(WEBHOOK, message("first"));
+        next().respond(200, "{}", "X-RateLimit-Limit", "5", "X-RateLimit-Remaining", "4", "X-RateLimit-Reset-After", "0.3");
+
+        // Kept while its rate limit still applies, a new message is sent right away
+        long start = System.nanoTime();
+        CompletableFuture<DataObject> second = dispatcher.send(WEBHOOK, message("second"));
+        next().respond(200, "{}", "X-RateLimit-Limit", "5", "X-RateLimit-Remaining", "3", "X-RateLimit-Reset-After", "0.3");
+        second.get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250), "Waited for the reset of a non-empty bucket");
+        assertEquals(1, dispatcher.getBuckets().size());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(!dispatcher.getBuckets().isEmpty()) {
+            assertTrue(System.nanoTime() < deadline, "Empty bucket was never removed");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void failedRequestFailsOnlyItsMessage() throws Exception {
+        dispatcher = new WebhookDispatcher(http);
+        CompletableFuture<DataObject> first = dispatcher.send(WEBHOOK, message("first"));
+        CompletableFuture<DataObject> second = dispatcher.send(WEBHOOK, message("second"));
+
+        next().respond(400, "{\"message\":\"Invalid Form Body\"}");
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause().getMessage().contains("HTTP 400"), ex.getCause().getMessage());
+
+        next().respond(204, "");
+        assertNotNull(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rateLimitAfterCloseCancelsTheMessage() throws Exception {
+        dispatcher = new WebhookDispatcher(http);
+        CompletableFuture<DataObject> first = dispatcher.send(WEBHOOK, message("first"));
+        CompletableFuture<DataObject> second = dispatcher.send(WEBHOOK, message("second"));
+
+        Exchange exchange = next();
+        dispatcher.close();
+        exchange.respond(429, "{}", "Retry-After", "0.05");
+
+        // A retry would hang forever, the dispatcher thread is gone
+        assertThrows(CancellationException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> second.get(5, TimeUnit.SECONDS));
+
+        assertNull(server.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertThrows(IllegalStateException.class, () -> dispatcher.send(WEBHOOK, message("late")));
+    }
+
+    @Test
+    void lastSlotIsKeptForInteractions() throws Exception {
+        dispatcher = new WebhookDispatcher(http, 3);
+        for(int i = 0; i < 5; i++) dispatcher.send(WEBHOOK + i, message("broadcast"), DispatchLane.BULK);
+
+        Exchange first = next(), second = next();
+        assertNull(server.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, dispatcher.getInFlightCount());
+
+        CompletableFuture<DataObject> reply = dispatcher.send(WEBHOOK, message("reply"), DispatchLane.INTERACTION);
+        Exchange interaction = next();
+        assertEquals("/api/webhooks/1/token", interaction.request().url().encodedPath());
+        interaction.respond(200, "{\"id\":\"3\"}");
+        assertEquals("3", reply.get(5, TimeUnit.SECONDS).getString("id"));
+
+        // Broadcasts go on once their slots are released
+        first.respond(200, "{}");
+        second.respond(200, "{}");
+        for(int i = 0; i < 3; i++) next().respond(200, "{}");
+        assertEquals(0, dispatcher.getQueueDepth());
+        assertEquals(6, dispatcher.getSentCount());
+    }
+
+    @Test
+    void oversizedMessageFailsWithoutRequest() throws Exception {
+        dispatcher = new WebhookDispatcher(http);
+        CompletableFuture<DataObject> result = dispatcher.send(WEBHOOK, message("x".repeat(2001)));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        assertNull(server.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+}